@@ -0,0 +1,74 @@
+package com.plagiarism.checker.cli;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Консольная проверка файла без графического интерфейса.
+ * <p>
+ * Загружает базу данных, проверяет один файл и печатает найденные совпадения
+ * в виде строк {@code <процент>\t<файл базы данных>} по убыванию схожести.
+ * Шаблонный код задания, исключаемый из сравнения, задается опцией {@code -t <директория>}
+ * (можно повторять).
+ * Не зависит от JavaFX, поэтому запускается из headless-сборки модуля {@code cli}.
+ */
+public final class CheckCli {
+    private static final Logger logger = LogManager.getLogger(CheckCli.class);
+
+    private CheckCli() {
+    }
+
+    /**
+     * Точка входа консольной проверки.
+     * <p>
+     * Аргументы: {@code [-t <директория шаблона>]... <директория базы> <проверяемый файл>
+     * [количество результатов]}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        List<Path> templates = new ArrayList<>();
+        int first = 0;
+        while (first + 1 < args.length && args[first].equals("-t")) {
+            templates.add(Path.of(args[first + 1]));
+            first += 2;
+        }
+        if (args.length - first < 2) {
+            System.err.println("Usage: CheckCli [-t templateDir]... <databaseDir> <file.java> [maxResults]");
+            System.exit(2);
+        }
+
+        try {
+            int maxResults = args.length - first > 2 ? Integer.parseInt(args[first + 2]) : 0;
+
+            PlagiarismDetector detector = new PlagiarismDetector();
+            for (Path template : templates) {
+                detector.addTemplateDirectory(template);
+            }
+            detector.loadDatabase(Path.of(args[first]));
+
+            List<PlagiarismResult> results = detector.checkFileForPlagiarism(Path.of(args[first + 1]));
+            int printed = 0;
+            for (PlagiarismResult result : results) {
+                if (maxResults > 0 && printed++ >= maxResults) {
+                    break;
+                }
+                System.out.printf("%.2f\t%s%n", result.getSimilarityPercentage(), result.getFileName());
+            }
+            if (results.isEmpty()) {
+                System.out.println("No matches found");
+            }
+
+        } catch (Exception e) {
+            logger.error("Check failed: {}", e.getMessage(), e);
+            System.err.println("Check failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
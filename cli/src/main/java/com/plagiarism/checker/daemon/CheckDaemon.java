@@ -0,0 +1,384 @@
+package com.plagiarism.checker.daemon;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Демон проверки на Unix domain socket.
+ * <p>
+ * Держит загруженный {@link PlagiarismDetector}, поэтому повторные проверки из скриптов
+ * не платят за запуск JVM и загрузку базы данных. Запросы принимаются по
+ * {@link DaemonProtocol}; каждое соединение обслуживается виртуальным потоком.
+ * <p>
+ * Клиент передает пути к проверяемым файлам, которые демон читает со своими правами,
+ * поэтому файл сокета доступен только владельцу (0600).
+ * <p>
+ * Перезагрузка базы данных выполняется в фоне в новый детектор; до ее завершения
+ * запросы обслуживает прежний детектор, после — новый. Открытые соединения при
+ * этом не закрываются.
+ */
+public class CheckDaemon implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CheckDaemon.class);
+
+    /** Директория базы данных */
+    private final Path databasePath;
+
+    /** Путь к файлу сокета */
+    private final Path socketPath;
+
+    /** Фабрика детекторов для перезагрузки */
+    private final Supplier<PlagiarismDetector> detectorFactory;
+
+    /** Текущий детектор с загруженной базой данных */
+    private final AtomicReference<PlagiarismDetector> detector;
+
+    /** Номер поколения базы данных (увеличивается при каждой перезагрузке) */
+    private final AtomicLong generation;
+
+    /** Флаг выполнения фоновой перезагрузки */
+    private final AtomicBoolean reloadInProgress;
+
+    /** Серверный канал сокета */
+    private final ServerSocketChannel serverChannel;
+
+    /** Открытые соединения клиентов */
+    private final Set<SocketChannel> connections;
+
+    /** Флаг работы демона */
+    private volatile boolean running;
+
+    /**
+     * Создает демон и открывает сокет.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param databasePath директория базы данных (для перезагрузки)
+     * @param socketPath путь к файлу сокета
+     * @throws IOException если сокет занят другим демоном или не может быть открыт
+     */
+    public CheckDaemon(PlagiarismDetector detector, Path databasePath, Path socketPath) throws IOException {
+        this(detector, databasePath, socketPath, PlagiarismDetector::new);
+    }
+
+    /**
+     * Создает демон с фабрикой детекторов для перезагрузки и открывает сокет.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param databasePath директория базы данных (для перезагрузки)
+     * @param socketPath путь к файлу сокета
+     * @param detectorFactory фабрика детекторов, в которые загружается база при перезагрузке
+     * @throws IOException если сокет занят другим демоном или не может быть открыт
+     */
+    public CheckDaemon(PlagiarismDetector detector, Path databasePath, Path socketPath,
+                       Supplier<PlagiarismDetector> detectorFactory) throws IOException {
+        if (detector == null) {
+            throw new IllegalArgumentException("Detector cannot be null");
+        }
+        this.databasePath = databasePath;
+        this.socketPath = socketPath.toAbsolutePath();
+        this.detectorFactory = detectorFactory;
+        this.detector = new AtomicReference<>(detector);
+        this.generation = new AtomicLong(1);
+        this.reloadInProgress = new AtomicBoolean(false);
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.serverChannel = bind(this.socketPath);
+    }
+
+    /**
+     * Открывает сокет и сразу после привязки ограничивает доступ к файлу сокета
+     * владельцем. Оставшийся от завершившегося процесса файл сокета удаляется,
+     * но сокет работающего демона не перехватывается.
+     */
+    private static ServerSocketChannel bind(Path socketPath) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (Files.exists(socketPath)) {
+            if (isListening(address)) {
+                throw new IOException("Another daemon is already listening on " + socketPath);
+            }
+            logger.info("Removing stale socket file {}", socketPath);
+            Files.deleteIfExists(socketPath);
+        }
+
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(address);
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            logger.warn("Cannot restrict permissions of socket {}: POSIX permissions are not supported", socketPath);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Проверяет, принимает ли сокет соединения.
+     */
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Запускает прием соединений в фоновом потоке.
+     */
+    public void start() {
+        running = true;
+        Thread acceptThread = new Thread(this::acceptLoop, "daemon-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        logger.info("Check daemon listening on {} ({} files)", socketPath, detector.get().getDatabaseFileCount());
+    }
+
+    /**
+     * Возвращает путь к файлу сокета.
+     */
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    /**
+     * Возвращает номер поколения базы данных: 1 после запуска, затем
+     * увеличивается после каждой успешной перезагрузки.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Запускает перезагрузку базы данных в фоне.
+     *
+     * @return false, если перезагрузка уже выполняется
+     */
+    public boolean reloadInBackground() {
+        if (!reloadInProgress.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("daemon-reload").start(() -> {
+            try {
+                long start = System.nanoTime();
+                PlagiarismDetector reloaded = detectorFactory.get();
+                reloaded.loadDatabase(databasePath);
+                detector.set(reloaded);
+                long current = generation.incrementAndGet();
+                logger.info("Database reloaded in {} ms: {} files (generation {})",
+                        (System.nanoTime() - start) / 1_000_000, reloaded.getDatabaseFileCount(), current);
+            } catch (Exception e) {
+                logger.error("Database reload failed, keeping the previous database: {}", e.getMessage(), e);
+            } finally {
+                reloadInProgress.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Принимает соединения, пока демон не остановлен.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                Thread.ofVirtual().name("daemon-connection").start(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("Failed to accept connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Обслуживает одно соединение клиента до его закрытия.
+     */
+    private void serve(SocketChannel channel) {
+        connections.add(channel);
+        try (channel;
+             InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+
+            String line;
+            while (running && (line = DaemonProtocol.readLine(in)) != null) {
+                try {
+                    handle(line, in, out);
+                } catch (EOFException e) {
+                    throw e;
+                } catch (IllegalArgumentException | IOException e) {
+                    // Ошибка запроса (например, нечитаемый файл) не закрывает соединение
+                    DaemonProtocol.writeError(out, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.debug("Daemon connection closed: {}", e.getMessage());
+            }
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    /**
+     * Выполняет один запрос и записывает ответ.
+     */
+    private void handle(String line, InputStream in, OutputStream out) throws IOException {
+        String[] parts = line.split(" ", 3);
+        String command = parts[0];
+        PlagiarismDetector current = detector.get();
+
+        switch (command) {
+            case DaemonProtocol.CHECK -> {
+                if (parts.length < 3) {
+                    throw new IllegalArgumentException("Usage: CHECK <maxResults> <path>");
+                }
+                int maxResults = parseInt(parts[1], "maxResults");
+                Path file = Path.of(parts[2]);
+                if (!file.toString().toLowerCase().endsWith(".java")) {
+                    throw new IllegalArgumentException("File must have .java extension: " + file);
+                }
+                DaemonProtocol.writeResults(out, check(current, FileUtils.readFile(file), maxResults));
+            }
+            case DaemonProtocol.CODE -> {
+                if (parts.length < 3) {
+                    throw new IllegalArgumentException("Usage: CODE <maxResults> <length>");
+                }
+                int maxResults = parseInt(parts[1], "maxResults");
+                int length = parseInt(parts[2], "length");
+                if (length > DaemonProtocol.MAX_CODE_SIZE) {
+                    // Тело не читается, поэтому соединение дальше использовать нельзя
+                    DaemonProtocol.writeError(out, "Code is too large: " + length + " bytes");
+                    throw new EOFException("Code is too large");
+                }
+                byte[] body = in.readNBytes(length);
+                if (body.length < length) {
+                    throw new EOFException("Connection closed in the middle of the code");
+                }
+                String code = new String(body, StandardCharsets.UTF_8);
+                DaemonProtocol.writeResults(out, check(current, code, maxResults));
+            }
+            case DaemonProtocol.RELOAD -> {
+                boolean started = reloadInBackground();
+                DaemonProtocol.writeLine(out, DaemonProtocol.OK + (started ? " reloading" : " reload already in progress"));
+                out.flush();
+            }
+            case DaemonProtocol.STATS -> {
+                DaemonProtocol.writeLine(out, String.format("%s files=%d fragments=%d generation=%d reloading=%b",
+                        DaemonProtocol.OK, current.getDatabaseFileCount(), current.getTotalFragmentsCount(),
+                        generation.get(), reloadInProgress.get()));
+                out.flush();
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    /**
+     * Проверяет код; не блокирует параллельные проверки других соединений.
+     */
+    private static List<PlagiarismResult> check(PlagiarismDetector detector, String code, int maxResults) {
+        List<CodeFragment> fragments = detector.getFragmentExtractor().extractFragments(code);
+        return detector.checkFragments(fragments, maxResults);
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative " + name + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Останавливает демон, закрывает соединения и удаляет файл сокета.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.warn("Error closing daemon socket: {}", e.getMessage());
+        }
+        for (SocketChannel channel : connections) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing connection: {}", e.getMessage());
+            }
+        }
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            logger.warn("Cannot remove socket file {}: {}", socketPath, e.getMessage());
+        }
+        logger.info("Check daemon on {} stopped", socketPath);
+    }
+
+    /**
+     * Точка входа демона.
+     * <p>
+     * Аргументы: {@code <директория базы> [путь к сокету]}.
+     * После загрузки базы выводит строку {@code DAEMON READY <путь к сокету>}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: CheckDaemon <databaseDir> [socketPath]");
+            System.exit(2);
+        }
+
+        try {
+            Path databasePath = Path.of(args[0]);
+            Path socketPath = args.length > 1 ? Path.of(args[1]) : DaemonProtocol.defaultSocketPath();
+
+            PlagiarismDetector detector = new PlagiarismDetector();
+            detector.loadDatabase(databasePath);
+
+            CheckDaemon daemon = new CheckDaemon(detector, databasePath, socketPath);
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+            daemon.start();
+            System.out.println("DAEMON READY " + daemon.getSocketPath());
+
+            // Демон работает до завершения JVM
+            new CountDownLatch(1).await();
+
+        } catch (Exception e) {
+            logger.error("Daemon failed to start: {}", e.getMessage(), e);
+            System.err.println("Daemon failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.plagiarism.checker.daemon;
+
+import com.plagiarism.checker.model.PlagiarismResult;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Тонкий клиент демона проверки ({@link CheckDaemon}).
+ * <p>
+ * Держит одно соединение с демоном, по которому можно выполнить
+ * любое количество запросов. Клиент не загружает базу данных, классы проверки
+ * и систему логирования, поэтому запускается быстро.
+ */
+public class DaemonClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * Подключается к демону.
+     *
+     * @param socketPath путь к файлу сокета демона
+     * @throws IOException если демон не запущен
+     */
+    public DaemonClient(Path socketPath) throws IOException {
+        this.channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw new IOException("Check daemon is not running on " + socketPath + ": " + e.getMessage(), e);
+        }
+        this.in = new BufferedInputStream(Channels.newInputStream(channel));
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Проверяет файл. Файл читает демон, поэтому путь передается абсолютным.
+     *
+     * @param file проверяемый Java файл
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return результаты без сведений о совпавших фрагментах
+     * @throws IOException если демон вернул ошибку или соединение прервано
+     */
+    public List<PlagiarismResult> checkFile(Path file, int maxResults) throws IOException {
+        DaemonProtocol.writeLine(out, DaemonProtocol.CHECK + " " + maxResults + " " + file.toAbsolutePath());
+        out.flush();
+        return DaemonProtocol.readResults(in);
+    }
+
+    /**
+     * Проверяет код.
+     *
+     * @param code проверяемый код
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return результаты без сведений о совпавших фрагментах
+     * @throws IOException если демон вернул ошибку или соединение прервано
+     */
+    public List<PlagiarismResult> checkCode(String code, int maxResults) throws IOException {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        DaemonProtocol.writeLine(out, DaemonProtocol.CODE + " " + maxResults + " " + bytes.length);
+        out.write(bytes);
+        out.flush();
+        return DaemonProtocol.readResults(in);
+    }
+
+    /**
+     * Запускает фоновую перезагрузку базы данных демона.
+     *
+     * @return ответ демона
+     */
+    public String reload() throws IOException {
+        return request(DaemonProtocol.RELOAD);
+    }
+
+    /**
+     * Возвращает статистику демона: файлы, фрагменты, поколение базы данных.
+     */
+    public String stats() throws IOException {
+        return request(DaemonProtocol.STATS);
+    }
+
+    private String request(String command) throws IOException {
+        DaemonProtocol.writeLine(out, command);
+        out.flush();
+        return DaemonProtocol.readStatus(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Точка входа клиента.
+     * <p>
+     * Аргументы: {@code [-s <сокет>] check <файл>... | code | reload | stats};
+     * для {@code code} проверяемый код читается из стандартного ввода.
+     * Результаты печатаются строками {@code <процент>\t<файл базы данных>}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        Path socketPath = DaemonProtocol.defaultSocketPath();
+        if (arguments.size() >= 2 && arguments.get(0).equals("-s")) {
+            socketPath = Path.of(arguments.get(1));
+            arguments = arguments.subList(2, arguments.size());
+        }
+        if (arguments.isEmpty()) {
+            System.err.println("Usage: DaemonClient [-s socketPath] check <file.java>... | code | reload | stats");
+            System.exit(2);
+        }
+
+        try (DaemonClient client = new DaemonClient(socketPath)) {
+            String command = arguments.get(0).toLowerCase(Locale.ROOT);
+            switch (command) {
+                case "check" -> {
+                    for (String file : arguments.subList(1, arguments.size())) {
+                        print(client.checkFile(Path.of(file), 0));
+                    }
+                }
+                case "code" -> print(client.checkCode(
+                        new String(System.in.readAllBytes(), StandardCharsets.UTF_8), 0));
+                case "reload" -> System.out.println(client.reload());
+                case "stats" -> System.out.println(client.stats());
+                default -> {
+                    System.err.println("Unknown command: " + command);
+                    System.exit(2);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void print(List<PlagiarismResult> results) {
+        for (PlagiarismResult result : results) {
+            System.out.printf("%.2f\t%s%n", result.getSimilarityPercentage(), result.getFileName());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.plagiarism.checker.daemon;
+
+import com.plagiarism.checker.model.PlagiarismResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Строковый протокол демона проверки (UTF-8, строки завершаются {@code \n}).
+ * <p>
+ * Протокол текстовый, чтобы скрипты могли обращаться к демону и без клиента,
+ * например через {@code socat - UNIX-CONNECT:<сокет>}. По одному соединению
+ * можно отправить любое количество запросов.
+ * <pre>
+ * запросы:  CHECK &lt;maxResults&gt; &lt;абсолютный путь к файлу&gt;
+ *           CODE &lt;maxResults&gt; &lt;длина в байтах&gt;, затем указанное количество байт кода
+ *           RELOAD
+ *           STATS
+ * ответы:   OK &lt;n&gt;, затем n строк &lt;процент&gt;\t&lt;файл базы данных&gt;   (CHECK, CODE)
+ *           OK &lt;сообщение&gt;                                           (RELOAD, STATS)
+ *           ERROR &lt;сообщение&gt;
+ * </pre>
+ */
+final class DaemonProtocol {
+
+    static final String CHECK = "CHECK";
+    static final String CODE = "CODE";
+    static final String RELOAD = "RELOAD";
+    static final String STATS = "STATS";
+
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+
+    /** Имя файла сокета по умолчанию (во временной директории) */
+    static final String DEFAULT_SOCKET_NAME = "plagiarism-checker.sock";
+
+    /** Максимальная длина строки протокола (путь к файлу и заголовки) */
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /** Максимальный размер кода в запросе (как у FileUtils.readFile) */
+    static final int MAX_CODE_SIZE = 10 * 1024 * 1024;
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * Возвращает путь к сокету по умолчанию во временной директории.
+     */
+    static Path defaultSocketPath() {
+        return Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_SOCKET_NAME);
+    }
+
+    /**
+     * Читает строку протокола без завершающего {@code \n}.
+     *
+     * @return строка или null, если соединение закрыто до начала строки
+     * @throws IOException если строка слишком длинная или оборвана
+     */
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException("Connection closed in the middle of a line");
+            }
+            if (line.size() >= MAX_LINE_LENGTH) {
+                throw new IOException("Protocol line is too long");
+            }
+            line.write(b);
+        }
+        int length = line.size();
+        byte[] bytes = line.toByteArray();
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Записывает строку протокола.
+     */
+    static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    /**
+     * Записывает ответ с результатами проверки.
+     */
+    static void writeResults(OutputStream out, List<PlagiarismResult> results) throws IOException {
+        StringBuilder response = new StringBuilder(64 + results.size() * 64);
+        response.append(OK).append(' ').append(results.size()).append('\n');
+        for (PlagiarismResult result : results) {
+            response.append(String.format(Locale.ROOT, "%.2f", result.getSimilarityPercentage()))
+                    .append('\t').append(result.getFileName()).append('\n');
+        }
+        out.write(response.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Записывает ответ с ошибкой (переводы строк в сообщении заменяются пробелами).
+     */
+    static void writeError(OutputStream out, String message) throws IOException {
+        String text = message != null ? message.replace('\n', ' ').replace('\r', ' ') : "Unknown error";
+        writeLine(out, ERROR + " " + text);
+        out.flush();
+    }
+
+    /**
+     * Читает ответ с результатами проверки.
+     *
+     * @throws IOException если демон вернул ошибку или ответ поврежден
+     */
+    static List<PlagiarismResult> readResults(InputStream in) throws IOException {
+        String header = readStatus(in);
+        int count;
+        try {
+            count = Integer.parseInt(header);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid result count: " + header);
+        }
+
+        List<PlagiarismResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String line = readLine(in);
+            int tab = line != null ? line.indexOf('\t') : -1;
+            if (tab < 0) {
+                throw new IOException("Invalid result line: " + line);
+            }
+            double similarity = Double.parseDouble(line.substring(0, tab));
+            results.add(new PlagiarismResult(line.substring(tab + 1), similarity, Collections.emptyMap()));
+        }
+        return results;
+    }
+
+    /**
+     * Читает строку статуса и возвращает текст после {@code OK}.
+     *
+     * @throws IOException если демон вернул ошибку или закрыл соединение
+     */
+    static String readStatus(InputStream in) throws IOException {
+        String line = readLine(in);
+        if (line == null) {
+            throw new EOFException("Daemon closed the connection");
+        }
+        if (line.startsWith(ERROR)) {
+            throw new IOException("Daemon error: " + line.substring(ERROR.length()).trim());
+        }
+        if (!line.startsWith(OK)) {
+            throw new IOException("Unexpected response: " + line);
+        }
+        return line.substring(OK.length()).trim();
+    }
+}
@@ -0,0 +1,359 @@
+package com.plagiarism.checker.distributed;
+
+import com.plagiarism.checker.core.FragmentExtractor;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Координатор распределенной проверки.
+ * <p>
+ * Извлекает фрагменты проверяемого кода, рассылает их всем зарегистрированным
+ * рабочим процессам ({@link CheckWorker}) и объединяет их ранжированные результаты.
+ * Рабочие процессы можно добавлять в любой момент; недоступный или упавший
+ * во время запроса процесс исключается из текущего ответа, а при следующем
+ * запросе координатор снова пытается к нему подключиться.
+ */
+public class CheckCoordinator implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CheckCoordinator.class);
+
+    /** Таймаут ожидания ответа рабочего процесса по умолчанию (мс) */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    /** Таймаут установления соединения с рабочим процессом (мс) */
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+
+    /** Порядок результатов: по убыванию процента схожести */
+    private static final Comparator<PlagiarismResult> BY_SIMILARITY_DESC =
+            Comparator.comparingDouble(PlagiarismResult::getSimilarityPercentage).reversed();
+
+    /** Экстрактор фрагментов проверяемого кода */
+    private final FragmentExtractor fragmentExtractor;
+
+    /** Зарегистрированные рабочие процессы */
+    private final List<WorkerConnection> workers;
+
+    /** Пул потоков для параллельной рассылки запросов */
+    private final ExecutorService queryExecutor;
+
+    /** Таймаут ожидания ответа рабочего процесса (мс) */
+    private final int timeoutMillis;
+
+    /**
+     * Создает координатор с таймаутом по умолчанию.
+     */
+    public CheckCoordinator() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Создает координатор.
+     *
+     * @param timeoutMillis таймаут ожидания ответа рабочего процесса в миллисекундах
+     */
+    public CheckCoordinator(int timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeoutMillis);
+        }
+        this.fragmentExtractor = new FragmentExtractor();
+        this.workers = new CopyOnWriteArrayList<>();
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.queryExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "coordinator-query-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.debug("CheckCoordinator initialized");
+    }
+
+    /**
+     * Регистрирует рабочий процесс. Может вызываться в любой момент,
+     * в том числе между запросами.
+     *
+     * @param address адрес рабочего процесса
+     */
+    public void addWorker(InetSocketAddress address) {
+        if (address == null) {
+            throw new IllegalArgumentException("Worker address cannot be null");
+        }
+        for (WorkerConnection worker : workers) {
+            if (worker.address.equals(address)) {
+                logger.debug("Worker {} already registered", address);
+                return;
+            }
+        }
+        workers.add(new WorkerConnection(address));
+        logger.info("Worker {} registered ({} workers total)", address, workers.size());
+    }
+
+    /**
+     * Удаляет рабочий процесс из списка и закрывает соединение с ним.
+     *
+     * @param address адрес рабочего процесса
+     */
+    public void removeWorker(InetSocketAddress address) {
+        for (WorkerConnection worker : workers) {
+            if (worker.address.equals(address)) {
+                workers.remove(worker);
+                worker.disconnect();
+                logger.info("Worker {} removed", address);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество зарегистрированных рабочих процессов.
+     */
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Проверяет код на плагиат во всех частях распределенной базы данных.
+     *
+     * @param codeToCheck код для проверки
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return объединенный результат проверки
+     */
+    public DistributedCheckResult check(String codeToCheck, int maxResults) {
+        if (codeToCheck == null || codeToCheck.trim().isEmpty()) {
+            logger.warn("Empty code provided for checking");
+            return new DistributedCheckResult(List.of(), List.of(), List.of());
+        }
+        return checkFragments(fragmentExtractor.extractFragments(codeToCheck), maxResults);
+    }
+
+    /**
+     * Рассылает фрагменты всем рабочим процессам и объединяет их результаты.
+     *
+     * @param checkFragments фрагменты проверяемого кода
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return объединенный результат проверки
+     */
+    public DistributedCheckResult checkFragments(List<CodeFragment> checkFragments, int maxResults) {
+        List<WorkerConnection> snapshot = new ArrayList<>(workers);
+        if (checkFragments == null || checkFragments.isEmpty() || snapshot.isEmpty()) {
+            logger.warn("Nothing to check: {} fragments, {} workers",
+                    checkFragments == null ? 0 : checkFragments.size(), snapshot.size());
+            return new DistributedCheckResult(List.of(), List.of(), addresses(snapshot));
+        }
+
+        Map<WorkerConnection, Future<List<PlagiarismResult>>> futures = new LinkedHashMap<>();
+        for (WorkerConnection worker : snapshot) {
+            futures.put(worker, queryExecutor.submit(() -> worker.check(checkFragments, maxResults)));
+        }
+
+        List<PlagiarismResult> merged = new ArrayList<>();
+        List<InetSocketAddress> responded = new ArrayList<>();
+        List<InetSocketAddress> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis + CONNECT_TIMEOUT_MILLIS);
+
+        for (Map.Entry<WorkerConnection, Future<List<PlagiarismResult>>> entry : futures.entrySet()) {
+            WorkerConnection worker = entry.getKey();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                merged.addAll(entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+                responded.add(worker.address);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(true);
+                failed.add(worker.address);
+            } catch (ExecutionException | TimeoutException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                logger.warn("Worker {} did not answer: {}", worker.address, cause.getMessage());
+                entry.getValue().cancel(true);
+                worker.disconnect();
+                failed.add(worker.address);
+            }
+        }
+
+        merged.sort(BY_SIMILARITY_DESC);
+        if (maxResults > 0 && merged.size() > maxResults) {
+            merged = new ArrayList<>(merged.subList(0, maxResults));
+        }
+
+        if (!failed.isEmpty()) {
+            logger.warn("Partial result: {} of {} workers failed", failed.size(), snapshot.size());
+        }
+        return new DistributedCheckResult(merged, responded, failed);
+    }
+
+    /**
+     * Возвращает суммарную статистику по доступным рабочим процессам.
+     */
+    public Map<String, Integer> getStatistics() {
+        int files = 0;
+        int fragments = 0;
+        int live = 0;
+        for (WorkerConnection worker : workers) {
+            try {
+                int[] stats = worker.stats();
+                files += stats[0];
+                fragments += stats[1];
+                live++;
+            } catch (IOException e) {
+                logger.warn("Worker {} unavailable for statistics: {}", worker.address, e.getMessage());
+                worker.disconnect();
+            }
+        }
+
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        stats.put("total_files", files);
+        stats.put("total_fragments", fragments);
+        stats.put("workers", workers.size());
+        stats.put("live_workers", live);
+        return stats;
+    }
+
+    /**
+     * Закрывает соединения со всеми рабочими процессами.
+     */
+    @Override
+    public void close() {
+        workers.forEach(WorkerConnection::disconnect);
+        queryExecutor.shutdownNow();
+    }
+
+    private static List<InetSocketAddress> addresses(List<WorkerConnection> connections) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        connections.forEach(connection -> result.add(connection.address));
+        return result;
+    }
+
+    /**
+     * Соединение с одним рабочим процессом.
+     * Запросы по одному соединению выполняются последовательно.
+     */
+    private final class WorkerConnection {
+        private final InetSocketAddress address;
+        /** Изменяется под блокировкой соединения, читается и без нее ({@link #disconnect()}) */
+        private volatile Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        WorkerConnection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        synchronized List<PlagiarismResult> check(List<CodeFragment> fragments, int maxResults) throws IOException {
+            ensureConnected();
+            try {
+                WorkerProtocol.writeCheckRequest(out, fragments, maxResults);
+                return WorkerProtocol.readCheckResponse(in, fragments);
+            } catch (IOException e) {
+                closeQuietly();
+                throw e;
+            }
+        }
+
+        synchronized int[] stats() throws IOException {
+            ensureConnected();
+            try {
+                WorkerProtocol.writeStatsRequest(out);
+                return WorkerProtocol.readStatsResponse(in);
+            } catch (IOException e) {
+                closeQuietly();
+                throw e;
+            }
+        }
+
+        private void ensureConnected() throws IOException {
+            if (socket != null && !socket.isClosed()) {
+                return;
+            }
+            Socket newSocket = new Socket();
+            try {
+                newSocket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                newSocket.setSoTimeout(timeoutMillis);
+                newSocket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(newSocket.getOutputStream()));
+                socket = newSocket;
+                logger.debug("Connected to worker {}", address);
+            } catch (IOException e) {
+                newSocket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Закрывает соединение извне, не дожидаясь завершения текущего запроса.
+         */
+        void disconnect() {
+            Socket current = socket;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    logger.debug("Error closing connection to {}: {}", address, e.getMessage());
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            disconnect();
+            socket = null;
+        }
+    }
+
+    /**
+     * Точка входа координатора: проверяет файл с помощью запущенных рабочих процессов.
+     * <p>
+     * Аргументы: {@code <файл.java> <хост:порт> [<хост:порт> ...]}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: CheckCoordinator <file.java> <host:port> [<host:port> ...]");
+            System.exit(2);
+        }
+
+        try (CheckCoordinator coordinator = new CheckCoordinator()) {
+            for (int i = 1; i < args.length; i++) {
+                coordinator.addWorker(parseAddress(args[i]));
+            }
+
+            String code = FileUtils.readFile(Path.of(args[0]));
+            DistributedCheckResult result = coordinator.check(code, 0);
+
+            for (PlagiarismResult plagiarismResult : result.getResults()) {
+                System.out.printf("%6.2f%%  %3d  %s%n", plagiarismResult.getSimilarityPercentage(),
+                        plagiarismResult.getMatchCount(), plagiarismResult.getFileName());
+            }
+            if (!result.isComplete()) {
+                System.err.println("Warning: workers did not answer: " + result.getFailedWorkers());
+            }
+
+        } catch (IOException e) {
+            System.err.println("Check failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Разбирает адрес рабочего процесса в формате {@code хост:порт}.
+     *
+     * @throws IllegalArgumentException если формат адреса неверный
+     */
+    public static InetSocketAddress parseAddress(String value) {
+        int separator = value.lastIndexOf(':');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Expected host:port, got: " + value);
+        }
+        return new InetSocketAddress(value.substring(0, separator),
+                Integer.parseInt(value.substring(separator + 1)));
+    }
+}
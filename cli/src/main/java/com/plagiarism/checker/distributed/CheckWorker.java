@@ -0,0 +1,228 @@
+package com.plagiarism.checker.distributed;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Рабочий процесс распределенной проверки.
+ * <p>
+ * Хранит свою часть базы данных в {@link PlagiarismDetector} и обслуживает
+ * запросы координатора по локальному TCP соединению, используя
+ * {@link WorkerProtocol}. Каждое соединение обрабатывается в отдельном потоке.
+ */
+public class CheckWorker implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CheckWorker.class);
+
+    /** Детектор с загруженной частью базы данных */
+    private final PlagiarismDetector detector;
+
+    /** Серверный сокет для приема соединений координатора */
+    private final ServerSocket serverSocket;
+
+    /** Пул потоков для обработки соединений */
+    private final ExecutorService connectionExecutor;
+
+    /** Открытые соединения с координаторами */
+    private final Set<Socket> connections;
+
+    /** Флаг работы рабочего процесса */
+    private volatile boolean running;
+
+    /**
+     * Создает рабочий процесс и открывает серверный сокет на локальном интерфейсе.
+     *
+     * @param detector детектор с загруженной частью базы данных
+     * @param port номер порта (0 — выбрать свободный порт)
+     * @throws IOException если не удалось открыть сокет
+     */
+    public CheckWorker(PlagiarismDetector detector, int port) throws IOException {
+        if (detector == null) {
+            throw new IllegalArgumentException("Detector cannot be null");
+        }
+        this.detector = detector;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.connections = ConcurrentHashMap.newKeySet();
+
+        AtomicInteger counter = new AtomicInteger();
+        this.connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "worker-connection-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Возвращает фильтр файлов, относящихся к части базы данных рабочего процесса.
+     * Файлы распределяются по хешу пути.
+     *
+     * @param workerIndex номер рабочего процесса (с нуля)
+     * @param workerCount общее количество рабочих процессов
+     * @return фильтр для {@link PlagiarismDetector#loadDatabase(Path, Predicate)}
+     */
+    public static Predicate<Path> partitionFilter(int workerIndex, int workerCount) {
+        if (workerCount < 1 || workerIndex < 0 || workerIndex >= workerCount) {
+            throw new IllegalArgumentException(
+                    "Invalid worker partition " + workerIndex + " of " + workerCount);
+        }
+        return file -> Math.floorMod(file.toString().hashCode(), workerCount) == workerIndex;
+    }
+
+    /**
+     * Запускает прием соединений в фоновом потоке.
+     */
+    public void start() {
+        running = true;
+        Thread acceptThread = new Thread(this::acceptLoop, "worker-accept-" + getPort());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        logger.info("Check worker listening on port {} ({} files)",
+                getPort(), detector.getDatabaseFileCount());
+    }
+
+    /**
+     * Возвращает номер порта, на котором рабочий процесс принимает соединения.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Принимает соединения, пока рабочий процесс не остановлен.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                if (running) {
+                    logger.error("Worker socket error: {}", e.getMessage());
+                }
+                return;
+            } catch (IOException e) {
+                logger.warn("Failed to accept connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Обслуживает одно соединение координатора до его закрытия.
+     */
+    private void serve(Socket socket) {
+        connections.add(socket);
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            while (running) {
+                byte type;
+                try {
+                    type = WorkerProtocol.readRequestType(in);
+                } catch (EOFException e) {
+                    return; // Координатор закрыл соединение
+                }
+
+                if (type == WorkerProtocol.REQUEST_CHECK) {
+                    int maxResults = in.readInt();
+                    List<CodeFragment> fragments = WorkerProtocol.readFragments(in);
+                    List<PlagiarismResult> results = detector.checkFragments(fragments, maxResults);
+                    WorkerProtocol.writeCheckResponse(out, results, fragments);
+                } else if (type == WorkerProtocol.REQUEST_STATS) {
+                    WorkerProtocol.writeStatsResponse(out,
+                            detector.getDatabaseFileCount(), detector.getTotalFragmentsCount());
+                } else {
+                    WorkerProtocol.writeError(out, "Unknown request type: " + type);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.warn("Connection with coordinator failed: {}", e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Останавливает рабочий процесс и закрывает все соединения.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warn("Error closing worker socket: {}", e.getMessage());
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing connection: {}", e.getMessage());
+            }
+        }
+        connectionExecutor.shutdownNow();
+        logger.info("Check worker on port {} stopped", getPort());
+    }
+
+    /**
+     * Точка входа рабочего процесса.
+     * <p>
+     * Аргументы: {@code <директория базы> <номер рабочего процесса> <количество процессов> [порт]}.
+     * После загрузки базы выводит строку {@code WORKER READY <порт>}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: CheckWorker <databaseDir> <workerIndex> <workerCount> [port]");
+            System.exit(2);
+        }
+
+        try {
+            Path databasePath = Path.of(args[0]);
+            int workerIndex = Integer.parseInt(args[1]);
+            int workerCount = Integer.parseInt(args[2]);
+            int port = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+            PlagiarismDetector detector = new PlagiarismDetector();
+            detector.loadDatabase(databasePath, partitionFilter(workerIndex, workerCount));
+
+            CheckWorker worker = new CheckWorker(detector, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(worker::close));
+            worker.start();
+
+            System.out.println("WORKER READY " + worker.getPort());
+            System.out.flush();
+
+            // Рабочий процесс работает до завершения JVM
+            new CountDownLatch(1).await();
+
+        } catch (Exception e) {
+            logger.error("Worker failed to start: {}", e.getMessage(), e);
+            System.err.println("Worker failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
+
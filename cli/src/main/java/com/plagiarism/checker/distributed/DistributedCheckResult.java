@@ -0,0 +1,69 @@
+package com.plagiarism.checker.distributed;
+
+import com.plagiarism.checker.model.PlagiarismResult;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Результат распределенной проверки.
+ * Помимо объединенных результатов содержит сведения о том, какие рабочие
+ * процессы ответили, а какие были недоступны во время запроса.
+ */
+public class DistributedCheckResult {
+
+    /** Объединенные результаты, отсортированные по убыванию схожести */
+    private final List<PlagiarismResult> results;
+
+    /** Рабочие процессы, успешно ответившие на запрос */
+    private final List<InetSocketAddress> respondedWorkers;
+
+    /** Рабочие процессы, не ответившие на запрос */
+    private final List<InetSocketAddress> failedWorkers;
+
+    /**
+     * Создает результат распределенной проверки.
+     */
+    public DistributedCheckResult(List<PlagiarismResult> results,
+                                  List<InetSocketAddress> respondedWorkers,
+                                  List<InetSocketAddress> failedWorkers) {
+        this.results = Collections.unmodifiableList(results);
+        this.respondedWorkers = Collections.unmodifiableList(respondedWorkers);
+        this.failedWorkers = Collections.unmodifiableList(failedWorkers);
+    }
+
+    /**
+     * Возвращает объединенные результаты проверки.
+     */
+    public List<PlagiarismResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Возвращает рабочие процессы, успешно ответившие на запрос.
+     */
+    public List<InetSocketAddress> getRespondedWorkers() {
+        return respondedWorkers;
+    }
+
+    /**
+     * Возвращает рабочие процессы, не ответившие на запрос.
+     */
+    public List<InetSocketAddress> getFailedWorkers() {
+        return failedWorkers;
+    }
+
+    /**
+     * Проверяет, охватывает ли результат всю базу данных (ответили все рабочие процессы).
+     */
+    public boolean isComplete() {
+        return failedWorkers.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DistributedCheckResult[results=%d, responded=%d, failed=%d]",
+                results.size(), respondedWorkers.size(), failedWorkers.size());
+    }
+}
@@ -0,0 +1,277 @@
+package com.plagiarism.checker.distributed;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Компактный двоичный протокол обмена между координатором и рабочими процессами.
+ * <p>
+ * Каждое сообщение начинается с сигнатуры и типа. Запрос проверки передает
+ * фрагменты проверяемого кода, ответ — результаты, в которых совпавшие
+ * фрагменты указываются номерами из запроса, а не повторным текстом.
+ * <pre>
+ * запрос:  MAGIC, тип, [CHECK: maxResults, n, n × (нормализованный текст, оригинал, строка, вид)]
+ * ответ:   MAGIC, статус, [CHECK: m, m × (файл, процент, k, k × номер фрагмента)]
+ *                         [STATS: файлы, фрагменты] [ERROR: сообщение]
+ * </pre>
+ */
+final class WorkerProtocol {
+
+    /** Сигнатура сообщения ("PCWK") */
+    static final int MAGIC = 0x5043574B;
+
+    /** Запрос проверки фрагментов */
+    static final byte REQUEST_CHECK = 1;
+
+    /** Запрос статистики базы данных рабочего процесса */
+    static final byte REQUEST_STATS = 2;
+
+    /** Успешный ответ */
+    static final byte STATUS_OK = 0;
+
+    /** Ответ с ошибкой */
+    static final byte STATUS_ERROR = 1;
+
+    /** Максимальное количество элементов в одном сообщении (защита от поврежденных данных) */
+    private static final int MAX_ITEMS = 10_000_000;
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * Записывает запрос проверки фрагментов.
+     */
+    static void writeCheckRequest(DataOutputStream out, List<CodeFragment> fragments, int maxResults)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(REQUEST_CHECK);
+        out.writeInt(maxResults);
+        out.writeInt(fragments.size());
+        for (CodeFragment fragment : fragments) {
+            writeString(out, fragment.getNormalizedContent());
+            writeString(out, fragment.getOriginalContent());
+            out.writeInt(fragment.getLineNumber());
+            out.writeByte(fragment.getKind().ordinal());
+        }
+        out.flush();
+    }
+
+    /**
+     * Записывает запрос статистики.
+     */
+    static void writeStatsRequest(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(REQUEST_STATS);
+        out.flush();
+    }
+
+    /**
+     * Читает заголовок запроса и возвращает его тип.
+     *
+     * @throws IOException если сигнатура не совпадает
+     */
+    static byte readRequestType(DataInputStream in) throws IOException {
+        readMagic(in);
+        return in.readByte();
+    }
+
+    /**
+     * Читает фрагменты из тела запроса проверки.
+     */
+    static List<CodeFragment> readFragments(DataInputStream in) throws IOException {
+        int count = readCount(in);
+        List<CodeFragment> fragments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String normalized = readString(in);
+            String original = readString(in);
+            int lineNumber = in.readInt();
+            fragments.add(new CodeFragment(normalized, original, lineNumber, readKind(in)));
+        }
+        return fragments;
+    }
+
+    /**
+     * Читает вид фрагмента, записанный порядковым номером.
+     *
+     * @throws IOException если номер вида неизвестен
+     */
+    private static CodeFragment.Kind readKind(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        CodeFragment.Kind[] kinds = CodeFragment.Kind.values();
+        if (ordinal >= kinds.length) {
+            throw new IOException("Unknown fragment kind: " + ordinal);
+        }
+        return kinds[ordinal];
+    }
+
+    /**
+     * Записывает успешный ответ на запрос проверки.
+     *
+     * @param fragments фрагменты из запроса, по которым определяются номера совпадений
+     * @throws IOException если совпавшего фрагмента нет среди фрагментов запроса
+     *                     (ответ в этом случае не записывается)
+     */
+    static void writeCheckResponse(DataOutputStream out, List<PlagiarismResult> results,
+                                   List<CodeFragment> fragments) throws IOException {
+        Map<CodeFragment, Integer> identityIndex = new IdentityHashMap<>();
+        Map<CodeFragment, Integer> equalityIndex = new HashMap<>();
+        for (int i = 0; i < fragments.size(); i++) {
+            identityIndex.put(fragments.get(i), i);
+            equalityIndex.putIfAbsent(fragments.get(i), i);
+        }
+
+        // Номера совпадений определяются до записи, чтобы не отправить неполный ответ
+        int[][] matchedIndexes = new int[results.size()][];
+        for (int r = 0; r < results.size(); r++) {
+            Set<CodeFragment> matched = results.get(r).getMatchingFragments().keySet();
+            int[] indexes = new int[matched.size()];
+            int k = 0;
+            for (CodeFragment fragment : matched) {
+                Integer index = identityIndex.get(fragment);
+                if (index == null) {
+                    index = equalityIndex.get(fragment);
+                }
+                if (index == null) {
+                    throw new IOException("Matched fragment is not in the request: "
+                            + fragment.getKind() + " at line " + fragment.getLineNumber());
+                }
+                indexes[k++] = index;
+            }
+            matchedIndexes[r] = indexes;
+        }
+
+        out.writeInt(MAGIC);
+        out.writeByte(STATUS_OK);
+        out.writeInt(results.size());
+        for (int r = 0; r < results.size(); r++) {
+            PlagiarismResult result = results.get(r);
+            writeString(out, result.getFileName());
+            out.writeDouble(result.getSimilarityPercentage());
+
+            out.writeInt(matchedIndexes[r].length);
+            for (int index : matchedIndexes[r]) {
+                out.writeInt(index);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Читает ответ на запрос проверки.
+     *
+     * @param fragments фрагменты, отправленные в запросе
+     * @throws IOException если рабочий процесс вернул ошибку или данные повреждены
+     */
+    static List<PlagiarismResult> readCheckResponse(DataInputStream in, List<CodeFragment> fragments)
+            throws IOException {
+        readStatus(in);
+
+        int resultCount = readCount(in);
+        List<PlagiarismResult> results = new ArrayList<>(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            String fileName = readString(in);
+            double similarity = in.readDouble();
+
+            int matchedCount = readCount(in);
+            Map<CodeFragment, List<String>> matched = new HashMap<>();
+            for (int j = 0; j < matchedCount; j++) {
+                int index = in.readInt();
+                if (index < 0 || index >= fragments.size()) {
+                    throw new IOException("Fragment index out of range: " + index);
+                }
+                matched.put(fragments.get(index), Collections.singletonList(fileName));
+            }
+            results.add(new PlagiarismResult(fileName, similarity, matched));
+        }
+        return results;
+    }
+
+    /**
+     * Записывает ответ на запрос статистики.
+     */
+    static void writeStatsResponse(DataOutputStream out, int fileCount, int fragmentCount) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(STATUS_OK);
+        out.writeInt(fileCount);
+        out.writeInt(fragmentCount);
+        out.flush();
+    }
+
+    /**
+     * Читает ответ на запрос статистики: [файлы, фрагменты].
+     */
+    static int[] readStatsResponse(DataInputStream in) throws IOException {
+        readStatus(in);
+        return new int[]{in.readInt(), in.readInt()};
+    }
+
+    /**
+     * Записывает ответ с ошибкой.
+     */
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(STATUS_ERROR);
+        writeString(out, message != null ? message : "Unknown error");
+        out.flush();
+    }
+
+    /**
+     * Читает заголовок ответа и бросает исключение, если рабочий процесс вернул ошибку.
+     */
+    private static void readStatus(DataInputStream in) throws IOException {
+        readMagic(in);
+        byte status = in.readByte();
+        if (status == STATUS_ERROR) {
+            throw new IOException("Worker error: " + readString(in));
+        }
+        if (status != STATUS_OK) {
+            throw new IOException("Unknown response status: " + status);
+        }
+    }
+
+    /**
+     * Проверяет сигнатуру сообщения.
+     */
+    private static void readMagic(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Invalid protocol signature: " + Integer.toHexString(magic));
+        }
+    }
+
+    /**
+     * Читает количество элементов с проверкой допустимого диапазона.
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ITEMS) {
+            throw new IOException("Corrupted element count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Записывает строку в UTF-8 с префиксом длины.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Читает строку, записанную методом {@link #writeString}.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readCount(in);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
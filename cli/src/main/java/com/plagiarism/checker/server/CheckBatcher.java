@@ -0,0 +1,202 @@
+package com.plagiarism.checker.server;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Группирует близко пришедшие запросы проверки в пакеты.
+ * <p>
+ * Первый запрос открывает окно ожидания; все запросы, пришедшие в течение
+ * окна (но не больше максимального размера пакета), проверяются одним проходом
+ * по базе данных через {@link PlagiarismDetector#checkFragmentsBatch(List, int)}.
+ */
+class CheckBatcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CheckBatcher.class);
+
+    /** Детектор с загруженной базой данных */
+    private final PlagiarismDetector detector;
+
+    /** Окно сбора пакета в миллисекундах */
+    private final long windowMillis;
+
+    /** Максимальный размер пакета */
+    private final int maxBatchSize;
+
+    /** Очередь ожидающих запросов */
+    private final BlockingQueue<PendingCheck> queue;
+
+    /** Поток, формирующий и выполняющий пакеты */
+    private final Thread dispatcher;
+
+    /** Количество выполненных пакетов */
+    private final AtomicLong batchCount;
+
+    /** Количество проверенных работ */
+    private final AtomicLong submissionCount;
+
+    /** Флаг работы */
+    private volatile boolean running;
+
+    /**
+     * Создает и запускает пакетный обработчик.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param windowMillis окно сбора пакета в миллисекундах
+     * @param maxBatchSize максимальное количество работ в пакете
+     */
+    CheckBatcher(PlagiarismDetector detector, long windowMillis, int maxBatchSize) {
+        this.detector = detector;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new LinkedBlockingQueue<>();
+        this.batchCount = new AtomicLong();
+        this.submissionCount = new AtomicLong();
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatchLoop, "check-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Ставит работу в очередь на проверку.
+     *
+     * @param fragments фрагменты проверяемого кода
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return будущий результат проверки
+     */
+    CompletableFuture<List<PlagiarismResult>> submit(List<CodeFragment> fragments, int maxResults) {
+        PendingCheck pending = new PendingCheck(fragments, maxResults);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("Batcher is stopped"));
+            return pending.future;
+        }
+        queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * Возвращает количество выполненных пакетов.
+     */
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Возвращает количество проверенных работ.
+     */
+    long getSubmissionCount() {
+        return submissionCount.get();
+    }
+
+    /**
+     * Собирает пакеты из очереди и выполняет их.
+     */
+    private void dispatchLoop() {
+        while (running) {
+            List<PendingCheck> batch = new ArrayList<>();
+            try {
+                PendingCheck first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingCheck next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                runBatch(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.future.cancel(false));
+                return;
+            } catch (Exception e) {
+                logger.error("Batch check failed: {}", e.getMessage(), e);
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Выполняет один пакет и раздает результаты ожидающим запросам.
+     */
+    private void runBatch(List<PendingCheck> batch) {
+        // Общий лимит пакета: без ограничения, если его нет хотя бы у одного запроса
+        int limit = 0;
+        boolean unlimited = false;
+        List<List<CodeFragment>> submissions = new ArrayList<>(batch.size());
+        for (PendingCheck pending : batch) {
+            submissions.add(pending.fragments);
+            unlimited |= pending.maxResults <= 0;
+            limit = Math.max(limit, pending.maxResults);
+        }
+
+        long start = System.nanoTime();
+        List<List<PlagiarismResult>> results = detector.checkFragmentsBatch(submissions, unlimited ? 0 : limit);
+        logger.debug("Batch of {} submissions checked in {} ms",
+                batch.size(), (System.nanoTime() - start) / 1_000_000);
+
+        batchCount.incrementAndGet();
+        submissionCount.addAndGet(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingCheck pending = batch.get(i);
+            List<PlagiarismResult> submissionResults = results.get(i);
+            if (pending.maxResults > 0 && submissionResults.size() > pending.maxResults) {
+                submissionResults = submissionResults.subList(0, pending.maxResults);
+            }
+            pending.future.complete(submissionResults);
+        }
+    }
+
+    /**
+     * Останавливает обработчик; ожидающие запросы отменяются.
+     */
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        PendingCheck pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.cancel(false);
+        }
+    }
+
+    /**
+     * Запрос, ожидающий включения в пакет.
+     */
+    private static final class PendingCheck {
+        private final List<CodeFragment> fragments;
+        private final int maxResults;
+        private final CompletableFuture<List<PlagiarismResult>> future;
+
+        PendingCheck(List<CodeFragment> fragments, int maxResults) {
+            this.fragments = fragments;
+            this.maxResults = maxResults;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
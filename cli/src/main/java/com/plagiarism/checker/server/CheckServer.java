@@ -0,0 +1,540 @@
+package com.plagiarism.checker.server;
+
+import com.plagiarism.checker.core.FragmentExtractor;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.core.SimilarityCalculator;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Встроенный HTTP сервис проверки на плагиат.
+ * <p>
+ * Держит загруженный {@link PlagiarismDetector} и предоставляет эндпоинты:
+ * <ul>
+ *   <li>{@code POST /api/check[?limit=N]} — проверка кода из тела запроса (text/plain)</li>
+ *   <li>{@code POST /api/check/batch[?limit=N]} — проверка массива
+ *       {@code [{"id": "...", "code": "..."}]}</li>
+ *   <li>{@code GET /api/stats} — статистика базы данных, сервиса и калькулятора схожести</li>
+ * </ul>
+ * Близко пришедшие запросы проверяются одним пакетом ({@link CheckBatcher}).
+ * Количество одновременно обрабатываемых работ ограничено; при превышении
+ * сервис отвечает 429. Результаты сериализуются в JSON потоково.
+ */
+public class CheckServer implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CheckServer.class);
+
+    /** Ограничение одновременно обрабатываемых работ по умолчанию */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    /** Окно сбора пакета по умолчанию (мс) */
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 5;
+
+    /** Максимальный размер пакета по умолчанию */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 32;
+
+    /** Максимальный размер тела запроса (10 МБ, как у FileUtils.readFile) */
+    private static final int MAX_BODY_SIZE = 10 * 1024 * 1024;
+
+    /** Таймаут ожидания результата проверки (с) */
+    private static final long CHECK_TIMEOUT_SECONDS = 120;
+
+    /** Детектор с загруженной базой данных */
+    private final PlagiarismDetector detector;
+
+    /** Экстрактор фрагментов (потокобезопасен, используется потоками HTTP) */
+    private final FragmentExtractor fragmentExtractor;
+
+    /** Пакетный обработчик проверок */
+    private final CheckBatcher batcher;
+
+    /** Семафор ограничения количества одновременно обрабатываемых работ */
+    private final Semaphore inFlight;
+
+    /** Ограничение количества одновременно обрабатываемых работ */
+    private final int maxInFlight;
+
+    /** HTTP сервер */
+    private final HttpServer httpServer;
+
+    /** Пул потоков HTTP сервера */
+    private final ExecutorService httpExecutor;
+
+    /** Количество отклоненных запросов (429) */
+    private final AtomicInteger rejectedCount;
+
+    /**
+     * Создает сервис проверки с параметрами пакетирования по умолчанию.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param port номер порта (0 — выбрать свободный порт)
+     * @param maxInFlight ограничение одновременно обрабатываемых работ
+     * @throws IOException если не удалось открыть порт
+     */
+    public CheckServer(PlagiarismDetector detector, int port, int maxInFlight) throws IOException {
+        this(detector, port, maxInFlight, DEFAULT_BATCH_WINDOW_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Создает сервис проверки.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param port номер порта (0 — выбрать свободный порт)
+     * @param maxInFlight ограничение одновременно обрабатываемых работ
+     * @param batchWindowMillis окно сбора пакета в миллисекундах
+     * @param maxBatchSize максимальное количество работ в пакете
+     * @throws IOException если не удалось открыть порт
+     */
+    public CheckServer(PlagiarismDetector detector, int port, int maxInFlight,
+                       long batchWindowMillis, int maxBatchSize) throws IOException {
+        if (detector == null) {
+            throw new IllegalArgumentException("Detector cannot be null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("In-flight limit must be positive: " + maxInFlight);
+        }
+
+        this.detector = detector;
+        this.fragmentExtractor = detector.getFragmentExtractor();
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.rejectedCount = new AtomicInteger();
+        this.batcher = new CheckBatcher(detector, batchWindowMillis, maxBatchSize);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2), runnable -> {
+                    Thread thread = new Thread(runnable, "http-check-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        this.httpServer.setExecutor(httpExecutor);
+        this.httpServer.createContext("/api/check/batch", exchange -> handle(exchange, this::handleBatch));
+        this.httpServer.createContext("/api/check", exchange -> handle(exchange, this::handleCheck));
+        this.httpServer.createContext("/api/stats", exchange -> handle(exchange, this::handleStats));
+    }
+
+    /**
+     * Запускает прием HTTP запросов.
+     */
+    public void start() {
+        httpServer.start();
+        logger.info("Check server listening on port {} (in-flight limit {})", getPort(), maxInFlight);
+    }
+
+    /**
+     * Возвращает номер порта сервиса.
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Останавливает сервис.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(1);
+        batcher.close();
+        httpExecutor.shutdownNow();
+        logger.info("Check server stopped");
+    }
+
+    /**
+     * Обработчик запроса, который может бросать IOException.
+     */
+    @FunctionalInterface
+    private interface ExchangeHandler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Общая обертка обработчиков: логирование ошибок и закрытие обмена.
+     */
+    private void handle(HttpExchange exchange, ExchangeHandler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (BadRequestException e) {
+            sendError(exchange, e.getStatus(), e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error handling {} {}: {}", exchange.getRequestMethod(),
+                    exchange.getRequestURI(), e.getMessage(), e);
+            sendError(exchange, 500, "Internal server error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * POST /api/check — проверка одного фрагмента кода.
+     */
+    private void handleCheck(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        int limit = parseLimit(exchange.getRequestURI());
+
+        if (!inFlight.tryAcquire()) {
+            reject(exchange);
+            return;
+        }
+        try {
+            String code = readBody(exchange);
+            List<PlagiarismResult> results = check(List.of(code), limit).get(0);
+
+            JsonStreamWriter json = beginJsonResponse(exchange, 200);
+            json.beginObject().name("results");
+            writeResults(json, results);
+            json.endObject();
+            json.flush();
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * POST /api/check/batch — проверка нескольких работ одним пакетом.
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        int limit = parseLimit(exchange.getRequestURI());
+
+        // Пакет допускается одним разрешением до чтения тела, остальные
+        // разрешения берутся, когда известно количество работ
+        if (!inFlight.tryAcquire()) {
+            reject(exchange);
+            return;
+        }
+        int permits = 1;
+        try {
+            List<String> ids = new ArrayList<>();
+            List<String> codes = new ArrayList<>();
+            parseBatch(readBody(exchange), ids, codes);
+
+            if (codes.size() > maxInFlight) {
+                sendError(exchange, 413, "Batch too large: " + codes.size() + " submissions, limit " + maxInFlight);
+                return;
+            }
+            if (codes.size() > permits) {
+                if (!inFlight.tryAcquire(codes.size() - permits)) {
+                    reject(exchange);
+                    return;
+                }
+                permits = codes.size();
+            }
+
+            List<List<PlagiarismResult>> results = check(codes, limit);
+
+            JsonStreamWriter json = beginJsonResponse(exchange, 200);
+            json.beginObject().name("submissions").beginArray();
+            for (int i = 0; i < codes.size(); i++) {
+                json.beginObject();
+                json.name("id").value(ids.get(i));
+                json.name("results");
+                writeResults(json, results.get(i));
+                json.endObject();
+            }
+            json.endArray().endObject();
+            json.flush();
+        } finally {
+            inFlight.release(permits);
+        }
+    }
+
+    /**
+     * GET /api/stats — статистика базы данных, сервиса и калькулятора схожести.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+
+        JsonStreamWriter json = beginJsonResponse(exchange, 200);
+        json.beginObject();
+        json.name("database").beginObject();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(detector.getDatabaseStats()).entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
+        json.name("server").beginObject();
+        json.name("max_in_flight").value(maxInFlight);
+        json.name("in_flight").value(maxInFlight - inFlight.availablePermits());
+        json.name("rejected").value(rejectedCount.get());
+        json.name("batches").value(batcher.getBatchCount());
+        json.name("batched_submissions").value(batcher.getSubmissionCount());
+        json.endObject();
+        SimilarityCalculator calculator = detector.getSimilarityCalculator();
+        json.name("similarity").beginObject();
+        json.name("verdict_cache_hits").value(calculator.getVerdictCacheHits());
+        json.name("verdict_cache_misses").value(calculator.getVerdictCacheMisses());
+        json.name("verdict_cache_hit_rate").value(calculator.getVerdictCacheHitRate());
+        json.name("exact_duplicate_hits").value(calculator.getExactDuplicateHits());
+        json.name("early_rejected_files").value(calculator.getEarlyRejectedFiles());
+        json.name("prefilter_skipped_files").value(calculator.getPrefilterSkippedFiles());
+        json.name("skipped_stop_fragments").value(calculator.getSkippedStopFragments());
+        json.name("rule_reorders").value(calculator.getRuleReorderCount());
+        json.name("rules").beginArray();
+        for (Map<String, Object> rule : calculator.getRuleStatistics()) {
+            json.beginObject();
+            json.name("rule").value((String) rule.get("rule"));
+            json.name("samples").value((long) rule.get("samples"));
+            json.name("hits").value((long) rule.get("hits"));
+            json.name("hit_rate").value((double) rule.get("hit_rate"));
+            json.name("avg_nanos").value((double) rule.get("avg_nanos"));
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Извлекает фрагменты и проверяет работы через пакетный обработчик.
+     */
+    private List<List<PlagiarismResult>> check(List<String> codes, int limit) throws IOException {
+        List<CompletableFuture<List<PlagiarismResult>>> futures = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            List<CodeFragment> fragments = code == null || code.isBlank()
+                    ? Collections.emptyList()
+                    : fragmentExtractor.extractFragments(code);
+            futures.add(fragments.isEmpty()
+                    ? CompletableFuture.completedFuture(Collections.emptyList())
+                    : batcher.submit(fragments, limit));
+        }
+
+        List<List<PlagiarismResult>> results = new ArrayList<>(codes.size());
+        try {
+            for (CompletableFuture<List<PlagiarismResult>> future : futures) {
+                results.add(future.get(CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Check interrupted", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Check failed: " + e.getMessage(), e);
+        }
+        return results;
+    }
+
+    /**
+     * Записывает массив результатов проверки.
+     */
+    private void writeResults(JsonStreamWriter json, List<PlagiarismResult> results) throws IOException {
+        json.beginArray();
+        for (PlagiarismResult result : results) {
+            json.beginObject();
+            json.name("file").value(result.getFileName());
+            json.name("similarity").value(result.getSimilarityPercentage());
+            json.name("severity").value(result.getSeverity().name());
+            json.name("matches").value(result.getMatchCount());
+            json.name("fragments").beginArray();
+            for (CodeFragment fragment : result.getMatchingFragments().keySet()) {
+                json.beginObject();
+                json.name("line").value(fragment.getLineNumber());
+                json.name("content").value(fragment.getOriginalContent());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * Разбирает тело пакетного запроса: массив объектов {@code {"id", "code"}} или строк.
+     */
+    private void parseBatch(String body, List<String> ids, List<String> codes) throws IOException {
+        Object parsed;
+        try {
+            parsed = JsonParser.parse(body);
+        } catch (IOException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        if (parsed instanceof Map<?, ?> wrapper && wrapper.get("submissions") instanceof List<?>) {
+            parsed = wrapper.get("submissions");
+        }
+        if (!(parsed instanceof List<?> items)) {
+            throw new BadRequestException("Expected a JSON array of submissions");
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            if (item instanceof String code) {
+                ids.add(String.valueOf(i));
+                codes.add(code);
+            } else if (item instanceof Map<?, ?> submission && submission.get("code") instanceof String code) {
+                Object id = submission.get("id");
+                ids.add(id != null ? String.valueOf(id) : String.valueOf(i));
+                codes.add(code);
+            } else {
+                throw new BadRequestException("Submission " + i + " has no 'code' field");
+            }
+        }
+    }
+
+    /**
+     * Начинает потоковый JSON ответ (chunked transfer encoding).
+     */
+    private JsonStreamWriter beginJsonResponse(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192);
+        return new JsonStreamWriter(writer);
+    }
+
+    /**
+     * Отвечает 429 при превышении ограничения одновременных запросов.
+     */
+    private void reject(HttpExchange exchange) {
+        rejectedCount.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 429, "Too many requests in flight");
+    }
+
+    /**
+     * Отправляет JSON с описанием ошибки.
+     */
+    private void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            byte[] body = ("{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            logger.debug("Failed to send error response: {}", e.getMessage());
+        }
+    }
+
+    private boolean requireMethod(HttpExchange exchange, String method) {
+        if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            sendError(exchange, 405, "Method not allowed");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Читает тело запроса с ограничением размера. Слишком большое тело (413)
+     * по заголовку Content-Length отклоняется без чтения.
+     */
+    private String readBody(HttpExchange exchange) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > MAX_BODY_SIZE) {
+                    throw bodyTooLarge();
+                }
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid Content-Length: " + contentLength);
+            }
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                throw bodyTooLarge();
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static BadRequestException bodyTooLarge() {
+        return new BadRequestException(413, "Request body too large (maximum " + MAX_BODY_SIZE + " bytes)");
+    }
+
+    /**
+     * Разбирает параметр {@code limit} строки запроса.
+     */
+    private int parseLimit(URI uri) throws IOException {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("limit=")) {
+                try {
+                    return Math.max(0, Integer.parseInt(parameter.substring("limit=".length())));
+                } catch (NumberFormatException e) {
+                    throw new BadRequestException("Invalid limit: " + parameter);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Ошибка в запросе клиента (по умолчанию ответ 400).
+     */
+    private static final class BadRequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        BadRequestException(String message) {
+            this(400, message);
+        }
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Точка входа сервиса.
+     * <p>
+     * Аргументы: {@code <директория базы> [порт] [ограничение одновременных работ]}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: CheckServer <databaseDir> [port] [maxInFlight]");
+            System.exit(2);
+        }
+
+        try {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_IN_FLIGHT;
+
+            PlagiarismDetector detector = new PlagiarismDetector();
+            detector.loadDatabase(Path.of(args[0]));
+
+            CheckServer server = new CheckServer(detector, port, maxInFlight);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Check server listening on port " + server.getPort());
+
+            // Сервис работает до завершения JVM
+            new CountDownLatch(1).await();
+
+        } catch (Exception e) {
+            logger.error("Server failed to start: {}", e.getMessage(), e);
+            System.err.println("Server failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
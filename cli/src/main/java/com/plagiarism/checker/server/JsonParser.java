@@ -0,0 +1,216 @@
+package com.plagiarism.checker.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальный разборщик JSON для тел запросов сервиса проверки.
+ * <p>
+ * Возвращает {@link Map} для объектов, {@link List} для массивов,
+ * {@link String}, {@link Double}, {@link Boolean} или null.
+ */
+final class JsonParser {
+
+    /** Максимальная глубина вложенности (защита от переполнения стека) */
+    private static final int MAX_DEPTH = 64;
+
+    /** Разбираемый текст */
+    private final String text;
+
+    /** Текущая позиция */
+    private int position;
+
+    private JsonParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Разбирает JSON документ.
+     *
+     * @param text текст документа
+     * @return разобранное значение
+     * @throws IOException если документ синтаксически неверен
+     */
+    static Object parse(String text) throws IOException {
+        if (text == null) {
+            throw new IOException("Empty JSON document");
+        }
+        JsonParser parser = new JsonParser(text);
+        Object value = parser.readValue(0);
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    private Object readValue(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw error("Nesting too deep");
+        }
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of document");
+        }
+
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return readObject(depth);
+            case '[':
+                return readArray(depth);
+            case '"':
+                return readString();
+            case 't':
+                expectLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                expectLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                expectLiteral("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject(int depth) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++; // '{'
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected field name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue(depth + 1));
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return object;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray(int depth) throws IOException {
+        List<Object> array = new ArrayList<>();
+        position++; // '['
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue(depth + 1));
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        position++; // '"'
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                }
+                default -> throw error("Invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private Double readNumber() throws IOException {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return Double.parseDouble(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        if (!text.startsWith(literal, position)) {
+            throw error("Expected '" + literal + "'");
+        }
+        position += literal.length();
+    }
+
+    private void expect(char expected) throws IOException {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private char peek() throws IOException {
+        if (position >= text.length()) {
+            throw error("Unexpected end of document");
+        }
+        return text.charAt(position);
+    }
+
+    private char next() throws IOException {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Invalid JSON at position " + position + ": " + message);
+    }
+}
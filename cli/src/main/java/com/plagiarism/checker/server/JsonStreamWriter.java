@@ -0,0 +1,155 @@
+package com.plagiarism.checker.server;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Потоковый генератор JSON.
+ * <p>
+ * Пишет значения сразу в {@link Writer}, не собирая документ в памяти,
+ * поэтому большой ответ уходит клиенту по мере формирования.
+ * Расстановку запятых генератор берет на себя.
+ */
+class JsonStreamWriter implements Flushable {
+
+    /** Поток, в который пишется JSON */
+    private final Writer writer;
+
+    /** Стек признаков "в текущем контейнере уже есть элемент" */
+    private final Deque<Boolean> hasElements;
+
+    /** Признак того, что только что было записано имя поля */
+    private boolean afterName;
+
+    /**
+     * Создает генератор поверх указанного потока.
+     */
+    JsonStreamWriter(Writer writer) {
+        this.writer = writer;
+        this.hasElements = new ArrayDeque<>();
+    }
+
+    JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        hasElements.push(false);
+        return this;
+    }
+
+    JsonStreamWriter endObject() throws IOException {
+        hasElements.pop();
+        writer.write('}');
+        return this;
+    }
+
+    JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        hasElements.push(false);
+        return this;
+    }
+
+    JsonStreamWriter endArray() throws IOException {
+        hasElements.pop();
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Записывает имя поля объекта.
+     */
+    JsonStreamWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    JsonStreamWriter value(double value) throws IOException {
+        beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writer.write("null");
+        } else {
+            writer.write(String.format(Locale.ROOT, "%.2f", value));
+        }
+        return this;
+    }
+
+    JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Ставит запятую перед значением, если оно не первое в контейнере.
+     */
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        separate();
+    }
+
+    private void separate() throws IOException {
+        if (hasElements.isEmpty()) {
+            return;
+        }
+        if (hasElements.pop()) {
+            writer.write(',');
+        }
+        hasElements.push(true);
+    }
+
+    /**
+     * Записывает строку в кавычках с экранированием специальных символов.
+     */
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
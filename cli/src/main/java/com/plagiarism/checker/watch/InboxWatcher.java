@@ -0,0 +1,360 @@
+package com.plagiarism.checker.watch;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Наблюдатель входящей директории: автоматически проверяет новые работы.
+ * <p>
+ * Следит за директорией через {@link WatchService}. Новый или измененный
+ * {@code .java} файл считается готовым, когда по нему не было событий в течение
+ * интервала устранения дребезга (файл дописан). Все готовые к этому моменту файлы
+ * проверяются одним пакетным проходом по базе данных
+ * ({@link PlagiarismDetector#checkFragmentsBatch(List, int)}) и друг с другом,
+ * после чего добавляются в базу данных, чтобы следующие работы сравнивались и с ними.
+ * Сравнение внутри пакета нужно потому, что списанные работы часто приходят
+ * одновременно и попадают в один пакет.
+ * <p>
+ * Результат каждой работы записывается в исходящую директорию в файл
+ * {@code <имя работы>.result.txt} строками {@code <процент>\t<файл базы данных>}.
+ * Файл результата сначала пишется во временный файл и затем переименовывается,
+ * поэтому читатели исходящей директории не видят его недописанным.
+ */
+public class InboxWatcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(InboxWatcher.class);
+
+    /** Интервал устранения дребезга по умолчанию (мс) */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    /** Максимальное количество работ в одном пакетном проходе */
+    public static final int MAX_BATCH_SIZE = 64;
+
+    /** Суффикс файлов результатов */
+    static final String RESULT_SUFFIX = ".result.txt";
+
+    /** Детектор с загруженной базой данных */
+    private final PlagiarismDetector detector;
+
+    /** Входящая директория */
+    private final Path inbox;
+
+    /** Исходящая директория */
+    private final Path outbox;
+
+    /** Интервал устранения дребезга (мс) */
+    private final long debounceMillis;
+
+    /** Максимальное количество результатов на работу (0 — без ограничения) */
+    private final int maxResults;
+
+    /** Служба наблюдения за входящей директорией */
+    private final WatchService watchService;
+
+    /** Ожидающие файлы → время последнего события (мс) */
+    private final Map<Path, Long> pending;
+
+    /** Количество обработанных работ */
+    private final AtomicLong processedCount;
+
+    /** Поток наблюдения */
+    private Thread watchThread;
+
+    /** Флаг работы наблюдателя */
+    private volatile boolean running;
+
+    /**
+     * Создает наблюдатель и регистрирует входящую директорию.
+     *
+     * @param detector детектор с загруженной базой данных
+     * @param inbox входящая директория
+     * @param outbox исходящая директория (создается при необходимости)
+     * @param debounceMillis интервал устранения дребезга в миллисекундах
+     * @param maxResults максимальное количество результатов на работу (0 — без ограничения)
+     * @throws IOException если директории недоступны
+     */
+    public InboxWatcher(PlagiarismDetector detector, Path inbox, Path outbox,
+                        long debounceMillis, int maxResults) throws IOException {
+        if (detector == null) {
+            throw new IllegalArgumentException("Detector cannot be null");
+        }
+        if (debounceMillis < 0 || maxResults < 0) {
+            throw new IllegalArgumentException("Debounce interval and result limit cannot be negative");
+        }
+        if (!Files.isDirectory(inbox)) {
+            throw new NotDirectoryException("Inbox is not a directory: " + inbox);
+        }
+
+        this.detector = detector;
+        this.inbox = inbox.toAbsolutePath();
+        this.outbox = outbox.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.maxResults = maxResults;
+        this.pending = new HashMap<>();
+        this.processedCount = new AtomicLong();
+
+        FileUtils.createDirectoryIfNotExists(this.outbox);
+        this.watchService = this.inbox.getFileSystem().newWatchService();
+        this.inbox.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    }
+
+    /**
+     * Запускает наблюдение в фоновом потоке. Файлы, уже лежащие во входящей
+     * директории, обрабатываются как только что поступившие.
+     */
+    public void start() throws IOException {
+        running = true;
+        scanInbox(System.currentTimeMillis());
+        watchThread = new Thread(this::watchLoop, "inbox-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Watching {} (results to {}, debounce {} ms)", inbox, outbox, debounceMillis);
+    }
+
+    /**
+     * Возвращает количество обработанных работ.
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Цикл наблюдения: собирает события и обрабатывает готовые файлы.
+     */
+    private void watchLoop() {
+        while (running) {
+            try {
+                long timeout = pending.isEmpty() ? 1000 : Math.max(10, debounceMillis / 2);
+                WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+                if (key != null) {
+                    collectEvents(key, now);
+                }
+                processReady(System.currentTimeMillis());
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Inbox processing failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Запоминает файлы из событий ключа наблюдения.
+     */
+    private void collectEvents(WatchKey key, long now) throws IOException {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // События потеряны: пересматриваем директорию целиком
+                logger.warn("Inbox events overflowed, rescanning {}", inbox);
+                scanInbox(now);
+                continue;
+            }
+            Path file = inbox.resolve((Path) event.context());
+            if (isSubmission(file)) {
+                pending.put(file, now);
+            }
+        }
+        if (!key.reset()) {
+            logger.error("Inbox {} is no longer accessible", inbox);
+            running = false;
+        }
+    }
+
+    /**
+     * Добавляет в ожидающие все работы входящей директории.
+     */
+    private void scanInbox(long now) throws IOException {
+        try (Stream<Path> files = Files.list(inbox)) {
+            files.filter(this::isSubmission).forEach(file -> pending.put(file, now));
+        }
+    }
+
+    private boolean isSubmission(Path file) {
+        String name = file.getFileName().toString();
+        return name.toLowerCase(Locale.ROOT).endsWith(".java") && !name.startsWith(".");
+    }
+
+    /**
+     * Проверяет одним пакетом файлы, по которым истек интервал устранения дребезга.
+     */
+    private void processReady(long now) {
+        List<Path> ready = pending.entrySet().stream()
+                .filter(entry -> now - entry.getValue() >= debounceMillis)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .limit(MAX_BATCH_SIZE)
+                .collect(Collectors.toList());
+        if (ready.isEmpty()) {
+            return;
+        }
+        ready.forEach(pending::remove);
+
+        List<Path> submissions = new ArrayList<>(ready.size());
+        List<String> sources = new ArrayList<>(ready.size());
+        List<List<CodeFragment>> batch = new ArrayList<>(ready.size());
+        for (Path file : ready) {
+            try {
+                if (!Files.isRegularFile(file)) {
+                    continue; // Файл удален или переименован до обработки
+                }
+                String code = FileUtils.readFile(file);
+                submissions.add(file);
+                sources.add(code);
+                batch.add(detector.getFragmentExtractor().extractFragments(code));
+            } catch (IOException e) {
+                logger.warn("Cannot read submission {}: {}", file, e.getMessage());
+            }
+        }
+        if (submissions.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Из результатов по базе данных убираются прежние версии самой работы и остальных
+        // работ пакета, поэтому запрашивается на столько же больше результатов
+        List<List<PlagiarismResult>> results =
+                detector.checkFragmentsBatch(batch, maxResults > 0 ? maxResults + submissions.size() : 0);
+
+        for (int i = 0; i < submissions.size(); i++) {
+            Path file = submissions.get(i);
+            String id = file.toString();
+            if (submissions.size() > 1) {
+                results.set(i, withBatchMembers(results.get(i), batch.get(i), id, submissions, batch));
+            }
+            // Работа добавляется после проверки, чтобы не совпасть сама с собой, но до
+            // публикации результата: появившийся результат означает, что работа уже в базе
+            detector.addSource(id, sources.get(i));
+            processedCount.incrementAndGet();
+            try {
+                writeResult(file, withoutSelf(results.get(i), id));
+            } catch (IOException e) {
+                logger.error("Cannot write result for {}: {}", file, e.getMessage());
+            }
+        }
+        logger.info("Checked {} submissions in {} ms", submissions.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Добавляет к результатам работы совпадения с остальными работами пакета.
+     * Результаты по прежним версиям этих работ в базе данных заменяются
+     * результатами по их текущим версиям.
+     */
+    private List<PlagiarismResult> withBatchMembers(List<PlagiarismResult> databaseResults,
+                                                    List<CodeFragment> fragments, String id,
+                                                    List<Path> submissions, List<List<CodeFragment>> batch) {
+        Map<String, List<CodeFragment>> others = new LinkedHashMap<>();
+        for (int j = 0; j < submissions.size(); j++) {
+            String otherId = submissions.get(j).toString();
+            if (!otherId.equals(id)) {
+                others.put(otherId, batch.get(j));
+            }
+        }
+
+        List<PlagiarismResult> merged = new ArrayList<>(detector.checkFragmentsAgainst(fragments, others, maxResults));
+        databaseResults.stream()
+                .filter(result -> !others.containsKey(result.getFileName()))
+                .forEach(merged::add);
+        merged.sort(Comparator.comparingDouble(PlagiarismResult::getSimilarityPercentage).reversed());
+        return merged;
+    }
+
+    /**
+     * Убирает из результатов прежнюю версию самой работы и применяет ограничение количества.
+     */
+    private List<PlagiarismResult> withoutSelf(List<PlagiarismResult> results, String id) {
+        return results.stream()
+                .filter(result -> !result.getFileName().equals(id))
+                .limit(maxResults > 0 ? maxResults : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Атомарно записывает файл результата работы в исходящую директорию.
+     */
+    private void writeResult(Path submission, List<PlagiarismResult> results) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (PlagiarismResult result : results) {
+            content.append(String.format(Locale.ROOT, "%.2f", result.getSimilarityPercentage()))
+                    .append('\t').append(result.getFileName()).append('\n');
+        }
+
+        Path target = outbox.resolve(submission.getFileName() + RESULT_SUFFIX);
+        Path temp = outbox.resolve("." + submission.getFileName() + RESULT_SUFFIX + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Останавливает наблюдение.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing inbox watch service: {}", e.getMessage());
+        }
+        if (watchThread != null) {
+            try {
+                watchThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Inbox watcher for {} stopped", inbox);
+    }
+
+    /**
+     * Точка входа наблюдателя.
+     * <p>
+     * Аргументы: {@code <директория базы> <входящая директория> <исходящая директория>
+     * [интервал устранения дребезга, мс] [количество результатов]}.
+     *
+     * @param args аргументы командной строки
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: InboxWatcher <databaseDir> <inboxDir> <outboxDir> [debounceMillis] [maxResults]");
+            System.exit(2);
+        }
+
+        try {
+            long debounce = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_DEBOUNCE_MILLIS;
+            int maxResults = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+            PlagiarismDetector detector = new PlagiarismDetector();
+            detector.loadDatabase(Path.of(args[0]));
+
+            InboxWatcher watcher = new InboxWatcher(detector, Path.of(args[1]), Path.of(args[2]), debounce, maxResults);
+            Runtime.getRuntime().addShutdownHook(new Thread(watcher::close));
+            watcher.start();
+            System.out.println("Watching " + args[1]);
+
+            // Наблюдатель работает до завершения JVM
+            new CountDownLatch(1).await();
+
+        } catch (Exception e) {
+            logger.error("Watcher failed to start: {}", e.getMessage(), e);
+            System.err.println("Watcher failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.daemon.CheckDaemon;
+import com.plagiarism.checker.daemon.DaemonClient;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static com.plagiarism.checker.ServiceFixtures.CODE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CheckDaemon startDaemon(Path dbDir) throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(ServiceFixtures.createDatabase(dbDir));
+        CheckDaemon daemon = new CheckDaemon(detector, dbDir, tempDir.resolve("check.sock"));
+        daemon.start();
+        return daemon;
+    }
+
+    @Test
+    void testRepeatedChecksOverOneConnection() throws Exception {
+        Path checked = tempDir.resolve("Checked.java");
+        Files.writeString(checked, CODE);
+
+        try (CheckDaemon daemon = startDaemon(tempDir.resolve("db"));
+             DaemonClient client = new DaemonClient(daemon.getSocketPath())) {
+            for (int i = 0; i < 3; i++) {
+                List<PlagiarismResult> results = client.checkFile(checked, 1);
+                assertEquals(1, results.size());
+                assertTrue(results.get(0).getFileName().endsWith("Sum.java"));
+            }
+
+            List<PlagiarismResult> fromCode = client.checkCode(CODE, 0);
+            assertTrue(fromCode.get(0).getFileName().endsWith("Sum.java"));
+
+            // Ошибка запроса не закрывает соединение
+            assertThrows(IOException.class, () -> client.checkFile(tempDir.resolve("Missing.java"), 0));
+            assertTrue(client.stats().contains("files=2"));
+        }
+    }
+
+    @Test
+    void testBackgroundReloadKeepsConnection() throws Exception {
+        Path dbDir = tempDir.resolve("db");
+        try (CheckDaemon daemon = startDaemon(dbDir);
+             DaemonClient client = new DaemonClient(daemon.getSocketPath())) {
+            assertTrue(client.stats().contains("generation=1"));
+
+            Files.writeString(dbDir.resolve("Third.java"), "public class Third { int one() { return 1; } }");
+            assertEquals("reloading", client.reload());
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (daemon.getGeneration() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(2, daemon.getGeneration());
+            assertTrue(client.stats().contains("files=3"));
+        }
+    }
+
+    @Test
+    void testSecondDaemonCannotTakeSocket() throws Exception {
+        try (CheckDaemon daemon = startDaemon(tempDir.resolve("db"))) {
+            assertThrows(IOException.class,
+                    () -> new CheckDaemon(new PlagiarismDetector(), tempDir, daemon.getSocketPath()));
+        }
+    }
+
+    @Test
+    void testSocketIsOwnerOnly() throws Exception {
+        try (CheckDaemon daemon = startDaemon(tempDir.resolve("db"))) {
+            assertEquals(PosixFilePermissions.fromString("rw-------"),
+                    Files.getPosixFilePermissions(daemon.getSocketPath()));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.server.CheckServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.plagiarism.checker.ServiceFixtures.CODE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CheckServer startServer(int maxInFlight) throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(createDatabase());
+        CheckServer server = new CheckServer(detector, 0, maxInFlight);
+        server.start();
+        return server;
+    }
+
+    private Path createDatabase() throws IOException {
+        return ServiceFixtures.createDatabase(tempDir.resolve("db"));
+    }
+
+    /**
+     * Детектор, пакетная проверка которого ждет разрешения теста.
+     */
+    private static final class BlockingDetector extends PlagiarismDetector {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<List<PlagiarismResult>> checkFragmentsBatch(List<List<CodeFragment>> batch, int maxResults) {
+            entered.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.checkFragmentsBatch(batch, maxResults);
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<String>> sendAsync(CheckServer server, String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> send(CheckServer server, String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Отправляет только заголовки POST запроса с заданным Content-Length и возвращает код ответа.
+     */
+    private static int sendHeaders(CheckServer server, String path, long contentLength) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: " + contentLength
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+
+    @Test
+    void testCheckEndpointFindsCopy() throws Exception {
+        try (CheckServer server = startServer(8)) {
+            HttpResponse<String> response = send(server, "POST", "/api/check?limit=5", CODE);
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().startsWith("{\"results\":["));
+            assertTrue(response.body().contains("Sum.java"));
+        }
+    }
+
+    @Test
+    void testBatchEndpointKeepsSubmissionOrder() throws Exception {
+        try (CheckServer server = startServer(8)) {
+            String body = "[{\"id\": \"a\", \"code\": \"" + CODE.replace("\"", "\\\"") + "\"},"
+                    + " {\"id\": \"b\", \"code\": \"class Empty {}\"}]";
+            HttpResponse<String> response = send(server, "POST", "/api/check/batch", body);
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().indexOf("\"id\":\"a\"") < response.body().indexOf("\"id\":\"b\""));
+            assertTrue(response.body().contains("Sum.java"));
+        }
+    }
+
+    @Test
+    void testStatsAndErrors() throws Exception {
+        try (CheckServer server = startServer(1)) {
+            HttpResponse<String> stats = send(server, "GET", "/api/stats", null);
+            assertEquals(200, stats.statusCode());
+            assertTrue(stats.body().contains("\"total_files\":2"));
+            assertTrue(stats.body().contains("\"verdict_cache_hit_rate\":"));
+
+            assertEquals(405, send(server, "GET", "/api/check", null).statusCode());
+            assertEquals(400, send(server, "POST", "/api/check/batch", "{broken").statusCode());
+            assertEquals(413, send(server, "POST", "/api/check/batch", "[\"class A {}\", \"class B {}\"]").statusCode());
+
+            // Слишком большое тело отклоняется как 413 по заголовку, до чтения тела
+            long oversized = 10 * 1024 * 1024 + 1;
+            assertEquals(413, sendHeaders(server, "/api/check", oversized));
+            assertEquals(413, sendHeaders(server, "/api/check/batch", oversized));
+            assertEquals(200, send(server, "POST", "/api/check", CODE).statusCode());
+        }
+    }
+
+    @Test
+    void testRequestsOverInFlightLimitAreRejected() throws Exception {
+        BlockingDetector detector = new BlockingDetector();
+        detector.loadDatabase(createDatabase());
+        try (CheckServer server = new CheckServer(detector, 0, 1)) {
+            server.start();
+            CompletableFuture<HttpResponse<String>> first = sendAsync(server, "/api/check", CODE);
+            assertTrue(detector.entered.await(30, TimeUnit.SECONDS));
+
+            // Единственное разрешение занято первой проверкой
+            HttpResponse<String> rejected = send(server, "POST", "/api/check", CODE);
+            assertEquals(429, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+            assertEquals(429, send(server, "POST", "/api/check/batch", "[\"class A {}\"]").statusCode());
+
+            detector.release.countDown();
+            assertEquals(200, first.get(30, TimeUnit.SECONDS).statusCode());
+            assertTrue(send(server, "GET", "/api/stats", null).body().contains("\"rejected\":2"));
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneBatch() throws Exception {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(createDatabase());
+        // Длинное окно: пакет закрывается по размеру, когда придут все четыре запроса
+        try (CheckServer server = new CheckServer(detector, 0, 8, 10_000, 4)) {
+            server.start();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                responses.add(sendAsync(server, "/api/check", CODE));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                HttpResponse<String> result = response.get(30, TimeUnit.SECONDS);
+                assertEquals(200, result.statusCode());
+                assertTrue(result.body().contains("Sum.java"));
+            }
+
+            String stats = send(server, "GET", "/api/stats", null).body();
+            assertTrue(stats.contains("\"batches\":1,"), stats);
+            assertTrue(stats.contains("\"batched_submissions\":4"), stats);
+        }
+    }
+}
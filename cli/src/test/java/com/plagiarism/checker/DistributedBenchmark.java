@@ -0,0 +1,148 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.distributed.CheckCoordinator;
+import com.plagiarism.checker.distributed.CheckWorker;
+import com.plagiarism.checker.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк распределенной проверки: запускает 1, 2, 4 ... рабочих JVM на одной
+ * машине и измеряет пропускную способность координатора (проверок в секунду).
+ * <p>
+ * Запуск: {@code gradle distributedBenchmark --args="big_database test_programs 4"}.
+ */
+public class DistributedBenchmark {
+
+    /** Количество прогревочных раундов перед измерением */
+    private static final int WARMUP_ROUNDS = 2;
+
+    /** Количество измеряемых раундов */
+    private static final int MEASURED_ROUNDS = 5;
+
+    /** Количество одновременных запросов координатора */
+    private static final int CLIENT_THREADS = 4;
+
+    public static void main(String[] args) throws Exception {
+        Path databasePath = Path.of(args.length > 0 ? args[0] : "big_database");
+        Path queriesPath = Path.of(args.length > 1 ? args[1] : "test_programs");
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        List<String> queries = new ArrayList<>();
+        for (Path file : FileUtils.findJavaFiles(queriesPath)) {
+            queries.add(FileUtils.readFile(file));
+        }
+
+        System.out.printf("Database: %s, queries: %d%n", databasePath, queries.size());
+        System.out.println("workers   checks/s   speedup");
+
+        double baseline = 0;
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            double throughput = measure(databasePath, queries, workers);
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            System.out.printf("%7d %10.2f %9.2fx%n", workers, throughput, throughput / baseline);
+        }
+    }
+
+    /**
+     * Запускает заданное количество рабочих JVM и измеряет пропускную способность.
+     */
+    private static double measure(Path databasePath, List<String> queries, int workerCount) throws Exception {
+        List<Process> processes = new ArrayList<>();
+        try (CheckCoordinator coordinator = new CheckCoordinator()) {
+            for (int i = 0; i < workerCount; i++) {
+                Process process = startWorkerProcess(databasePath, i, workerCount);
+                processes.add(process);
+                coordinator.addWorker(new InetSocketAddress("127.0.0.1", awaitReady(process)));
+            }
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+            try {
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    runRound(coordinator, clients, queries);
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    runRound(coordinator, clients, queries);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                return MEASURED_ROUNDS * queries.size() / seconds;
+            } finally {
+                clients.shutdownNow();
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+                process.waitFor(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static void runRound(CheckCoordinator coordinator, ExecutorService clients, List<String> queries)
+            throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (String query : queries) {
+            futures.add(clients.submit(() -> coordinator.check(query, 10)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static Process startWorkerProcess(Path databasePath, int index, int count) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                CheckWorker.class.getName(), databasePath.toString(),
+                String.valueOf(index), String.valueOf(count))
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Ожидает строку готовности рабочего процесса и возвращает его порт.
+     * Дальнейший вывод процесса (логи каждого запроса) вычитывается фоновым
+     * потоком, иначе после заполнения канала рабочий процесс блокируется на записи.
+     */
+    private static int awaitReady(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("WORKER READY ")) {
+                int port = Integer.parseInt(line.substring("WORKER READY ".length()).trim());
+                Thread drain = new Thread(() -> discard(reader), "worker-output-" + process.pid());
+                drain.setDaemon(true);
+                drain.start();
+                return port;
+            }
+        }
+        throw new IOException("Worker process exited before becoming ready");
+    }
+
+    /**
+     * Читает вывод рабочего процесса до его завершения.
+     */
+    private static void discard(BufferedReader reader) {
+        try (reader) {
+            while (reader.readLine() != null) {
+                // вывод не нужен, важно лишь не заполнять канал
+            }
+        } catch (IOException e) {
+            // процесс завершен
+        }
+    }
+}
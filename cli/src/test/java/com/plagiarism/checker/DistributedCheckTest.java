@@ -0,0 +1,107 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.distributed.CheckCoordinator;
+import com.plagiarism.checker.distributed.CheckWorker;
+import com.plagiarism.checker.distributed.DistributedCheckResult;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedCheckTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path createDatabase() throws IOException {
+        Path dbDir = tempDir.resolve("db");
+        Files.createDirectories(dbDir);
+        for (int i = 0; i < 8; i++) {
+            Files.writeString(dbDir.resolve("Task" + i + ".java"),
+                    "public class Task" + i + " { int run(int n) { int s = 0; for (int k = 0; k < n; k++) { s = s + k * "
+                            + i + "; } if (s > n) { return s; } return n; } }");
+        }
+        return dbDir;
+    }
+
+    private CheckWorker startWorker(Path dbDir, int index, int count) throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir, CheckWorker.partitionFilter(index, count));
+        CheckWorker worker = new CheckWorker(detector, 0);
+        worker.start();
+        return worker;
+    }
+
+    private static InetSocketAddress addressOf(CheckWorker worker) {
+        return new InetSocketAddress("127.0.0.1", worker.getPort());
+    }
+
+    @Test
+    void testDistributedResultsMatchSingleProcess() throws IOException {
+        Path dbDir = createDatabase();
+        String code = Files.readString(dbDir.resolve("Task5.java"));
+
+        PlagiarismDetector local = new PlagiarismDetector();
+        local.loadDatabase(dbDir);
+        List<PlagiarismResult> expected = local.checkForPlagiarism(code);
+
+        List<CheckWorker> workers = new ArrayList<>();
+        try (CheckCoordinator coordinator = new CheckCoordinator()) {
+            for (int i = 0; i < 2; i++) {
+                CheckWorker worker = startWorker(dbDir, i, 2);
+                workers.add(worker);
+                coordinator.addWorker(addressOf(worker));
+            }
+
+            DistributedCheckResult result = coordinator.check(code, 0);
+            assertTrue(result.isComplete());
+            assertEquals(expected.size(), result.getResults().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getSimilarityPercentage(),
+                        result.getResults().get(i).getSimilarityPercentage(), 0.0001);
+            }
+            assertEquals(8, coordinator.getStatistics().get("total_files"));
+        } finally {
+            workers.forEach(CheckWorker::close);
+        }
+    }
+
+    @Test
+    void testLateJoinAndDeadWorker() throws IOException {
+        Path dbDir = createDatabase();
+        String code = Files.readString(dbDir.resolve("Task2.java"));
+
+        CheckWorker first = startWorker(dbDir, 0, 2);
+        CheckWorker second = startWorker(dbDir, 1, 2);
+        try (CheckCoordinator coordinator = new CheckCoordinator(5_000)) {
+            coordinator.addWorker(addressOf(first));
+            DistributedCheckResult partial = coordinator.check(code, 0);
+            assertTrue(partial.isComplete());
+
+            // Второй процесс присоединяется позже
+            coordinator.addWorker(addressOf(second));
+            DistributedCheckResult full = coordinator.check(code, 0);
+            assertEquals(2, full.getRespondedWorkers().size());
+            assertTrue(full.getResults().size() >= partial.getResults().size());
+
+            // Первый процесс падает — координатор возвращает частичный результат
+            first.close();
+            DistributedCheckResult degraded = coordinator.check(code, 0);
+            assertFalse(degraded.isComplete());
+            assertEquals(1, degraded.getFailedWorkers().size());
+            assertEquals(1, degraded.getRespondedWorkers().size());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+}
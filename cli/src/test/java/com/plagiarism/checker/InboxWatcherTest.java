@@ -0,0 +1,110 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.watch.InboxWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.plagiarism.checker.ServiceFixtures.CODE;
+import static com.plagiarism.checker.ServiceFixtures.OTHER_CODE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboxWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Path awaitFile(Path file) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(Files.exists(file), "No result written: " + file);
+        return file;
+    }
+
+    @Test
+    void testSubmissionCheckedAndAddedToDatabase() throws Exception {
+        Path dbDir = ServiceFixtures.createDatabase(tempDir.resolve("db"));
+        Path inbox = Files.createDirectories(tempDir.resolve("inbox"));
+        Path outbox = tempDir.resolve("outbox");
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir);
+
+        try (InboxWatcher watcher = new InboxWatcher(detector, inbox, outbox, 100, 0)) {
+            // Работа, лежащая во входящей директории до запуска, тоже проверяется
+            Files.writeString(inbox.resolve("First.java"), CODE);
+            watcher.start();
+
+            String first = Files.readString(awaitFile(outbox.resolve("First.java.result.txt")));
+            assertTrue(first.contains("Sum.java"));
+            assertEquals(3, detector.getDatabaseFileCount());
+
+            // Следующая работа сравнивается и с предыдущей, но не с собой
+            Files.writeString(inbox.resolve("Second.java"), CODE);
+            String second = Files.readString(awaitFile(outbox.resolve("Second.java.result.txt")));
+            assertTrue(second.contains("First.java"));
+            assertFalse(second.contains("Second.java"));
+            assertEquals(2, watcher.getProcessedCount());
+        }
+    }
+
+    @Test
+    void testSubmissionsInOneBatchAreComparedWithEachOther() throws Exception {
+        Path dbDir = Files.createDirectories(tempDir.resolve("db"));
+        Path inbox = Files.createDirectories(tempDir.resolve("inbox"));
+        Path outbox = tempDir.resolve("outbox");
+        Files.writeString(dbDir.resolve("Other.java"), OTHER_CODE);
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir);
+
+        try (InboxWatcher watcher = new InboxWatcher(detector, inbox, outbox, 100, 0)) {
+            // Две одинаковые работы лежат во входящей директории до запуска и попадают в один пакет
+            Files.writeString(inbox.resolve("CopyA.java"), CODE);
+            Files.writeString(inbox.resolve("CopyB.java"), CODE);
+            watcher.start();
+
+            String first = Files.readString(awaitFile(outbox.resolve("CopyA.java.result.txt")));
+            String second = Files.readString(awaitFile(outbox.resolve("CopyB.java.result.txt")));
+            assertTrue(first.contains("CopyB.java"));
+            assertTrue(second.contains("CopyA.java"));
+            assertFalse(first.contains("CopyA.java"));
+        }
+    }
+
+    @Test
+    void testBatchResultsAreFilledUpToLimit() throws Exception {
+        Path dbDir = Files.createDirectories(tempDir.resolve("db"));
+        Path inbox = Files.createDirectories(tempDir.resolve("inbox"));
+        Path outbox = tempDir.resolve("outbox");
+        Files.writeString(dbDir.resolve("Other.java"), OTHER_CODE);
+        for (int i = 1; i <= 2; i++) {
+            Files.writeString(dbDir.resolve("Variant" + i + ".java"), CODE.replace("return s;",
+                    "int t" + i + " = s * " + i + "; return s;"));
+        }
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir);
+        // Прежние версии обеих работ уже в базе и совпадают с первой работой лучше всего
+        detector.addSource(inbox.resolve("First.java").toString(), CODE);
+        detector.addSource(inbox.resolve("Changed.java").toString(), CODE);
+
+        try (InboxWatcher watcher = new InboxWatcher(detector, inbox, outbox, 100, 2)) {
+            // Новая версия второй работы не похожа на первую, поэтому обе прежние версии
+            // выпадают из результатов первой работы, а их места занимают варианты из базы
+            Files.writeString(inbox.resolve("First.java"), CODE);
+            Files.writeString(inbox.resolve("Changed.java"), OTHER_CODE.replace("Other", "Changed"));
+            watcher.start();
+
+            List<String> lines = Files.readAllLines(awaitFile(outbox.resolve("First.java.result.txt")));
+            assertEquals(2, lines.size(), lines.toString());
+            assertTrue(lines.stream().allMatch(line -> line.contains("Variant")), lines.toString());
+        }
+    }
+}
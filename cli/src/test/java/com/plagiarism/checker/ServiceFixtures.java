@@ -0,0 +1,34 @@
+package com.plagiarism.checker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Общие данные тестов сервисов проверки (HTTP сервис, демон, наблюдатель входящей директории).
+ */
+final class ServiceFixtures {
+
+    /** Работа, копия которой есть в тестовой базе данных (Sum.java) */
+    static final String CODE =
+            "public class Sum { int sum(int[] a) { int s = 0; for (int i = 0; i < a.length; i++) { s = s + a[i]; } return s; } }";
+
+    /** Работа, не похожая на {@link #CODE} (Other.java) */
+    static final String OTHER_CODE = "public class Other { void print() { System.out.println(\"hi\"); } }";
+
+    private ServiceFixtures() {
+    }
+
+    /**
+     * Создает тестовую базу данных из Sum.java ({@link #CODE}) и Other.java ({@link #OTHER_CODE}).
+     *
+     * @param dbDir директория базы данных (создается при необходимости)
+     * @return директория базы данных
+     */
+    static Path createDatabase(Path dbDir) throws IOException {
+        Files.createDirectories(dbDir);
+        Files.writeString(dbDir.resolve("Sum.java"), CODE);
+        Files.writeString(dbDir.resolve("Other.java"), OTHER_CODE);
+        return dbDir;
+    }
+}
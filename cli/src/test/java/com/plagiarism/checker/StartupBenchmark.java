@@ -0,0 +1,100 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.cli.CheckCli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Бенчмарк запуска: измеряет время от старта JVM до первой строки результата
+ * консольной проверки {@link CheckCli}.
+ * <p>
+ * Измеряется headless-путь к классам модуля {@code cli}; если задано свойство
+ * {@value #COMPARE_PROPERTY}, тот же запуск повторяется с этим путем к классам
+ * (например, с путем модуля {@code gui}, включающим JavaFX).
+ * <p>
+ * Запуск: {@code gradle :cli:startupBenchmark --args="small_database test_programs/TestPlagiarism1.java 10"}.
+ */
+public class StartupBenchmark {
+
+    /** Свойство с путем к классам для сравнения */
+    static final String COMPARE_PROPERTY = "startup.compare.classpath";
+
+    /** Количество прогревочных запусков (кэш файловой системы, JIT не переносится) */
+    private static final int WARMUP_RUNS = 2;
+
+    /**
+     * Строка результата {@link CheckCli}: процент схожести и файл или сообщение об
+     * отсутствии совпадений. Остальные строки стандартного вывода — логи
+     * (консольный аппендер log4j пишет в stdout) и сообщения о загрузке базы.
+     */
+    private static final Pattern RESULT_LINE = Pattern.compile("\\d+[.,]\\d{2}\t.*|No matches found");
+
+    public static void main(String[] args) throws Exception {
+        String databasePath = args.length > 0 ? args[0] : "small_database";
+        String checkedFile = args.length > 1 ? args[1] : "test_programs/TestPlagiarism1.java";
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Map<String, String> classpaths = new LinkedHashMap<>();
+        classpaths.put("headless", System.getProperty("java.class.path"));
+        String compare = System.getProperty(COMPARE_PROPERTY);
+        if (compare != null && !compare.isBlank()) {
+            classpaths.put("compare", compare);
+        }
+
+        System.out.printf("Database: %s, file: %s, runs: %d%n", databasePath, checkedFile, runs);
+        System.out.println("classpath     entries   median ms      min ms");
+        for (Map.Entry<String, String> entry : classpaths.entrySet()) {
+            long[] times = new long[runs];
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                timeToFirstResult(entry.getValue(), databasePath, checkedFile);
+            }
+            for (int i = 0; i < runs; i++) {
+                times[i] = timeToFirstResult(entry.getValue(), databasePath, checkedFile);
+            }
+            Arrays.sort(times);
+            int entries = entry.getValue().split(File.pathSeparator).length;
+            System.out.printf("%-12s %8d %11.1f %11.1f%n", entry.getKey(), entries,
+                    times[runs / 2] / 1e6, times[0] / 1e6);
+        }
+    }
+
+    /**
+     * Запускает консольную проверку в отдельной JVM и возвращает время
+     * до первой строки результата в наносекундах.
+     */
+    private static long timeToFirstResult(String classpath, String databasePath, String checkedFile)
+            throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + "/bin/java";
+        List<String> command = new ArrayList<>(List.of(java, "--add-modules", "jdk.incubator.vector",
+                "-cp", classpath, CheckCli.class.getName(), databasePath, checkedFile, "1"));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (RESULT_LINE.matcher(line).matches()) {
+                    long elapsed = System.nanoTime() - start;
+                    process.waitFor();
+                    return elapsed;
+                }
+            }
+            throw new IOException("CheckCli produced no result line");
+        } finally {
+            process.destroy();
+        }
+    }
+}
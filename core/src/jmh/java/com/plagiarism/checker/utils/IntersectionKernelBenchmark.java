@@ -0,0 +1,77 @@
+package com.plagiarism.checker.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Сравнение скалярного и векторного ядер подсчета пересечений.
+ * <p>
+ * Размеры множеств соответствуют отпечаткам токенов коротких фрагментов (8–16),
+ * отпечаткам целых файлов (≈100–1000) и битовым картам словаря токенов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IntersectionKernelBenchmark {
+
+    /** Количество элементов в каждом множестве */
+    @Param({"16", "128", "1024"})
+    public int size;
+
+    /** Доля общих элементов в процентах */
+    @Param({"10", "80"})
+    public int overlapPercent;
+
+    private final IntersectionKernel scalar = ScalarIntersectionKernel.INSTANCE;
+    private IntersectionKernel vector;
+
+    private long[] sortedA;
+    private long[] sortedB;
+    private long[] bitmapA;
+    private long[] bitmapB;
+
+    @Setup
+    public void setUp() {
+        IntersectionKernel created = VectorIntersectionKernel.create();
+        vector = created != null ? created : scalar;
+
+        Random random = new Random(42);
+        int shared = size * overlapPercent / 100;
+        long[] common = random.longs(shared).toArray();
+        sortedA = LongStream.concat(LongStream.of(common), random.longs(size - shared)).sorted().distinct().toArray();
+        sortedB = LongStream.concat(LongStream.of(common), random.longs(size - shared)).sorted().distinct().toArray();
+
+        bitmapA = random.longs(size).toArray();
+        bitmapB = random.longs(size).toArray();
+    }
+
+    @Benchmark
+    public int scalarIntersection() {
+        return scalar.intersectionSize(sortedA, sortedB);
+    }
+
+    @Benchmark
+    public int vectorIntersection() {
+        return vector.intersectionSize(sortedA, sortedB);
+    }
+
+    @Benchmark
+    public int scalarAndCardinality() {
+        return scalar.andCardinality(bitmapA, bitmapB);
+    }
+
+    @Benchmark
+    public int vectorAndCardinality() {
+        return vector.andCardinality(bitmapA, bitmapB);
+    }
+}
@@ -0,0 +1,216 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.utils.AhoCorasick;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Маркеры алгоритмической схожести: паттерны и конструкции нормализованного кода.
+ * <p>
+ * Наличие маркеров в строке кодируется битовыми масками (бит i — маркер i),
+ * поэтому правило алгоритмической схожести для пары фрагментов сводится
+ * к операциям над масками, вычисленными один раз для каждого фрагмента.
+ * Паттерны и конструкции ищутся одним автоматом Ахо–Корасик за один проход.
+ * <p>
+ * Наборы маркеров читаются из ресурса {@value #RESOURCE_NAME} или из файла,
+ * заданного системным свойством {@value #CONFIG_PROPERTY}; формат —
+ * свойства {@code pattern.N}, {@code construction.N} и {@code construction.min-common}.
+ * Вместе паттернов и конструкций может быть не больше 64.
+ */
+final class AlgorithmMarkers {
+    private static final Logger logger = LogManager.getLogger(AlgorithmMarkers.class);
+
+    /** Ресурс с наборами маркеров по умолчанию */
+    static final String RESOURCE_NAME = "/algorithm-markers.properties";
+
+    /** Системное свойство с путем к файлу маркеров */
+    static final String CONFIG_PROPERTY = "plagiarism.markers";
+
+    /** Паттерны алгоритмического сравнения (если конфигурация недоступна) */
+    private static final String[] DEFAULT_PATTERNS = {
+            "for ( VAR = NUM ; VAR < VAR ; VAR ++ )",
+            "for ( VAR = VAR ; VAR < VAR ; VAR ++ )",
+            "if ( VAR > VAR )",
+            "if ( VAR < VAR )",
+            "if ( VAR == VAR )",
+            "while ( VAR < VAR )",
+            "return VAR ;",
+            "VAR = VAR + VAR ;",
+            "VAR = VAR * VAR ;"
+    };
+
+    /** Конструкции для алгоритмического сравнения (если конфигурация недоступна) */
+    private static final String[] DEFAULT_CONSTRUCTIONS = {
+            "for (", "if (", "while (", "return", "VAR = VAR", "{", "}"
+    };
+
+    /** Минимальное количество общих конструкций по умолчанию */
+    private static final int DEFAULT_MIN_COMMON_CONSTRUCTIONS = 3;
+
+    /** Маркеры процесса (загружаются при первом обращении) */
+    private static volatile AlgorithmMarkers instance;
+
+    /** Автомат по паттернам и конструкциям (паттерны — младшие биты) */
+    private final AhoCorasick automaton;
+
+    /** Количество паттернов */
+    private final int patternCount;
+
+    /** Маска битов паттернов */
+    private final long patternBits;
+
+    /** Минимальное количество общих конструкций для алгоритмической схожести */
+    private final int minCommonConstructions;
+
+    /**
+     * Создает набор маркеров.
+     *
+     * @param patterns паттерны алгоритмического сравнения
+     * @param constructions конструкции для алгоритмического сравнения
+     * @param minCommonConstructions минимальное количество общих конструкций
+     * @throws IllegalArgumentException если маркеров больше 64 или среди них есть пустые
+     */
+    AlgorithmMarkers(List<String> patterns, List<String> constructions, int minCommonConstructions) {
+        List<String> all = new ArrayList<>(patterns);
+        all.addAll(constructions);
+        this.automaton = new AhoCorasick(all);
+        this.patternCount = patterns.size();
+        this.patternBits = patternCount == Long.SIZE ? -1L : (1L << patternCount) - 1;
+        this.minCommonConstructions = minCommonConstructions;
+    }
+
+    /**
+     * Возвращает маркеры процесса, при первом обращении загружая конфигурацию.
+     */
+    static AlgorithmMarkers getDefault() {
+        AlgorithmMarkers markers = instance;
+        if (markers == null) {
+            synchronized (AlgorithmMarkers.class) {
+                markers = instance;
+                if (markers == null) {
+                    markers = loadConfigured();
+                    instance = markers;
+                }
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Загружает маркеры из файла, ресурса или встроенных значений.
+     */
+    private static AlgorithmMarkers loadConfigured() {
+        String configFile = System.getProperty(CONFIG_PROPERTY);
+        try {
+            if (configFile != null) {
+                try (Reader reader = Files.newBufferedReader(Path.of(configFile), StandardCharsets.UTF_8)) {
+                    Properties properties = new Properties();
+                    properties.load(reader);
+                    logger.info("Algorithm markers loaded from {}", configFile);
+                    return fromProperties(properties);
+                }
+            }
+            try (InputStream in = AlgorithmMarkers.class.getResourceAsStream(RESOURCE_NAME)) {
+                if (in != null) {
+                    Properties properties = new Properties();
+                    properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                    return fromProperties(properties);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Cannot load algorithm markers, using built-in defaults: {}", e.getMessage());
+        }
+        return new AlgorithmMarkers(List.of(DEFAULT_PATTERNS), List.of(DEFAULT_CONSTRUCTIONS),
+                DEFAULT_MIN_COMMON_CONSTRUCTIONS);
+    }
+
+    /**
+     * Создает набор маркеров из свойств {@code pattern.N}, {@code construction.N}
+     * и {@code construction.min-common}. Маркеры упорядочиваются по номеру N.
+     *
+     * @param properties свойства конфигурации
+     * @return набор маркеров
+     * @throws IllegalArgumentException если конфигурация некорректна
+     */
+    static AlgorithmMarkers fromProperties(Properties properties) {
+        List<String> patterns = numbered(properties, "pattern.");
+        List<String> constructions = numbered(properties, "construction.");
+        String minCommon = properties.getProperty("construction.min-common",
+                String.valueOf(DEFAULT_MIN_COMMON_CONSTRUCTIONS));
+        try {
+            return new AlgorithmMarkers(patterns, constructions, Integer.parseInt(minCommon.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid construction.min-common: " + minCommon);
+        }
+    }
+
+    private static List<String> numbered(Properties properties, String prefix) {
+        Map<Integer, String> ordered = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            String suffix = key.substring(prefix.length());
+            if (suffix.chars().allMatch(Character::isDigit) && !suffix.isEmpty()) {
+                ordered.put(Integer.parseInt(suffix), properties.getProperty(key));
+            }
+        }
+        return new ArrayList<>(ordered.values());
+    }
+
+    /**
+     * Находит все маркеры строки за один проход.
+     *
+     * @param content нормализованное содержимое
+     * @return маска: младшие биты — паттерны, следующие — конструкции
+     */
+    long scan(String content) {
+        return automaton.scan(content);
+    }
+
+    /**
+     * Выделяет из маски поиска маску паттернов.
+     */
+    long patternMask(long scanMask) {
+        return scanMask & patternBits;
+    }
+
+    /**
+     * Выделяет из маски поиска маску конструкций.
+     */
+    long constructionMask(long scanMask) {
+        return patternCount == Long.SIZE ? 0L : scanMask >>> patternCount;
+    }
+
+    /**
+     * Проверяет алгоритмическую схожесть по маскам двух фрагментов:
+     * общий паттерн или достаточное количество общих конструкций.
+     */
+    boolean isAlgorithmSimilar(long patterns1, long constructions1, long patterns2, long constructions2) {
+        return (patterns1 & patterns2) != 0
+                || Long.bitCount(constructions1 & constructions2) >= minCommonConstructions;
+    }
+
+    /**
+     * Проверяет алгоритмическую схожесть двух строк.
+     */
+    boolean isAlgorithmSimilar(String str1, String str2) {
+        long mask1 = scan(str1);
+        long mask2 = scan(str2);
+        return isAlgorithmSimilar(patternMask(mask1), constructionMask(mask1),
+                patternMask(mask2), constructionMask(mask2));
+    }
+}
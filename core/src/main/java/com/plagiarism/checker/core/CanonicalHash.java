@@ -0,0 +1,75 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.HashUtils;
+
+import java.util.List;
+
+/**
+ * 128-битный хеш канонического (полностью нормализованного) содержимого файла —
+ * последовательности нормализованных фрагментов.
+ * <p>
+ * Файлы с равными хешами считаются точными копиями друг друга с точностью
+ * до нормализации; перед использованием совпадение подтверждается сравнением
+ * фрагментов, поэтому коллизия хеша не может исказить результат.
+ */
+public final class CanonicalHash {
+
+    /** Начальные значения двух независимых 64-битных половин */
+    private static final long HIGH_SEED = 0x243F6A8885A308D3L;
+    private static final long LOW_SEED = 0x13198A2E03707344L;
+
+    /** Старшая половина хеша */
+    private final long high;
+
+    /** Младшая половина хеша */
+    private final long low;
+
+    private CanonicalHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Вычисляет канонический хеш фрагментов файла.
+     *
+     * @param fragments фрагменты файла в порядке извлечения
+     */
+    public static CanonicalHash of(List<CodeFragment> fragments) {
+        long high = HIGH_SEED ^ fragments.size();
+        long low = LOW_SEED ^ fragments.size();
+        for (CodeFragment fragment : fragments) {
+            String content = fragment.getNormalizedContent();
+            high = HashUtils.mix64(high * 31 + HashUtils.hash64(content, HIGH_SEED));
+            low = HashUtils.mix64(low * 31 + HashUtils.hash64(content, LOW_SEED));
+        }
+        return new CanonicalHash(high, low);
+    }
+
+    /**
+     * Вычисляет 128-битный хеш исходного текста файла.
+     *
+     * @param text исходный текст
+     */
+    public static CanonicalHash ofText(String text) {
+        return new CanonicalHash(HashUtils.hash64(text, HIGH_SEED), HashUtils.hash64(text, LOW_SEED));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CanonicalHash)) return false;
+        CanonicalHash that = (CanonicalHash) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high ^ low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
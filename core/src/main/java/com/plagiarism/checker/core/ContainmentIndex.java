@@ -0,0 +1,251 @@
+package com.plagiarism.checker.core;
+
+import java.util.Arrays;
+
+/**
+ * Индекс отпечатков окон проверяемой работы для правила вхождения фрагментов.
+ * <p>
+ * Правило считает фрагменты схожими, если один содержится в другом и длина
+ * вложенного больше {@code ratio} длины внешнего (оба не короче {@code minLength}).
+ * Вместо {@link String#contains(CharSequence)} для каждой пары используются
+ * полиномиальные хеши Карпа–Рабина:
+ * <ul>
+ *   <li>фрагмент работы внутри фрагмента базы: хеш первого окна фрагмента работы
+ *       ищется среди скользящих окон фрагмента базы;</li>
+ *   <li>фрагмент базы внутри фрагмента работы: хеш первого окна фрагмента базы
+ *       ищется в индексе всех окон фрагментов работы.</li>
+ * </ul>
+ * Каждый кандидат проверяется сравнением хешей полной длины и затем
+ * {@link String#regionMatches(int, String, int, int)}, поэтому результат совпадает
+ * с исходным правилом, а стоимость линейна по длине более длинной строки.
+ * <p>
+ * Индекс строится один раз на запрос и после построения только читается.
+ */
+final class ContainmentIndex {
+
+    /** Основание полиномиального хеша (нечетное, вычисления по модулю 2^64) */
+    private static final long BASE = 0x100000001B3L;
+
+    /** Буфер префиксных хешей фрагмента базы данных для текущего потока */
+    private static final ThreadLocal<long[]> PREFIX_BUFFER = ThreadLocal.withInitial(() -> new long[256]);
+
+    /** Признаки фрагментов проверяемой работы */
+    private final FragmentColumns check;
+
+    /** Минимальная длина фрагментов для правила вхождения (она же ширина окна) */
+    private final int window;
+
+    /** Минимальное соотношение длин вложенного и внешнего фрагментов */
+    private final double ratio;
+
+    /** Степени основания до максимальной длины фрагмента работы */
+    private final long[] powers;
+
+    /** Префиксные хеши фрагментов работы (null для коротких фрагментов) */
+    private final long[][] prefixHashes;
+
+    /** Фрагменты работы по хешу их первого окна */
+    private final LongMultiMap firstWindows;
+
+    /** Все окна фрагментов работы: хеш окна → (номер фрагмента << 32 | позиция) */
+    private final LongMultiMap allWindows;
+
+    /**
+     * Строит индекс по длинным фрагментам проверяемой работы.
+     *
+     * @param check признаки фрагментов проверяемой работы
+     * @param minLength минимальная длина фрагментов для правила вхождения
+     * @param ratio минимальное соотношение длин вложенного и внешнего фрагментов
+     */
+    ContainmentIndex(FragmentColumns check, int minLength, double ratio) {
+        this.check = check;
+        this.window = Math.max(1, minLength);
+        this.ratio = ratio;
+
+        int maxLength = window;
+        int windowCount = 0;
+        int longFragments = 0;
+        for (int j = 0; j < check.size(); j++) {
+            if (isLong(check, j)) {
+                maxLength = Math.max(maxLength, check.length(j));
+                windowCount += check.length(j) - window + 1;
+                longFragments++;
+            }
+        }
+
+        this.powers = new long[maxLength + 1];
+        powers[0] = 1;
+        for (int k = 1; k <= maxLength; k++) {
+            powers[k] = powers[k - 1] * BASE;
+        }
+
+        this.prefixHashes = new long[check.size()][];
+        this.firstWindows = new LongMultiMap(longFragments);
+        this.allWindows = new LongMultiMap(windowCount);
+        for (int j = 0; j < check.size(); j++) {
+            if (!isLong(check, j)) {
+                continue;
+            }
+            String content = check.content(j);
+            long[] prefix = prefixHashes(content, new long[content.length() + 1]);
+            prefixHashes[j] = prefix;
+            firstWindows.put(hash(prefix, 0, window), j);
+            for (int pos = 0; pos + window <= content.length(); pos++) {
+                allWindows.put(hash(prefix, pos, window), ((long) j << 32) | pos);
+            }
+        }
+    }
+
+    /**
+     * Находит фрагменты работы, связанные с фрагментом базы данных правилом вхождения.
+     *
+     * @param db признаки фрагментов файла базы данных
+     * @param i номер фрагмента базы данных
+     * @return битовая карта номеров фрагментов работы или null, если таких нет
+     */
+    long[] candidates(FragmentColumns db, int i) {
+        if (firstWindows.isEmpty() || !isLong(db, i)) {
+            return null;
+        }
+
+        String content = db.content(i);
+        int length = content.length();
+        long[] buffer = PREFIX_BUFFER.get();
+        if (buffer.length < length + 1) {
+            buffer = new long[Math.max(length + 1, buffer.length * 2)];
+            PREFIX_BUFFER.set(buffer);
+        }
+        long[] prefix = prefixHashes(content, buffer);
+        long[] result = null;
+
+        // Фрагмент работы содержится во фрагменте базы данных
+        for (int pos = 0; pos + window <= length; pos++) {
+            for (int entry = firstWindows.first(hash(prefix, pos, window)); entry >= 0;
+                 entry = firstWindows.next(entry)) {
+                int j = (int) firstWindows.value(entry);
+                int inner = check.length(j);
+                if (inner > length * ratio && pos + inner <= length
+                        && hash(prefix, pos, inner) == hash(prefixHashes[j], 0, inner)
+                        && content.regionMatches(pos, check.content(j), 0, inner)) {
+                    result = mark(result, j);
+                }
+            }
+        }
+
+        // Фрагмент базы данных содержится во фрагменте работы (только если он не длиннее их)
+        if (length >= powers.length) {
+            return result;
+        }
+        long fullHash = hash(prefix, 0, length);
+        for (int entry = allWindows.first(hash(prefix, 0, window)); entry >= 0; entry = allWindows.next(entry)) {
+            long packed = allWindows.value(entry);
+            int j = (int) (packed >>> 32);
+            int pos = (int) packed;
+            int outer = check.length(j);
+            if (length > outer * ratio && pos + length <= outer
+                    && hash(prefixHashes[j], pos, length) == fullHash
+                    && check.content(j).regionMatches(pos, content, 0, length)) {
+                result = mark(result, j);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Проверяет, отмечен ли фрагмент работы в битовой карте кандидатов.
+     */
+    static boolean contains(long[] candidates, int j) {
+        return candidates != null && (candidates[j >>> 6] & (1L << j)) != 0;
+    }
+
+    private long[] mark(long[] bitmap, int j) {
+        long[] result = bitmap != null ? bitmap : new long[(check.size() + 63) >>> 6];
+        result[j >>> 6] |= 1L << j;
+        return result;
+    }
+
+    private boolean isLong(FragmentColumns columns, int index) {
+        return columns.content(index) != null && columns.length(index) >= window;
+    }
+
+    /**
+     * Заполняет префиксные хеши строки: prefix[k] — хеш первых k символов.
+     */
+    private static long[] prefixHashes(String content, long[] prefix) {
+        prefix[0] = 0;
+        for (int k = 0; k < content.length(); k++) {
+            prefix[k + 1] = prefix[k] * BASE + content.charAt(k);
+        }
+        return prefix;
+    }
+
+    /**
+     * Вычисляет хеш подстроки [from, from + length) по префиксным хешам.
+     */
+    private long hash(long[] prefix, int from, int length) {
+        return prefix[from + length] - prefix[from] * powers[length];
+    }
+
+    /**
+     * Мультиотображение long → long на массивах (цепочки внутри массивов, без объектов).
+     */
+    private static final class LongMultiMap {
+        private final int[] heads;
+        private final long[] keys;
+        private final long[] values;
+        private final int[] next;
+        private final int mask;
+        private int size;
+
+        LongMultiMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected * 2) - 1) << 1;
+            this.heads = new int[capacity];
+            this.mask = capacity - 1;
+            this.keys = new long[Math.max(1, expected)];
+            this.values = new long[Math.max(1, expected)];
+            this.next = new int[Math.max(1, expected)];
+            Arrays.fill(heads, -1);
+        }
+
+        void put(long key, long value) {
+            int slot = slot(key);
+            keys[size] = key;
+            values[size] = value;
+            next[size] = heads[slot];
+            heads[slot] = size++;
+        }
+
+        /** Возвращает первую запись с ключом или -1 */
+        int first(long key) {
+            int entry = heads[slot(key)];
+            while (entry >= 0 && keys[entry] != key) {
+                entry = next[entry];
+            }
+            return entry;
+        }
+
+        /** Возвращает следующую запись с тем же ключом или -1 */
+        int next(int entry) {
+            long key = keys[entry];
+            int candidate = next[entry];
+            while (candidate >= 0 && keys[candidate] != key) {
+                candidate = next[candidate];
+            }
+            return candidate;
+        }
+
+        long value(int entry) {
+            return values[entry];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int slot(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,987 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Менеджер базы данных для хранения и управления фрагментами кода.
+ * Отвечает за загрузку, валидацию и очистку базы данных.
+ * <p>
+ * База данных разбита на шарды по хешу имени файла. Каждый шард имеет
+ * собственный индекс и статистику и может перезагружаться или сохраняться
+ * независимо от остальных.
+ * <p>
+ * Файлы читаются виртуальными потоками с ограничением количества одновременных
+ * чтений, а нормализация и извлечение фрагментов выполняются фиксированным пулом
+ * по числу процессоров. Пока чтения ждут медленное хранилище, ядра заняты
+ * извлечением уже прочитанных файлов.
+ * <p>
+ * Помимо полной загрузки, отдельные файлы можно добавлять, заменять и удалять
+ * ({@link #addFile}, {@link #addSource}, {@link #removeFile} и пакетные варианты)
+ * параллельно с проверками: затрагивается только шард файла, а стоимость
+ * пропорциональна размеру изменения.
+ * <p>
+ * Если открыт сегментированный индекс ({@link #openSegments(SegmentStore)}), он
+ * заменяет шарды по хешу: изменения записываются в его журнал и сегменты, проверки
+ * выполняются по индексам сегментов, а после перезапуска база данных
+ * восстанавливается из сегментов без повторного разбора исходных файлов.
+ */
+public class DatabaseManager {
+    private static final Logger logger = LogManager.getLogger(DatabaseManager.class);
+
+    /** Количество шардов по умолчанию */
+    public static final int DEFAULT_SHARD_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** Максимальное количество одновременных чтений файлов по умолчанию */
+    public static final int DEFAULT_READ_CONCURRENCY = 64;
+
+    /** Количество потоков извлечения фрагментов */
+    private static final int EXTRACTOR_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** Прочитанные файлы, ожидающие извлечения, на один поток извлечения */
+    private static final int PENDING_FILES_PER_EXTRACTOR = 4;
+
+    /** Шарды базы данных (файл → список фрагментов в каждом шарде) */
+    private final List<DatabaseShard> shards;
+
+    /** Документные частоты фрагментов всех шардов */
+    private final DocumentFrequencies documentFrequencies;
+
+    /** Индекс точных копий файлов всех шардов */
+    private final DuplicateIndex duplicateIndex;
+
+    /** Директория, из которой была загружена база данных */
+    private volatile Path databasePath;
+
+    /** Флаг, указывающий что база данных успешно загружена */
+    private volatile boolean databaseLoaded;
+
+    /** Максимальное количество одновременных чтений файлов */
+    private volatile int readConcurrency;
+
+    /** Времена последней загрузки файлов в миллисекундах */
+    private volatile Map<String, Long> lastLoadTimings;
+
+    /** Сегментированный индекс, который при открытии заменяет шарды по хешу (null — не открыт) */
+    private volatile SegmentStore segmentStore;
+
+    /**
+     * Конструктор инициализирует менеджер базы данных с количеством шардов по умолчанию.
+     */
+    public DatabaseManager() {
+        this(DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Конструктор инициализирует менеджер базы данных с заданным количеством шардов.
+     *
+     * @param shardCount количество шардов (больше нуля)
+     * @throws IllegalArgumentException если shardCount меньше единицы
+     */
+    public DatabaseManager(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+
+        this.documentFrequencies = new DocumentFrequencies();
+        this.duplicateIndex = new DuplicateIndex();
+        List<DatabaseShard> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(new DatabaseShard(i, documentFrequencies, duplicateIndex));
+        }
+        this.shards = Collections.unmodifiableList(created);
+        this.databaseLoaded = false;
+        this.readConcurrency = DEFAULT_READ_CONCURRENCY;
+        this.lastLoadTimings = Collections.emptyMap();
+        logger.debug("DatabaseManager initialized with {} shards", shardCount);
+    }
+
+    /**
+     * Устанавливает максимальное количество одновременных чтений файлов.
+     * Для сетевых хранилищ с большой задержкой выгодно значение больше
+     * количества процессоров: ожидающие чтения не занимают потоки извлечения.
+     *
+     * @param readConcurrency максимальное количество одновременных чтений (больше нуля)
+     * @throws IllegalArgumentException если значение меньше единицы
+     */
+    public void setReadConcurrency(int readConcurrency) {
+        if (readConcurrency < 1) {
+            throw new IllegalArgumentException("Read concurrency must be positive: " + readConcurrency);
+        }
+        this.readConcurrency = readConcurrency;
+    }
+
+    /**
+     * Возвращает максимальное количество одновременных чтений файлов.
+     */
+    public int getReadConcurrency() {
+        return readConcurrency;
+    }
+
+    /**
+     * Возвращает времена последней загрузки файлов в миллисекундах:
+     * <ul>
+     *   <li>{@code elapsed_ms} — общее время загрузки;</li>
+     *   <li>{@code read_ms} — суммарное время чтения файлов;</li>
+     *   <li>{@code read_wait_ms} — ожидание чтениями свободного слота чтения
+     *       или места в очереди извлечения;</li>
+     *   <li>{@code extract_ms} — суммарное время извлечения фрагментов;</li>
+     *   <li>{@code extract_idle_ms} — простой потоков извлечения в ожидании прочитанных файлов.</li>
+     * </ul>
+     */
+    public Map<String, Long> getLastLoadTimings() {
+        return lastLoadTimings;
+    }
+
+    /**
+     * Загружает базу данных Java файлов из указанной директории.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @throws IOException если возникает ошибка чтения файлов
+     */
+    public void loadDatabase(Path databasePath, FragmentExtractor fragmentExtractor) throws IOException {
+        loadDatabase(databasePath, fragmentExtractor, file -> true);
+    }
+
+    /**
+     * Загружает в базу данных только те Java файлы директории, которые проходят фильтр.
+     * Используется, например, рабочими процессами распределенной проверки,
+     * каждый из которых хранит только свою часть архива.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @param fileFilter фильтр файлов, которые должны попасть в базу данных
+     * @throws IOException если возникает ошибка чтения файлов
+     */
+    public void loadDatabase(Path databasePath, FragmentExtractor fragmentExtractor,
+                             Predicate<Path> fileFilter) throws IOException {
+        loadDatabaseWithProgress(databasePath, fragmentExtractor, fileFilter, ProgressListener.NONE);
+    }
+
+    /**
+     * Загружает в базу данных Java файлы директории, проходящие фильтр,
+     * и сообщает о ходе загрузки: прочитанных файлах, байтах и фрагментах.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @param fileFilter фильтр файлов, которые должны попасть в базу данных
+     * @param progressListener получатель сведений о ходе загрузки
+     * @throws IOException если возникает ошибка чтения файлов
+     */
+    public void loadDatabaseWithProgress(Path databasePath, FragmentExtractor fragmentExtractor,
+                                         Predicate<Path> fileFilter, ProgressListener progressListener)
+            throws IOException {
+        logger.info("=== LOADING DATABASE FROM: {} ===", databasePath);
+
+        validateDatabasePath(databasePath);
+        SegmentStore store = segmentStore;
+        if (store == null) {
+            shards.forEach(DatabaseShard::clear);
+        }
+        databaseLoaded = false;
+
+        List<Path> javaFiles = FileUtils.findJavaFiles(databasePath);
+        logger.info("Found {} Java files to process", javaFiles.size());
+
+        if (javaFiles.isEmpty()) {
+            throw new IOException("No Java files found in the specified directory: " + databasePath);
+        }
+
+        javaFiles = javaFiles.stream()
+                .filter(fileFilter)
+                .collect(Collectors.toList());
+
+        AtomicInteger errorCount = new AtomicInteger(0);
+        ProgressTracker progress = new ProgressTracker("Loading database", javaFiles.size(), progressListener);
+        Map<String, List<CodeFragment>> loaded = readFiles(javaFiles, fragmentExtractor, errorCount, progress, null);
+        progress.finish();
+
+        if (loaded.isEmpty()) {
+            throw new IOException("Failed to load any files into the database");
+        }
+
+        if (store != null) {
+            store.replaceAll(loaded);
+        } else {
+            putAll(loaded);
+        }
+
+        this.databasePath = databasePath;
+        databaseLoaded = true;
+        logger.info("=== DATABASE SUCCESSFULLY LOADED ===");
+        logger.info("Files loaded: {}, Errors: {}, Shards: {}", loaded.size(), errorCount.get(), shards.size());
+        logger.info("Total fragments in database: {}", getTotalFragmentsCount());
+    }
+
+    /**
+     * Добавляет в базу данных один Java файл или заменяет ранее добавленный файл
+     * с тем же путем. Остальные файлы не затрагиваются, поэтому метод можно
+     * вызывать параллельно с проверками.
+     *
+     * @param file путь к Java файлу (идентификатором в базе данных служит путь)
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @return количество фрагментов файла (0 — фрагментов нет, файл не добавлен)
+     * @throws IOException если файл не является читаемым Java файлом или не может быть прочитан
+     */
+    public int addFile(Path file, FragmentExtractor fragmentExtractor) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (!isValidJavaFile(file)) {
+            throw new IOException("Not a readable Java file: " + file);
+        }
+        return addSource(file.toString(), FileUtils.readFile(file), fragmentExtractor);
+    }
+
+    /**
+     * Добавляет в базу данных несколько Java файлов. Файлы читаются и разбираются
+     * тем же конвейером, что и при загрузке базы данных, но остальные файлы базы
+     * не перечитываются. Нечитаемые файлы пропускаются, а прежние версии файлов,
+     * в новых версиях которых нет фрагментов, удаляются.
+     *
+     * @param files пути к Java файлам
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @return количество добавленных (или замененных) файлов
+     * @throws IOException если загрузка прервана
+     */
+    public int addFiles(Collection<Path> files, FragmentExtractor fragmentExtractor) throws IOException {
+        if (files == null) {
+            throw new IllegalArgumentException("Files cannot be null");
+        }
+
+        AtomicInteger errorCount = new AtomicInteger(0);
+        Set<String> empty = ConcurrentHashMap.newKeySet();
+        Map<String, List<CodeFragment>> loaded = readFiles(new ArrayList<>(files), fragmentExtractor, errorCount,
+                new ProgressTracker("Adding files", files.size(), ProgressListener.NONE), empty);
+        putAll(loaded);
+        empty.forEach(this::removeFile);
+        logger.info("Added {} of {} files to the database, errors: {}", loaded.size(), files.size(), errorCount.get());
+        return loaded.size();
+    }
+
+    /**
+     * Добавляет в базу данных один файл по его исходному коду или заменяет уже
+     * добавленный файл с тем же именем. Если в новой версии файла нет фрагментов,
+     * прежняя версия удаляется из базы данных. Остальные файлы не затрагиваются,
+     * поэтому метод можно вызывать параллельно с проверками.
+     *
+     * @param fileName имя (идентификатор) файла в базе данных
+     * @param code исходный код файла
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @return количество фрагментов файла (0 — фрагментов нет, файл не добавлен или удален)
+     * @throws IllegalArgumentException если имя файла или код равны null
+     */
+    public int addSource(String fileName, String code, FragmentExtractor fragmentExtractor) {
+        if (fileName == null || code == null) {
+            throw new IllegalArgumentException("File name and code cannot be null");
+        }
+
+        List<CodeFragment> fragments = fragmentExtractor.extractFragments(code);
+        if (fragments.isEmpty()) {
+            if (removeFile(fileName)) {
+                logger.debug("No fragments in {}, previous version removed", fileName);
+            } else {
+                logger.debug("No fragments in {}, not added", fileName);
+            }
+            return 0;
+        }
+
+        SegmentStore store = segmentStore;
+        if (store != null) {
+            store.put(fileName, fragments);
+        } else {
+            getShardFor(fileName).put(fileName, fragments);
+        }
+        databaseLoaded = true;
+        logger.debug("Added {} to the database ({} fragments)", fileName, fragments.size());
+        return fragments.size();
+    }
+
+    /**
+     * Добавляет в базу данных несколько файлов по их исходному коду.
+     * Прежние версии файлов, в новых версиях которых нет фрагментов, удаляются.
+     *
+     * @param sources исходный код файлов по их именам (идентификаторам)
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @return количество добавленных (или замененных) файлов
+     * @throws IllegalArgumentException если sources равен null или содержит null
+     */
+    public int addSources(Map<String, String> sources, FragmentExtractor fragmentExtractor) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Sources cannot be null");
+        }
+
+        Map<String, List<CodeFragment>> extracted = new ConcurrentHashMap<>();
+        Set<String> empty = ConcurrentHashMap.newKeySet();
+        sources.entrySet().parallelStream().forEach(entry -> {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("File name and code cannot be null");
+            }
+            List<CodeFragment> fragments = fragmentExtractor.extractFragments(entry.getValue());
+            if (!fragments.isEmpty()) {
+                extracted.put(entry.getKey(), fragments);
+            } else {
+                empty.add(entry.getKey());
+            }
+        });
+        putAll(extracted);
+        empty.forEach(this::removeFile);
+        logger.info("Added {} of {} sources to the database", extracted.size(), sources.size());
+        return extracted.size();
+    }
+
+    /**
+     * Удаляет файл из базы данных. Остальные файлы не затрагиваются.
+     *
+     * @param fileName имя (идентификатор) файла в базе данных
+     * @return true, если файл был в базе данных
+     */
+    public boolean removeFile(String fileName) {
+        if (fileName == null) {
+            return false;
+        }
+        SegmentStore store = segmentStore;
+        boolean removed = store != null ? store.remove(fileName) : getShardFor(fileName).remove(fileName);
+        if (removed) {
+            logger.debug("Removed {} from the database", fileName);
+        }
+        return removed;
+    }
+
+    /**
+     * Удаляет несколько файлов из базы данных.
+     *
+     * @param fileNames имена (идентификаторы) файлов
+     * @return количество удаленных файлов
+     */
+    public int removeFiles(Collection<String> fileNames) {
+        if (fileNames == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (String fileName : fileNames) {
+            if (removeFile(fileName)) {
+                removed++;
+            }
+        }
+        logger.info("Removed {} of {} files from the database", removed, fileNames.size());
+        return removed;
+    }
+
+    /**
+     * Раскладывает записи по шардам или записывает их в сегментированный индекс, если он открыт.
+     */
+    private void putAll(Map<String, List<CodeFragment>> loaded) {
+        SegmentStore store = segmentStore;
+        if (store != null) {
+            store.putAll(loaded);
+        } else {
+            loaded.forEach((fileName, fragments) -> getShardFor(fileName).put(fileName, fragments));
+        }
+        if (!loaded.isEmpty()) {
+            databaseLoaded = true;
+        }
+    }
+
+    /**
+     * Заменяет файлы одного шарда по хешу (перезагрузка, восстановление из снимка).
+     * В сегментированный индекс записываются только эти файлы и удаления тех файлов
+     * шарда, которых нет среди новых записей.
+     */
+    private void replacePartition(int shardIndex, Map<String, List<CodeFragment>> entries) {
+        SegmentStore store = segmentStore;
+        if (store == null) {
+            getShard(shardIndex).replaceAll(entries);
+            return;
+        }
+        store.putAll(entries);
+        store.removeAll(store.getFileNames().stream()
+                .filter(fileName -> getShardIndex(fileName) == shardIndex && !entries.containsKey(fileName))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Возвращает записи файлов, относящихся к шарду по хешу.
+     */
+    private Map<String, List<CodeFragment>> getPartition(int shardIndex) {
+        Map<String, List<CodeFragment>> partition = new LinkedHashMap<>();
+        getAllDatabaseEntries().forEach((fileName, fragments) -> {
+            if (getShardIndex(fileName) == shardIndex) {
+                partition.put(fileName, fragments);
+            }
+        });
+        return partition;
+    }
+
+    /**
+     * Открывает сегментированный индекс и заменяет им содержимое базы данных:
+     * шарды по хешу очищаются, а проверки, добавления и удаления выполняются
+     * по сегментам индекса. Ранее открытый индекс закрывается.
+     *
+     * @param store хранилище сегментов
+     * @return количество восстановленных файлов
+     * @throws IOException если сегменты не удалось прочитать
+     */
+    public int openSegments(SegmentStore store) throws IOException {
+        if (store == null) {
+            throw new IllegalArgumentException("Segment store cannot be null");
+        }
+
+        closeSegments();
+        shards.forEach(DatabaseShard::clear);
+        int recovered = store.open(documentFrequencies, duplicateIndex);
+        segmentStore = store;
+        databaseLoaded = recovered > 0;
+        logger.info("Database recovered from {} segments: {} files", store.getSegmentCount(), recovered);
+        return recovered;
+    }
+
+    /**
+     * Сбрасывает несохраненные изменения и закрывает сегментированный индекс.
+     * Его файлы переносятся в шарды по хешу без повторного индексирования,
+     * поэтому содержимое базы данных не изменяется.
+     *
+     * @throws IOException если изменения не удалось записать
+     */
+    public void closeSegments() throws IOException {
+        SegmentStore store = segmentStore;
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } finally {
+            for (DatabaseShard segment : store.getShards()) {
+                segment.getIndexedFiles().forEach(file -> getShardFor(file.getFileName()).adopt(file));
+            }
+            segmentStore = null;
+        }
+    }
+
+    /**
+     * Возвращает открытое сегментированное хранилище или null.
+     */
+    public SegmentStore getSegmentStore() {
+        return segmentStore;
+    }
+
+    /**
+     * Перезагружает один шард из директории, из которой была загружена база данных.
+     * Остальные шарды при этом не затрагиваются.
+     *
+     * @param shardIndex номер шарда
+     * @param fragmentExtractor экстрактор для извлечения фрагментов
+     * @throws IOException если возникает ошибка чтения файлов
+     * @throws IllegalStateException если база данных еще не загружалась из директории
+     */
+    public void reloadShard(int shardIndex, FragmentExtractor fragmentExtractor) throws IOException {
+        getShard(shardIndex); // проверка номера шарда
+        Path sourcePath = databasePath;
+        if (sourcePath == null) {
+            throw new IllegalStateException("Database was not loaded from a directory, nothing to reload");
+        }
+
+        logger.info("Reloading shard {} from {}", shardIndex, sourcePath);
+        validateDatabasePath(sourcePath);
+
+        List<Path> shardFiles = FileUtils.findJavaFiles(sourcePath).stream()
+                .filter(file -> getShardIndex(file.toString()) == shardIndex)
+                .collect(Collectors.toList());
+
+        AtomicInteger errorCount = new AtomicInteger(0);
+        Map<String, List<CodeFragment>> loaded = readFiles(shardFiles, fragmentExtractor, errorCount,
+                new ProgressTracker("Reloading shard", shardFiles.size(), ProgressListener.NONE), null);
+        replacePartition(shardIndex, loaded);
+
+        databaseLoaded = getFileCount() > 0;
+        logger.info("Shard {} reloaded: {} files, {} errors", shardIndex, loaded.size(), errorCount.get());
+    }
+
+    /**
+     * Сохраняет шард в файл снимка.
+     *
+     * @param shardIndex номер шарда
+     * @param snapshotFile файл снимка
+     * @throws IOException если возникает ошибка записи
+     */
+    public void persistShard(int shardIndex, Path snapshotFile) throws IOException {
+        DatabaseShard shard = getShard(shardIndex);
+        if (segmentStore == null) {
+            shard.persist(snapshotFile);
+        } else {
+            DatabaseShard.writeSnapshot(snapshotFile, shardIndex, getPartition(shardIndex));
+        }
+    }
+
+    /**
+     * Загружает шард из файла снимка, не затрагивая остальные шарды.
+     *
+     * @param shardIndex номер шарда
+     * @param snapshotFile файл снимка
+     * @throws IOException если файл поврежден или не может быть прочитан
+     */
+    public void restoreShard(int shardIndex, Path snapshotFile) throws IOException {
+        DatabaseShard shard = getShard(shardIndex);
+        if (segmentStore == null) {
+            shard.restore(snapshotFile);
+        } else {
+            replacePartition(shardIndex, DatabaseShard.readSnapshot(snapshotFile, shardIndex));
+        }
+        databaseLoaded = getFileCount() > 0;
+    }
+
+    /**
+     * Сохраняет все шарды в указанную директорию (по одному файлу на шард).
+     *
+     * @param directory директория для снимков
+     * @throws IOException если возникает ошибка записи
+     */
+    public void persistAll(Path directory) throws IOException {
+        FileUtils.createDirectoryIfNotExists(directory);
+        for (DatabaseShard shard : shards) {
+            persistShard(shard.getIndex(), getSnapshotFile(directory, shard.getIndex()));
+        }
+    }
+
+    /**
+     * Загружает все шарды из директории со снимками.
+     *
+     * @param directory директория со снимками, созданными {@link #persistAll(Path)}
+     * @throws IOException если какой-либо снимок отсутствует или поврежден
+     */
+    public void restoreAll(Path directory) throws IOException {
+        validateDatabasePath(directory);
+        for (DatabaseShard shard : shards) {
+            restoreShard(shard.getIndex(), getSnapshotFile(directory, shard.getIndex()));
+        }
+        databaseLoaded = getFileCount() > 0;
+    }
+
+    /**
+     * Возвращает путь к файлу снимка шарда в директории.
+     */
+    private Path getSnapshotFile(Path directory, int shardIndex) {
+        return directory.resolve("shard-" + shardIndex + ".bin");
+    }
+
+    /**
+     * Читает файлы и извлекает из них фрагменты.
+     * <p>
+     * Каждый файл читается в собственном виртуальном потоке; количество одновременных
+     * чтений ограничено {@link #readConcurrency}. Прочитанное содержимое передается
+     * фиксированному пулу извлечения, очередь которого ограничена, поэтому при медленном
+     * извлечении чтения приостанавливаются и не накапливают содержимое в памяти.
+     * Каждый просмотренный файл, в том числе пропущенный, учитывается в ходе загрузки.
+     *
+     * @param emptyFiles множество для имен прочитанных файлов без фрагментов (может быть null)
+     * @throws InterruptedIOException если поток был прерван во время загрузки
+     */
+    private Map<String, List<CodeFragment>> readFiles(List<Path> files,
+                                                      FragmentExtractor fragmentExtractor,
+                                                      AtomicInteger errorCount,
+                                                      ProgressTracker progress,
+                                                      Set<String> emptyFiles) throws IOException {
+        Map<String, List<CodeFragment>> loaded = new ConcurrentHashMap<>();
+        Map<CanonicalHash, List<CodeFragment>> extractedByText = new ConcurrentHashMap<>();
+        LoadTimings timings = new LoadTimings();
+        Semaphore readSlots = new Semaphore(readConcurrency);
+        Semaphore pendingSlots = new Semaphore(EXTRACTOR_THREADS * PENDING_FILES_PER_EXTRACTOR);
+        long start = System.nanoTime();
+
+        // Пул извлечения закрывается после пула чтения и дожидается всех переданных файлов
+        try (ExecutorService extractors = createExtractorPool();
+             ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) {
+                readers.execute(() -> readFile(file, readSlots, pendingSlots, extractors,
+                        fragmentExtractor, loaded, emptyFiles, extractedByText, errorCount, progress, timings));
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastLoadTimings = timings.toMillis(elapsed);
+        logger.info("Read {} files in {} ms: read {} ms, read wait {} ms, extract {} ms, extract idle {} ms",
+                files.size(), elapsed / 1_000_000, lastLoadTimings.get("read_ms"),
+                lastLoadTimings.get("read_wait_ms"), lastLoadTimings.get("extract_ms"),
+                lastLoadTimings.get("extract_idle_ms"));
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Database loading interrupted");
+        }
+        return loaded;
+    }
+
+    /**
+     * Читает один файл в виртуальном потоке и передает его содержимое пулу извлечения.
+     * Фрагменты файла, текст которого совпадает с уже извлеченным (по 128-битному хешу
+     * текста), не извлекаются повторно, а берутся у первого такого файла.
+     */
+    private void readFile(Path file, Semaphore readSlots, Semaphore pendingSlots, ExecutorService extractors,
+                          FragmentExtractor fragmentExtractor, Map<String, List<CodeFragment>> loaded,
+                          Set<String> emptyFiles, Map<CanonicalHash, List<CodeFragment>> extractedByText,
+                          AtomicInteger errorCount, ProgressTracker progress, LoadTimings timings) {
+        String content;
+        long fileBytes;
+        long waitStart = System.nanoTime();
+        try {
+            readSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.fileProcessed(0, 0, 0);
+            return;
+        }
+
+        long readStart = System.nanoTime();
+        timings.readWait.add(readStart - waitStart);
+        try {
+            if (!isValidJavaFile(file)) {
+                logger.debug("Skipping invalid file: {}", file);
+                progress.fileProcessed(0, 0, 0);
+                return;
+            }
+            content = FileUtils.readFile(file);
+            fileBytes = Files.size(file);
+        } catch (IOException e) {
+            logger.warn("Failed to process file {}: {}", file, e.getMessage());
+            errorCount.incrementAndGet();
+            progress.fileProcessed(0, 0, 0);
+            return;
+        } catch (Exception e) {
+            logger.error("Unexpected error processing file {}: {}", file, e.getMessage(), e);
+            errorCount.incrementAndGet();
+            progress.fileProcessed(0, 0, 0);
+            return;
+        } finally {
+            readSlots.release();
+            timings.read.add(System.nanoTime() - readStart);
+        }
+
+        CanonicalHash textHash = CanonicalHash.ofText(content);
+        List<CodeFragment> extracted = extractedByText.get(textHash);
+        if (extracted != null) {
+            loaded.put(file.toString(), extracted);
+            logger.trace("Loaded file: {} (copy of an already extracted file)", file);
+            progress.fileProcessed(fileBytes, extracted.size(), 0);
+            return;
+        }
+
+        long handoffStart = System.nanoTime();
+        pendingSlots.acquireUninterruptibly();
+        timings.readWait.add(System.nanoTime() - handoffStart);
+
+        extractors.execute(() -> {
+            long extractStart = System.nanoTime();
+            int fileFragments = 0;
+            try {
+                List<CodeFragment> fragments = fragmentExtractor.extractFragments(content);
+                fileFragments = fragments.size();
+
+                if (!fragments.isEmpty()) {
+                    extractedByText.putIfAbsent(textHash, fragments);
+                    loaded.put(file.toString(), fragments);
+                    logger.trace("Loaded file: {} (fragments: {})", file, fragments.size());
+                } else if (emptyFiles != null) {
+                    emptyFiles.add(file.toString());
+                }
+            } catch (Exception e) {
+                logger.error("Unexpected error processing file {}: {}", file, e.getMessage(), e);
+                errorCount.incrementAndGet();
+            } finally {
+                pendingSlots.release();
+                timings.extract.add(System.nanoTime() - extractStart);
+                progress.fileProcessed(fileBytes, fileFragments, 0);
+            }
+        });
+    }
+
+    /**
+     * Создает фиксированный пул потоков извлечения фрагментов.
+     */
+    private static ExecutorService createExtractorPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(EXTRACTOR_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "db-extract-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Суммарные времена чтения и извлечения одной загрузки (в наносекундах).
+     */
+    private static final class LoadTimings {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder readWait = new LongAdder();
+        private final LongAdder extract = new LongAdder();
+
+        /**
+         * Переводит времена в миллисекунды. Простой потоков извлечения — это
+         * их общее время за вычетом времени работы.
+         */
+        Map<String, Long> toMillis(long elapsedNanos) {
+            long extractNanos = extract.sum();
+            long idleNanos = Math.max(0, elapsedNanos * EXTRACTOR_THREADS - extractNanos);
+
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("elapsed_ms", elapsedNanos / 1_000_000);
+            result.put("read_ms", read.sum() / 1_000_000);
+            result.put("read_wait_ms", readWait.sum() / 1_000_000);
+            result.put("extract_ms", extractNanos / 1_000_000);
+            result.put("extract_idle_ms", idleNanos / 1_000_000);
+            return Collections.unmodifiableMap(result);
+        }
+    }
+
+    /**
+     * Валидирует путь к базе данных.
+     */
+    private void validateDatabasePath(Path databasePath) throws IOException {
+        if (databasePath == null) {
+            throw new IllegalArgumentException("Database path cannot be null");
+        }
+
+        if (!Files.exists(databasePath)) {
+            throw new NoSuchFileException("Directory does not exist: " + databasePath);
+        }
+
+        if (!Files.isDirectory(databasePath)) {
+            throw new NotDirectoryException("Path is not a directory: " + databasePath);
+        }
+
+        if (!Files.isReadable(databasePath)) {
+            throw new AccessDeniedException("No read permission for directory: " + databasePath);
+        }
+    }
+
+    /**
+     * Проверяет, является ли файл валидным Java файлом для обработки.
+     */
+    private boolean isValidJavaFile(Path file) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+
+            String fileName = file.getFileName().toString();
+            if (!fileName.toLowerCase().endsWith(".java")) {
+                return false;
+            }
+
+            if (fileName.startsWith(".")) {
+                return false;
+            }
+
+            if (!Files.isReadable(file)) {
+                logger.warn("File not readable: {}", file);
+                return false;
+            }
+
+            long size = Files.size(file);
+            if (size > 1024 * 1024) { // 1 MB
+                logger.warn("File too large ({} bytes), skipping: {}", size, file);
+                return false;
+            }
+
+            return true;
+
+        } catch (IOException e) {
+            logger.warn("Failed to check file {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает номер шарда, в котором хранится указанный файл.
+     */
+    public int getShardIndex(String fileName) {
+        return Math.floorMod(fileName.hashCode(), shards.size());
+    }
+
+    /**
+     * Возвращает шард, в котором хранится указанный файл.
+     */
+    private DatabaseShard getShardFor(String fileName) {
+        return shards.get(getShardIndex(fileName));
+    }
+
+    /**
+     * Возвращает шарды, по которым выполняются проверки: индексы сегментов,
+     * если сегментированный индекс открыт, иначе шарды по хешу.
+     */
+    private List<DatabaseShard> activeShards() {
+        SegmentStore store = segmentStore;
+        return store != null ? store.getShards() : shards;
+    }
+
+    /**
+     * Возвращает шард по хешу с заданным номером.
+     *
+     * @throws IllegalArgumentException если номер шарда вне диапазона
+     */
+    public DatabaseShard getShard(int shardIndex) {
+        if (shardIndex < 0 || shardIndex >= shards.size()) {
+            throw new IllegalArgumentException("Shard index out of range: " + shardIndex);
+        }
+        return shards.get(shardIndex);
+    }
+
+    /**
+     * Возвращает неизменяемый список шардов, по которым выполняются проверки:
+     * индексы сегментов, если сегментированный индекс открыт, иначе шарды по хешу.
+     */
+    public List<DatabaseShard> getShards() {
+        return activeShards();
+    }
+
+    /**
+     * Возвращает документные частоты фрагментов базы данных.
+     */
+    public DocumentFrequencies getDocumentFrequencies() {
+        return documentFrequencies;
+    }
+
+    /**
+     * Возвращает индекс точных копий файлов базы данных.
+     */
+    public DuplicateIndex getDuplicateIndex() {
+        return duplicateIndex;
+    }
+
+    /**
+     * Возвращает количество шардов по хешу.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Возвращает фрагменты кода для указанного файла.
+     */
+    public List<CodeFragment> getFragmentsForFile(String fileName) {
+        SegmentStore store = segmentStore;
+        List<CodeFragment> fragments = store != null ? store.get(fileName) : getShardFor(fileName).get(fileName);
+        return fragments != null ? fragments : new ArrayList<>();
+    }
+
+    /**
+     * Возвращает все записи базы данных.
+     */
+    public Map<String, List<CodeFragment>> getAllDatabaseEntries() {
+        Map<String, List<CodeFragment>> entries = new ConcurrentHashMap<>();
+        activeShards().forEach(shard -> entries.putAll(shard.getEntries()));
+        return entries;
+    }
+
+    /**
+     * Возвращает список файлов в базе данных.
+     */
+    public List<String> getDatabaseFiles() {
+        if (!databaseLoaded) {
+            logger.warn("Attempting to get file list from unloaded database");
+            return new ArrayList<>();
+        }
+        List<String> files = new ArrayList<>();
+        activeShards().forEach(shard -> files.addAll(shard.getEntries().keySet()));
+        return files;
+    }
+
+    /**
+     * Возвращает количество файлов в базе данных.
+     */
+    public int getFileCount() {
+        return activeShards().stream()
+                .mapToInt(DatabaseShard::getFileCount)
+                .sum();
+    }
+
+    /**
+     * Возвращает общее количество фрагментов во всех файлах.
+     */
+    public int getTotalFragmentsCount() {
+        return activeShards().stream()
+                .mapToInt(DatabaseShard::getTotalFragmentsCount)
+                .sum();
+    }
+
+    /**
+     * Проверяет, загружена ли база данных.
+     */
+    public boolean isLoaded() {
+        return databaseLoaded && getFileCount() > 0;
+    }
+
+    /**
+     * Очищает базу данных.
+     */
+    public void clear() {
+        logger.info("Clearing database");
+        SegmentStore store = segmentStore;
+        if (store != null) {
+            store.clear();
+        } else {
+            shards.forEach(DatabaseShard::clear);
+        }
+        databaseLoaded = false;
+        logger.info("Database cleared");
+    }
+
+    /**
+     * Возвращает статистику базы данных.
+     */
+    public Map<String, Integer> getStatistics() {
+        Map<String, Integer> stats = new ConcurrentHashMap<>();
+        int totalFiles = getFileCount();
+        stats.put("total_files", totalFiles);
+
+        int totalFragments = getTotalFragmentsCount();
+        stats.put("total_fragments", totalFragments);
+
+        double avgFragments = totalFiles == 0 ? 0 : (double) totalFragments / totalFiles;
+        stats.put("avg_fragments_per_file", (int) avgFragments);
+
+        stats.put("shard_count", shards.size());
+        stats.put("distinct_fragments", documentFrequencies.getDistinctFragmentCount());
+        stats.put("duplicate_files", duplicateIndex.getDuplicateCount());
+        for (CodeFragment.Kind kind : CodeFragment.Kind.values()) {
+            stats.put(DatabaseShard.kindStatisticsKey(kind),
+                    activeShards().stream().mapToInt(shard -> shard.getFragmentCount(kind)).sum());
+        }
+
+        SegmentStore store = segmentStore;
+        if (store != null) {
+            stats.put("segment_count", store.getSegmentCount());
+        }
+
+        return stats;
+    }
+
+    /**
+     * Возвращает статистику каждого шарда, по которому выполняются проверки, в порядке их номеров.
+     */
+    public List<Map<String, Integer>> getShardStatistics() {
+        return activeShards().stream()
+                .map(DatabaseShard::getStatistics)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,442 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Шард базы данных — независимая часть общей базы фрагментов кода.
+ * <p>
+ * Файлы распределяются по шардам по хешу имени файла. Каждый шард
+ * хранит собственный индекс (файл → фрагменты) и статистику, может
+ * загружаться, перезагружаться и сохраняться на диск независимо от остальных.
+ * Фрагменты каждого файла хранятся вместе с производными структурами
+ * ({@link IndexedFile}), которые строятся один раз при добавлении файла.
+ * <p>
+ * Файлы можно добавлять и удалять по одному параллельно с проверками: счетчики
+ * статистики обновляются на разницу между старой и новой записью, поэтому
+ * стоимость изменения не зависит от размера шарда. Так же обновляются
+ * документные частоты фрагментов ({@link DocumentFrequencies}), индекс
+ * точных копий ({@link DuplicateIndex}) и ссылки на множества токенов
+ * ({@link TokenSetRegistry}).
+ */
+public class DatabaseShard {
+    private static final Logger logger = LogManager.getLogger(DatabaseShard.class);
+
+    /** Сигнатура файла снимка шарда */
+    private static final int SNAPSHOT_MAGIC = 0x50435348; // "PCSH"
+
+    /** Версия формата снимка шарда (2 — с видом фрагментов) */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /** Версия формата снимка шарда без вида фрагментов */
+    private static final int SNAPSHOT_VERSION_WITHOUT_KINDS = 1;
+
+    /** Порядковый номер шарда */
+    private final int index;
+
+    /** Индекс шарда (файл → индексированные фрагменты) */
+    private final Map<String, IndexedFile> entries;
+
+    /** Документные частоты фрагментов, общие для всех шардов базы данных */
+    private final DocumentFrequencies documentFrequencies;
+
+    /** Индекс точных копий, общий для всех шардов базы данных */
+    private final DuplicateIndex duplicateIndex;
+
+    /** Общее количество фрагментов в шарде */
+    private final AtomicInteger totalFragments;
+
+    /** Общий размер фильтров Блума файлов шарда в байтах */
+    private final AtomicInteger bloomFilterBytes;
+
+    /** Количество фрагментов шарда по видам (индекс — порядковый номер вида) */
+    private final AtomicIntegerArray kindFragments;
+
+    /**
+     * Создает пустой шард с собственными таблицей документных частот и индексом копий.
+     *
+     * @param index порядковый номер шарда
+     */
+    public DatabaseShard(int index) {
+        this(index, new DocumentFrequencies(), new DuplicateIndex());
+    }
+
+    /**
+     * Создает пустой шард.
+     *
+     * @param index порядковый номер шарда
+     * @param documentFrequencies таблица документных частот, общая для шардов базы данных
+     * @param duplicateIndex индекс точных копий, общий для шардов базы данных
+     */
+    public DatabaseShard(int index, DocumentFrequencies documentFrequencies, DuplicateIndex duplicateIndex) {
+        this.index = index;
+        this.documentFrequencies = documentFrequencies;
+        this.duplicateIndex = duplicateIndex;
+        this.entries = new ConcurrentHashMap<>();
+        this.totalFragments = new AtomicInteger();
+        this.bloomFilterBytes = new AtomicInteger();
+        this.kindFragments = new AtomicIntegerArray(CodeFragment.Kind.values().length);
+    }
+
+    /**
+     * Возвращает порядковый номер шарда.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Добавляет или заменяет фрагменты файла в шарде. Если в базе данных уже есть
+     * файл с тем же нормализованным содержимым, производные структуры берутся у него.
+     */
+    public void put(String fileName, List<CodeFragment> fragments) {
+        CanonicalHash hash = CanonicalHash.of(fragments);
+        List<IndexedFile> copies = duplicateIndex.find(hash, fragments);
+        IndexedFile file = copies.isEmpty()
+                ? new IndexedFile(fileName, fragments, hash)
+                : new IndexedFile(fileName, fragments, copies.get(0));
+        IndexedFile previous = entries.put(fileName, file);
+        account(file, 1);
+        account(previous, -1);
+    }
+
+    /**
+     * Удаляет файл из шарда.
+     *
+     * @return true, если файл был в шарде
+     */
+    public boolean remove(String fileName) {
+        IndexedFile previous = entries.remove(fileName);
+        account(previous, -1);
+        return previous != null;
+    }
+
+    /**
+     * Заменяет все содержимое шарда новым набором записей.
+     * Сначала добавляются новые записи, затем удаляются устаревшие,
+     * поэтому параллельные запросы не видят шард пустым.
+     */
+    public void replaceAll(Map<String, List<CodeFragment>> newEntries) {
+        newEntries.forEach(this::put);
+        for (String fileName : entries.keySet()) {
+            if (!newEntries.containsKey(fileName)) {
+                remove(fileName);
+            }
+        }
+    }
+
+    /**
+     * Переносит в шард индексированный файл другого шарда той же базы данных
+     * (при слиянии сегментов). Файл уже учтен в документных частотах и индексе
+     * копий, поэтому они не изменяются, а шард-источник после переноса
+     * больше не используется.
+     */
+    void adopt(IndexedFile file) {
+        IndexedFile previous = entries.put(file.getFileName(), file);
+        count(file, 1);
+        account(previous, -1);
+    }
+
+    /**
+     * Учитывает в счетчиках статистики добавленный (sign = 1) или удаленный (sign = -1) файл.
+     */
+    private void account(IndexedFile file, int sign) {
+        if (file != null) {
+            count(file, sign);
+            if (sign > 0) {
+                documentFrequencies.add(file.getDistinctHashes());
+                duplicateIndex.add(file);
+                file.getColumns().acquireTokenSets();
+            } else {
+                documentFrequencies.remove(file.getDistinctHashes());
+                duplicateIndex.remove(file);
+                file.getColumns().releaseTokenSets();
+            }
+        }
+    }
+
+    /**
+     * Учитывает файл только в счетчиках статистики шарда.
+     */
+    private void count(IndexedFile file, int sign) {
+        totalFragments.addAndGet(sign * file.getFragmentCount());
+        bloomFilterBytes.addAndGet(sign * file.getBloomFilter().getSizeInBytes());
+        for (CodeFragment.Kind kind : CodeFragment.Kind.values()) {
+            kindFragments.addAndGet(kind.ordinal(), sign * file.getFragmentCount(kind));
+        }
+    }
+
+    /**
+     * Возвращает количество фрагментов шарда заданного вида.
+     */
+    public int getFragmentCount(CodeFragment.Kind kind) {
+        return kindFragments.get(kind.ordinal());
+    }
+
+    /**
+     * Возвращает индекс точных копий, в котором учитываются файлы шарда.
+     */
+    public DuplicateIndex getDuplicateIndex() {
+        return duplicateIndex;
+    }
+
+    /**
+     * Проверяет, что файл сейчас хранится в этом шарде.
+     */
+    boolean contains(IndexedFile file) {
+        return entries.get(file.getFileName()) == file;
+    }
+
+    /**
+     * Возвращает таблицу документных частот, в которой учитываются файлы шарда.
+     */
+    public DocumentFrequencies getDocumentFrequencies() {
+        return documentFrequencies;
+    }
+
+    /**
+     * Возвращает фрагменты файла или null, если файла нет в шарде.
+     */
+    public List<CodeFragment> get(String fileName) {
+        IndexedFile file = entries.get(fileName);
+        return file == null ? null : file.getFragments();
+    }
+
+    /**
+     * Возвращает копию записей шарда (файл → фрагменты).
+     */
+    public Map<String, List<CodeFragment>> getEntries() {
+        Map<String, List<CodeFragment>> copy = new LinkedHashMap<>();
+        entries.forEach((fileName, file) -> copy.put(fileName, file.getFragments()));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Возвращает неизменяемое представление индексированных файлов шарда.
+     */
+    public Collection<IndexedFile> getIndexedFiles() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Возвращает количество файлов в шарде.
+     */
+    public int getFileCount() {
+        return entries.size();
+    }
+
+    /**
+     * Возвращает общее количество фрагментов в шарде.
+     */
+    public int getTotalFragmentsCount() {
+        return totalFragments.get();
+    }
+
+    /**
+     * Проверяет, пуст ли шард.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Очищает шард.
+     */
+    public void clear() {
+        entries.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Возвращает статистику шарда.
+     */
+    public Map<String, Integer> getStatistics() {
+        Map<String, Integer> stats = new ConcurrentHashMap<>();
+        int files = entries.size();
+        int fragments = getTotalFragmentsCount();
+        stats.put("shard_index", index);
+        stats.put("total_files", files);
+        stats.put("total_fragments", fragments);
+        stats.put("avg_fragments_per_file", files == 0 ? 0 : fragments / files);
+        stats.put("bloom_filter_bytes", bloomFilterBytes.get());
+        for (CodeFragment.Kind kind : CodeFragment.Kind.values()) {
+            stats.put(kindStatisticsKey(kind), getFragmentCount(kind));
+        }
+        return stats;
+    }
+
+    /**
+     * Возвращает ключ статистики количества фрагментов заданного вида
+     * (например, {@code full_code_fragments}).
+     */
+    static String kindStatisticsKey(CodeFragment.Kind kind) {
+        return kind.name().toLowerCase() + "_fragments";
+    }
+
+    /**
+     * Сохраняет содержимое шарда в файл снимка.
+     *
+     * @param snapshotFile файл, в который записывается снимок
+     * @throws IOException если возникает ошибка записи
+     */
+    public void persist(Path snapshotFile) throws IOException {
+        Map<String, List<CodeFragment>> copy = getEntries();
+        writeSnapshot(snapshotFile, index, copy);
+        logger.info("Shard {} persisted to {} ({} files)", index, snapshotFile, copy.size());
+    }
+
+    /**
+     * Заменяет содержимое шарда данными из файла снимка.
+     *
+     * @param snapshotFile файл снимка, созданный методом {@link #persist(Path)}
+     * @throws IOException если файл поврежден или не может быть прочитан
+     */
+    public void restore(Path snapshotFile) throws IOException {
+        Map<String, List<CodeFragment>> loaded = readSnapshot(snapshotFile, index);
+        replaceAll(loaded);
+        logger.info("Shard {} restored from {} ({} files)", index, snapshotFile, loaded.size());
+    }
+
+    /**
+     * Записывает снимок шарда с заданным номером.
+     *
+     * @param snapshotFile файл, в который записывается снимок
+     * @param shardIndex номер шарда
+     * @param entries записи шарда (файл → фрагменты)
+     * @throws IOException если возникает ошибка записи
+     */
+    static void writeSnapshot(Path snapshotFile, int shardIndex, Map<String, List<CodeFragment>> entries)
+            throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalArgumentException("Snapshot path cannot be null");
+        }
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(shardIndex);
+            out.writeInt(entries.size());
+
+            for (Map.Entry<String, List<CodeFragment>> entry : entries.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (CodeFragment fragment : entry.getValue()) {
+                    writeString(out, fragment.getNormalizedContent());
+                    writeString(out, fragment.getOriginalContent());
+                    out.writeInt(fragment.getLineNumber());
+                    out.writeByte(fragment.getKind().ordinal());
+                }
+            }
+        }
+
+        Files.move(tempFile, snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Читает снимок шарда.
+     *
+     * @param snapshotFile файл снимка
+     * @param shardIndex номер шарда, в который восстанавливается снимок
+     * @return записи снимка (файл → фрагменты)
+     * @throws IOException если файл поврежден или не может быть прочитан
+     */
+    static Map<String, List<CodeFragment>> readSnapshot(Path snapshotFile, int shardIndex) throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalArgumentException("Snapshot path cannot be null");
+        }
+
+        Map<String, List<CodeFragment>> loaded = new ConcurrentHashMap<>();
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a shard snapshot: " + snapshotFile);
+            }
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_WITHOUT_KINDS) {
+                throw new IOException("Unsupported shard snapshot version " + version + ": " + snapshotFile);
+            }
+            int storedIndex = in.readInt();
+            if (storedIndex != shardIndex) {
+                logger.warn("Snapshot {} was written by shard {}, restoring into shard {}",
+                        snapshotFile, storedIndex, shardIndex);
+            }
+
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String fileName = readString(in);
+                int fragmentCount = in.readInt();
+                List<CodeFragment> fragments = new ArrayList<>(fragmentCount);
+                for (int j = 0; j < fragmentCount; j++) {
+                    String normalized = readString(in);
+                    String original = readString(in);
+                    int lineNumber = in.readInt();
+                    CodeFragment.Kind kind = version == SNAPSHOT_VERSION_WITHOUT_KINDS
+                            ? CodeFragment.Kind.infer(normalized, original)
+                            : readKind(in);
+                    fragments.add(new CodeFragment(normalized, original, lineNumber, kind));
+                }
+                loaded.put(fileName, fragments);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated shard snapshot: " + snapshotFile, e);
+        }
+        return loaded;
+    }
+
+    /**
+     * Записывает строку в UTF-8 с префиксом длины (без ограничения 64 КБ у writeUTF).
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Читает вид фрагмента, записанный порядковым номером.
+     *
+     * @throws IOException если номер вида неизвестен
+     */
+    static CodeFragment.Kind readKind(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        CodeFragment.Kind[] kinds = CodeFragment.Kind.values();
+        if (ordinal >= kinds.length) {
+            throw new IOException("Unknown fragment kind: " + ordinal);
+        }
+        return kinds[ordinal];
+    }
+
+    /**
+     * Читает строку, записанную методом {@link #writeString}.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package com.plagiarism.checker.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Документные частоты фрагментов базы данных: в скольких файлах встречается
+ * каждый фрагмент (по хешу нормализованного содержимого).
+ * <p>
+ * Обновляется шардами при добавлении, замене и удалении файлов, поэтому
+ * стоимость обновления пропорциональна количеству фрагментов измененного файла.
+ * По частотам определяются стоп-фрагменты — шаблонные фрагменты вроде
+ * {@code return VAR ;}, встречающиеся в большей части файлов, — и вычисляется
+ * обратная документная частота для взвешивания совпадений.
+ */
+public class DocumentFrequencies {
+
+    /** Минимальное количество файлов, начиная с которого определяются стоп-фрагменты */
+    public static final int MIN_DOCUMENTS_FOR_STOP_FRAGMENTS = 10;
+
+    /** Доля изменившихся файлов, после которой множество стоп-фрагментов строится заново */
+    private static final double STOP_SET_REBUILD_RATIO = 0.01;
+
+    /** Документные частоты (хеш фрагмента → количество файлов) */
+    private final Map<Long, Integer> frequencies;
+
+    /** Количество учтенных файлов */
+    private final AtomicInteger documentCount;
+
+    /** Количество изменений частот */
+    private final AtomicLong version;
+
+    /** Последнее построенное множество стоп-фрагментов */
+    private volatile StopFragments stopFragments;
+
+    /**
+     * Множество стоп-фрагментов для доли файлов на момент построения.
+     */
+    private static final class StopFragments {
+        private final double maxRatio;
+        private final long version;
+        private final HashProbeTable table;
+        private final int size;
+
+        private StopFragments(double maxRatio, long version, HashProbeTable table, int size) {
+            this.maxRatio = maxRatio;
+            this.version = version;
+            this.table = table;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Создает пустую таблицу частот.
+     */
+    public DocumentFrequencies() {
+        this.frequencies = new ConcurrentHashMap<>();
+        this.documentCount = new AtomicInteger();
+        this.version = new AtomicLong();
+    }
+
+    /**
+     * Учитывает добавленный файл.
+     *
+     * @param distinctHashes различающиеся хеши фрагментов файла
+     */
+    void add(long[] distinctHashes) {
+        for (long hash : distinctHashes) {
+            frequencies.merge(hash, 1, Integer::sum);
+        }
+        documentCount.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Исключает удаленный файл.
+     *
+     * @param distinctHashes различающиеся хеши фрагментов файла
+     */
+    void remove(long[] distinctHashes) {
+        for (long hash : distinctHashes) {
+            frequencies.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        documentCount.decrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Возвращает количество файлов, содержащих фрагмент с заданным хешем.
+     */
+    public int getFrequency(long hash) {
+        return frequencies.getOrDefault(hash, 0);
+    }
+
+    /**
+     * Возвращает количество учтенных файлов.
+     */
+    public int getDocumentCount() {
+        return documentCount.get();
+    }
+
+    /**
+     * Возвращает количество различных фрагментов базы данных.
+     */
+    public int getDistinctFragmentCount() {
+        return frequencies.size();
+    }
+
+    /**
+     * Возвращает сглаженную обратную документную частоту фрагмента:
+     * {@code ln((1 + N) / (1 + df)) + 1}. Фрагмент, встречающийся во всех файлах,
+     * получает вес 1, редкие фрагменты — больший вес.
+     */
+    public double inverseFrequency(long hash) {
+        return Math.log((1.0 + documentCount.get()) / (1.0 + getFrequency(hash))) + 1.0;
+    }
+
+    /**
+     * Возвращает количество стоп-фрагментов для заданной доли файлов.
+     *
+     * @param maxRatio доля файлов, при превышении которой фрагмент считается стоп-фрагментом
+     */
+    public int getStopFragmentCount(double maxRatio) {
+        return stopFragments(maxRatio).size;
+    }
+
+    /**
+     * Возвращает таблицу стоп-фрагментов: фрагментов, встречающихся в доле файлов больше maxRatio.
+     * <p>
+     * Построение просматривает все частоты, поэтому построенное множество
+     * используется повторно, пока изменилось меньше одного процента файлов:
+     * такие изменения почти не сдвигают долю. На базе меньше
+     * {@link #MIN_DOCUMENTS_FOR_STOP_FRAGMENTS} файлов доля ничего не говорит
+     * о шаблонности фрагмента, и множество пусто.
+     */
+    HashProbeTable stopFragmentTable(double maxRatio) {
+        return stopFragments(maxRatio).table;
+    }
+
+    private StopFragments stopFragments(double maxRatio) {
+        long currentVersion = version.get();
+        StopFragments cached = stopFragments;
+        long tolerance = (long) (documentCount.get() * STOP_SET_REBUILD_RATIO);
+        if (cached != null && cached.maxRatio == maxRatio && currentVersion - cached.version <= tolerance) {
+            return cached;
+        }
+
+        int documents = documentCount.get();
+        long[] stop;
+        if (documents < MIN_DOCUMENTS_FOR_STOP_FRAGMENTS) {
+            stop = new long[0];
+        } else {
+            double limit = maxRatio * documents;
+            stop = frequencies.entrySet().stream()
+                    .filter(entry -> entry.getValue() > limit)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        }
+        StopFragments built = new StopFragments(maxRatio, currentVersion, new HashProbeTable(stop), stop.length);
+        stopFragments = built;
+        return built;
+    }
+}
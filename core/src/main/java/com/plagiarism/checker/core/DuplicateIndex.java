@@ -0,0 +1,101 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс точных копий: канонический хеш содержимого ({@link CanonicalHash}) → файлы базы данных.
+ * <p>
+ * Обновляется шардами при добавлении и удалении файлов. Позволяет при загрузке
+ * хранить производные структуры одинаковых файлов один раз, а при проверке
+ * сразу находить точные копии проверяемой работы, не сравнивая фрагменты.
+ */
+public class DuplicateIndex {
+
+    /** Файлы по каноническим хешам */
+    private final Map<CanonicalHash, Set<IndexedFile>> groups;
+
+    /** Количество файлов, повторяющих содержимое другого файла базы данных */
+    private final AtomicInteger duplicateCount;
+
+    /**
+     * Создает пустой индекс.
+     */
+    public DuplicateIndex() {
+        this.groups = new ConcurrentHashMap<>();
+        this.duplicateCount = new AtomicInteger();
+    }
+
+    /**
+     * Учитывает добавленный файл.
+     */
+    void add(IndexedFile file) {
+        groups.compute(file.getCanonicalHash(), (hash, files) -> {
+            Set<IndexedFile> group = files != null ? files : ConcurrentHashMap.newKeySet();
+            if (group.add(file) && group.size() > 1) {
+                duplicateCount.incrementAndGet();
+            }
+            return group;
+        });
+    }
+
+    /**
+     * Исключает удаленный файл.
+     */
+    void remove(IndexedFile file) {
+        groups.computeIfPresent(file.getCanonicalHash(), (hash, group) -> {
+            if (group.remove(file) && !group.isEmpty()) {
+                duplicateCount.decrementAndGet();
+            }
+            return group.isEmpty() ? null : group;
+        });
+    }
+
+    /**
+     * Находит файлы, нормализованные фрагменты которых совпадают с заданными.
+     * Совпадение хеша подтверждается сравнением фрагментов.
+     *
+     * @param hash канонический хеш фрагментов
+     * @param fragments фрагменты
+     * @return файлы с тем же содержимым (пустой список, если их нет)
+     */
+    List<IndexedFile> find(CanonicalHash hash, List<CodeFragment> fragments) {
+        Set<IndexedFile> group = groups.get(hash);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        List<IndexedFile> found = new ArrayList<>(group.size());
+        for (IndexedFile file : group) {
+            if (file.getFragments().equals(fragments)) {
+                found.add(file);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Возвращает имена файлов с заданным каноническим хешем.
+     */
+    public List<String> getFiles(CanonicalHash hash) {
+        Set<IndexedFile> group = groups.get(hash);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        return group.stream().map(IndexedFile::getFileName).collect(Collectors.toList());
+    }
+
+    /**
+     * Возвращает количество файлов, повторяющих содержимое другого файла базы данных.
+     */
+    public int getDuplicateCount() {
+        return duplicateCount.get();
+    }
+}
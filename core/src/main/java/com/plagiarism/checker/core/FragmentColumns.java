@@ -0,0 +1,216 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.HashUtils;
+
+import java.util.List;
+
+/**
+ * Предвычисленные признаки фрагментов в столбцовом виде.
+ * <p>
+ * Для каждого фрагмента хранятся нормализованное содержимое, его длина и
+ * 64-битный хеш, маски алгоритмических паттернов и конструкций
+ * ({@link AlgorithmMarkers}), множество токенов в виде битовой карты над
+ * номерами общего словаря, количество различных токенов и номер множества
+ * токенов (одинаковые множества фрагментов базы данных получают один номер).
+ * Кроме того, для каждого вида фрагментов ({@link CodeFragment.Kind}) хранится
+ * список номеров фрагментов этого вида, чтобы сравнения отдельных видов
+ * (например, фрагментов всего файла) не просматривали все фрагменты.
+ * Строится один раз для файла базы данных при загрузке
+ * и один раз для проверяемой работы при запросе.
+ */
+final class FragmentColumns {
+
+    /** Нормализованное содержимое фрагментов */
+    private final String[] contents;
+
+    /** Длины нормализованного содержимого */
+    private final int[] lengths;
+
+    /** Хеши нормализованного содержимого фрагментов */
+    private final long[] hashes;
+
+    /** Маски алгоритмических паттернов */
+    private final long[] patternMasks;
+
+    /** Маски алгоритмических конструкций */
+    private final long[] constructionMasks;
+
+    /** Количество различных токенов */
+    private final int[] tokenCounts;
+
+    /** Номера множеств токенов */
+    private final int[] tokenSetIds;
+
+    /** Множества токенов фрагментов */
+    private final TokenSet[] tokenSets;
+
+    /** Номера фрагментов по видам (индекс — порядковый номер вида) */
+    private final int[][] kindPositions;
+
+    /**
+     * Вычисляет признаки фрагментов.
+     * <p>
+     * Фрагменты базы данных получают номера множеств токенов из общего реестра
+     * ({@link TokenSetRegistry}), а в сам реестр множества попадают при учете файла
+     * в базе данных ({@link #acquireTokenSets()}). Для проверяемой работы номера
+     * только ищутся (-1, если такого множества нет в базе), а токены — в словаре,
+     * чтобы запросы не увеличивали ни реестр, ни словарь.
+     *
+     * @param fragments фрагменты в порядке, в котором к ним будут обращаться по номеру
+     * @param register регистрировать ли новые токены и назначать ли номера новым множествам
+     */
+    FragmentColumns(List<CodeFragment> fragments, boolean register) {
+        int size = fragments.size();
+        this.contents = new String[size];
+        this.lengths = new int[size];
+        this.hashes = new long[size];
+        this.patternMasks = new long[size];
+        this.constructionMasks = new long[size];
+        this.tokenCounts = new int[size];
+        this.tokenSetIds = new int[size];
+        this.tokenSets = new TokenSet[size];
+
+        CodeFragment.Kind[] kinds = CodeFragment.Kind.values();
+        int[] kindCounts = new int[kinds.length];
+        for (CodeFragment fragment : fragments) {
+            kindCounts[fragment.getKind().ordinal()]++;
+        }
+        this.kindPositions = new int[kinds.length][];
+        for (CodeFragment.Kind kind : kinds) {
+            kindPositions[kind.ordinal()] = new int[kindCounts[kind.ordinal()]];
+            kindCounts[kind.ordinal()] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int kind = fragments.get(i).getKind().ordinal();
+            kindPositions[kind][kindCounts[kind]++] = i;
+        }
+
+        TokenDictionary dictionary = TokenDictionary.shared();
+        TokenSetRegistry registry = TokenSetRegistry.shared();
+        AlgorithmMarkers markers = AlgorithmMarkers.getDefault();
+        for (int i = 0; i < size; i++) {
+            String content = fragments.get(i).getNormalizedContent();
+            contents[i] = content;
+            if (content == null) {
+                tokenSets[i] = TokenSet.EMPTY;
+                tokenSetIds[i] = -1;
+                continue;
+            }
+            lengths[i] = content.length();
+            hashes[i] = HashUtils.hash64(content);
+            long markerMask = markers.scan(content);
+            patternMasks[i] = markers.patternMask(markerMask);
+            constructionMasks[i] = markers.constructionMask(markerMask);
+
+            TokenSet tokenSet = TokenSet.of(content, dictionary, register);
+            tokenSets[i] = tokenSet;
+            tokenSetIds[i] = register ? registry.idFor(tokenSet) : registry.find(tokenSet);
+            tokenCounts[i] = tokenSet.cardinality();
+        }
+    }
+
+    /**
+     * Добавляет в реестр ссылки на множества токенов фрагментов
+     * (файл учтен в базе данных).
+     */
+    void acquireTokenSets() {
+        TokenSetRegistry registry = TokenSetRegistry.shared();
+        for (int i = 0; i < tokenSets.length; i++) {
+            if (tokenSetIds[i] >= 0) {
+                registry.acquire(tokenSets[i], tokenSetIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Удаляет из реестра ссылки на множества токенов фрагментов
+     * (файл удален из базы данных).
+     */
+    void releaseTokenSets() {
+        TokenSetRegistry registry = TokenSetRegistry.shared();
+        for (int i = 0; i < tokenSets.length; i++) {
+            if (tokenSetIds[i] >= 0) {
+                registry.release(tokenSets[i]);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество фрагментов.
+     */
+    int size() {
+        return hashes.length;
+    }
+
+    /**
+     * Возвращает номера фрагментов заданного вида по возрастанию. Массив нельзя изменять.
+     */
+    int[] positions(CodeFragment.Kind kind) {
+        return kindPositions[kind.ordinal()];
+    }
+
+    /**
+     * Возвращает нормализованное содержимое фрагмента (может быть null).
+     */
+    String content(int index) {
+        return contents[index];
+    }
+
+    /**
+     * Возвращает длину нормализованного содержимого фрагмента.
+     */
+    int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Возвращает хеш нормализованного содержимого фрагмента.
+     */
+    long hash(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * Возвращает копию всех хешей фрагментов.
+     */
+    long[] hashes() {
+        return hashes.clone();
+    }
+
+    /**
+     * Возвращает маску алгоритмических паттернов фрагмента.
+     */
+    long patternMask(int index) {
+        return patternMasks[index];
+    }
+
+    /**
+     * Возвращает маску алгоритмических конструкций фрагмента.
+     */
+    long constructionMask(int index) {
+        return constructionMasks[index];
+    }
+
+    /**
+     * Возвращает количество различных токенов фрагмента.
+     */
+    int tokenCount(int index) {
+        return tokenCounts[index];
+    }
+
+    /**
+     * Возвращает номер множества токенов фрагмента
+     * (-1 для пустого содержимого или множества, которого нет в базе данных).
+     */
+    int tokenSetId(int index) {
+        return tokenSetIds[index];
+    }
+
+    /**
+     * Возвращает множество токенов фрагмента.
+     */
+    TokenSet tokenSet(int index) {
+        return tokenSets[index];
+    }
+}
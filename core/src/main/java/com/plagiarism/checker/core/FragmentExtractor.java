@@ -1,6 +1,7 @@
 package com.plagiarism.checker.core;
 
 import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.AhoCorasick;
 import com.plagiarism.checker.utils.CodeNormalizer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,18 +13,45 @@ import java.util.List;
 /**
  * Класс для извлечения и нормализации фрагментов кода из исходного текста.
  * Создает различные типы фрагментов для более точного сравнения.
+ * <p>
+ * Можно зарегистрировать шаблонный (стартовый) код задания ({@link #addTemplate(String)}):
+ * подряд идущие блоки его нормализованных операторов вычитаются из кода до построения
+ * фрагментов, а паттерн-фрагменты строк из блоков шаблонных строк не извлекаются
+ * ({@link TemplateBlocks}). Тогда общий для всех работ каркас не дает совпадений
+ * ни через полный код, ни через n-граммы, а отдельные тривиальные операторы,
+ * совпавшие с шаблоном вне его контекста, остаются в работе.
  */
 public class FragmentExtractor {
     private static final Logger logger = LogManager.getLogger(FragmentExtractor.class);
 
+    /** Маркеры строк с паттернами (номер маркера — номер бита маски) */
+    private static final AhoCorasick LINE_MARKERS = new AhoCorasick(
+            "for (", ";", "++", " if (", "while (", "return ", "//");
+
+    private static final long FOR = 1L;
+    private static final long SEMICOLON = 1L << 1;
+    private static final long INCREMENT = 1L << 2;
+    private static final long NESTED_IF = 1L << 3;
+    private static final long WHILE = 1L << 4;
+    private static final long RETURN = 1L << 5;
+    private static final long COMMENT = 1L << 6;
+
     /** Нормализатор кода для приведения к единому формату */
     private final CodeNormalizer normalizer;
 
+    /** Блоки нормализованных операторов шаблонного кода */
+    private final TemplateBlocks templateStatements;
+
+    /** Блоки нормализованных строк шаблонного кода (для паттерн-фрагментов) */
+    private final TemplateBlocks templateLines;
+
     /**
      * Конструктор инициализирует экстрактор фрагментов.
      */
     public FragmentExtractor() {
         this.normalizer = new CodeNormalizer();
+        this.templateStatements = new TemplateBlocks();
+        this.templateLines = new TemplateBlocks();
         logger.debug("FragmentExtractor initialized");
     }
 
@@ -55,17 +83,18 @@ public class FragmentExtractor {
         List<CodeFragment> fragments = new ArrayList<>();
 
         try {
-            // 1. Полный нормализованный код
-            String normalized = normalizer.normalize(code);
+            // 1. Полный нормализованный код (без операторов шаблонного кода)
+            String normalized = subtractTemplate(normalizer.normalize(code));
             if (normalized != null && !normalized.trim().isEmpty()) {
-                fragments.add(new CodeFragment(normalized.trim(), "FULL_CODE", 0));
+                fragments.add(new CodeFragment(normalized.trim(), "FULL_CODE", 0, CodeFragment.Kind.FULL_CODE));
             }
 
             // 2. Алгоритмическая нормализация
             String algorithmNormalized = normalizeForAlgorithm(code);
             if (algorithmNormalized.isBlank() && !algorithmNormalized.trim().isEmpty() &&
                     algorithmNormalized.length() > 20) {
-                fragments.add(new CodeFragment(algorithmNormalized.trim(), "ALGORITHM", 0));
+                fragments.add(new CodeFragment(algorithmNormalized.trim(), "ALGORITHM", 0,
+                        CodeFragment.Kind.ALGORITHM));
             }
 
             // 3. Отдельные строки, биграммы, триграммы
@@ -88,6 +117,121 @@ public class FragmentExtractor {
         }
     }
 
+    /**
+     * Регистрирует шаблонный код задания, который нужно вычитать из извлекаемого кода.
+     * Действует на фрагменты, извлеченные после регистрации.
+     *
+     * @param templateCode исходный код шаблона
+     * @return количество новых блоков операторов шаблона
+     */
+    public int addTemplate(String templateCode) {
+        if (templateCode == null || templateCode.isBlank()) {
+            return 0;
+        }
+
+        String normalized = normalizer.normalize(templateCode);
+        int added = normalized != null ? templateStatements.add(statements(normalized)) : 0;
+        int lines = templateLines.add(patternLines(templateCode.split("\n"), null));
+
+        logger.debug("Template registered: {} new statement blocks, {} line blocks", added, lines);
+        return added;
+    }
+
+    /**
+     * Удаляет все зарегистрированные шаблоны.
+     */
+    public void clearTemplates() {
+        templateStatements.clear();
+        templateLines.clear();
+    }
+
+    /**
+     * Возвращает количество различных блоков операторов зарегистрированных шаблонов.
+     */
+    public int getTemplateBlockCount() {
+        return templateStatements.size();
+    }
+
+    /**
+     * Удаляет из нормализованного кода операторы, входящие в блоки шаблонного кода.
+     */
+    private String subtractTemplate(String normalizedCode) {
+        if (normalizedCode == null || templateStatements.isEmpty()) {
+            return normalizedCode;
+        }
+
+        List<String> statements = statements(normalizedCode);
+        boolean[] template = templateStatements.cover(statements);
+        StringBuilder remaining = new StringBuilder(normalizedCode.length());
+        for (int i = 0; i < statements.size(); i++) {
+            if (template[i]) {
+                continue;
+            }
+            if (remaining.length() > 0) {
+                remaining.append(" ; ");
+            }
+            remaining.append(statements.get(i));
+        }
+        return remaining.toString();
+    }
+
+    /**
+     * Возвращает непустые операторы нормализованного кода по порядку.
+     */
+    private static List<String> statements(String normalizedCode) {
+        List<String> statements = new ArrayList<>();
+        for (String statement : normalizedCode.split(";")) {
+            String trimmed = statement.trim();
+            if (!trimmed.isEmpty()) {
+                statements.add(trimmed);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Нормализует строки кода для паттерн-сравнения, пропуская пустые и состоящие
+     * только из скобок и знаков: такие строки одинаковы в любом коде и не должны
+     * связывать в блок шаблона тривиальные строки работы.
+     *
+     * @param lines строки кода
+     * @param lineNumbers массив для номеров исходных строк результата (может быть null)
+     * @return непустые нормализованные строки по порядку
+     */
+    private List<String> patternLines(String[] lines, int[] lineNumbers) {
+        List<String> units = new ArrayList<>();
+        for (int i = 0; i < lines.length; i++) {
+            String normalized = normalizeForPattern(lines[i].trim());
+            if (normalized.chars().anyMatch(Character::isLetterOrDigit)) {
+                if (lineNumbers != null) {
+                    lineNumbers[units.size()] = i;
+                }
+                units.add(normalized);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Отмечает строки кода, входящие в блоки строк шаблонного кода.
+     *
+     * @return признаки шаблонных строк (по номеру строки) или null, если шаблонов нет
+     */
+    private boolean[] templateLineMask(String[] lines) {
+        if (templateLines.isEmpty()) {
+            return null;
+        }
+        int[] lineNumbers = new int[lines.length];
+        boolean[] covered = templateLines.cover(patternLines(lines, lineNumbers));
+        boolean[] mask = new boolean[lines.length];
+        for (int i = 0; i < covered.length; i++) {
+            if (covered[i]) {
+                mask[lineNumbers[i]] = true;
+            }
+        }
+        return mask;
+    }
+
     /**
      * Извлекает отдельные строки, биграммы и триграммы из нормализованного кода.
      */
@@ -98,7 +242,7 @@ public class FragmentExtractor {
         for (int i = 0; i < lines.length; i++) {
             String line = lines[i].trim();
             if (line.length() > 10) {
-                fragments.add(new CodeFragment(line, line, i + 1));
+                fragments.add(new CodeFragment(line, line, i + 1, CodeFragment.Kind.STATEMENT));
             }
         }
 
@@ -109,7 +253,7 @@ public class FragmentExtractor {
             if (!line1.isEmpty() && !line2.isEmpty() &&
                     line1.length() > 8 && line2.length() > 8) {
                 String pair = line1 + " ; " + line2;
-                fragments.add(new CodeFragment(pair, pair, i + 1));
+                fragments.add(new CodeFragment(pair, pair, i + 1, CodeFragment.Kind.STATEMENT));
             }
         }
 
@@ -121,7 +265,7 @@ public class FragmentExtractor {
             if (!line1.isEmpty() && !line2.isEmpty() && !line3.isEmpty() &&
                     line1.length() > 5 && line2.length() > 5 && line3.length() > 5) {
                 String triple = line1 + " ; " + line2 + " ; " + line3;
-                fragments.add(new CodeFragment(triple, triple, i + 1));
+                fragments.add(new CodeFragment(triple, triple, i + 1, CodeFragment.Kind.STATEMENT));
             }
         }
     }
@@ -170,26 +314,33 @@ public class FragmentExtractor {
             }
 
             String[] lines = code.split("\n");
+            boolean[] template = templateLineMask(lines);
             for (int i = 0; i < lines.length; i++) {
+                if (template != null && template[i]) {
+                    continue;
+                }
                 String line = lines[i].trim();
 
+                // Все маркеры строки находятся за один проход
+                long markers = LINE_MARKERS.scan(line);
+
                 // Циклы for
-                if (line.contains("for (") && line.contains(";") && line.contains("++")) {
+                if ((markers & (FOR | SEMICOLON | INCREMENT)) == (FOR | SEMICOLON | INCREMENT)) {
                     addPatternFragment(fragments, line, i);
                 }
 
                 // Условия if
-                if (line.startsWith("if (") || line.contains(" if (")) {
+                if (line.startsWith("if (") || (markers & NESTED_IF) != 0) {
                     addPatternFragment(fragments, line, i);
                 }
 
                 // Циклы while
-                if (line.contains("while (")) {
+                if ((markers & WHILE) != 0) {
                     addPatternFragment(fragments, line, i);
                 }
 
                 // Возвраты
-                if (line.contains("return ") && !line.contains("//")) {
+                if ((markers & RETURN) != 0 && (markers & COMMENT) == 0) {
                     addPatternFragment(fragments, line, i);
                 }
             }
@@ -204,7 +355,7 @@ public class FragmentExtractor {
     private void addPatternFragment(List<CodeFragment> fragments, String line, int lineNumber) {
         String normalized = normalizeForPattern(line);
         if (!normalized.isEmpty()) {
-            fragments.add(new CodeFragment(normalized, line, lineNumber + 1));
+            fragments.add(new CodeFragment(normalized, line, lineNumber + 1, CodeFragment.Kind.PATTERN));
         }
     }
 
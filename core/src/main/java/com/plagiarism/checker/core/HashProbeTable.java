@@ -0,0 +1,72 @@
+package com.plagiarism.checker.core;
+
+import java.util.Arrays;
+
+/**
+ * Таблица проб для точного соединения фрагментов по хешу содержимого.
+ * <p>
+ * Открытая адресация с линейным пробированием: для каждого хеша хранится
+ * номер первого фрагмента с таким хешем. Построение и поиск выполняются
+ * без выделения объектов, поэтому точные совпадения всех фрагментов файла
+ * находятся за O(n + m).
+ */
+final class HashProbeTable {
+
+    /** Признак пустой ячейки */
+    private static final int EMPTY = -1;
+
+    /** Хеши в ячейках */
+    private final long[] keys;
+
+    /** Номера фрагментов в ячейках (EMPTY — ячейка свободна) */
+    private final int[] values;
+
+    /** Маска индекса ячейки */
+    private final int mask;
+
+    /**
+     * Строит таблицу по хешам фрагментов; при повторе хеша сохраняется первый номер.
+     *
+     * @param hashes хеши фрагментов в порядке номеров
+     */
+    HashProbeTable(long[] hashes) {
+        int capacity = Integer.highestOneBit(Math.max(2, hashes.length * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(values, EMPTY);
+
+        for (int index = 0; index < hashes.length; index++) {
+            long hash = hashes[index];
+            int slot = slot(hash);
+            while (values[slot] != EMPTY && keys[slot] != hash) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == EMPTY) {
+                keys[slot] = hash;
+                values[slot] = index;
+            }
+        }
+    }
+
+    /**
+     * Находит первый фрагмент с заданным хешем.
+     *
+     * @param hash хеш содержимого
+     * @return номер фрагмента или -1, если такого хеша нет
+     */
+    int find(long hash) {
+        int slot = slot(hash);
+        while (values[slot] != EMPTY) {
+            if (keys[slot] == hash) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,179 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.BloomFilter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Файл базы данных вместе с производными структурами для быстрого сравнения.
+ * <p>
+ * Все производные данные вычисляются один раз при загрузке файла в базу,
+ * поэтому при проверке работы их не нужно пересчитывать для каждого запроса.
+ * Объект неизменяем и может читаться из нескольких потоков.
+ * <p>
+ * Производные данные зависят только от нормализованного содержимого, поэтому
+ * точные копии файла (с тем же {@link CanonicalHash}) разделяют их с оригиналом.
+ */
+public class IndexedFile {
+
+    /** Имя (путь) файла */
+    private final String fileName;
+
+    /** Фрагменты файла */
+    private final List<CodeFragment> fragments;
+
+    /** Предвычисленные признаки фрагментов (в порядке фрагментов) */
+    private final FragmentColumns columns;
+
+    /** Различающиеся хеши фрагментов */
+    private final long[] distinctHashes;
+
+    /** Фильтр Блума по хешам фрагментов */
+    private final BloomFilter bloomFilter;
+
+    /** Порядок просмотра фрагментов при нечетком сравнении: сначала редко совпадающие */
+    private final int[] scanOrder;
+
+    /** Канонический хеш нормализованного содержимого */
+    private final CanonicalHash canonicalHash;
+
+    /**
+     * Создает индексированный файл и вычисляет его производные структуры.
+     *
+     * @param fileName имя (путь) файла
+     * @param fragments фрагменты файла
+     */
+    public IndexedFile(String fileName, List<CodeFragment> fragments) {
+        this(fileName, fragments, CanonicalHash.of(fragments));
+    }
+
+    /**
+     * Создает индексированный файл с заранее вычисленным каноническим хешем.
+     */
+    IndexedFile(String fileName, List<CodeFragment> fragments, CanonicalHash canonicalHash) {
+        this.fileName = fileName;
+        this.canonicalHash = canonicalHash;
+        this.fragments = Collections.unmodifiableList(fragments);
+        this.columns = new FragmentColumns(this.fragments, true);
+        this.bloomFilter = new BloomFilter(columns.size(), BloomFilter.DEFAULT_BITS_PER_ELEMENT);
+        for (int i = 0; i < columns.size(); i++) {
+            bloomFilter.add(columns.hash(i));
+        }
+        this.distinctHashes = Arrays.stream(columns.hashes()).distinct().toArray();
+        this.scanOrder = discriminativeOrder(columns);
+    }
+
+    /**
+     * Создает точную копию файла под другим именем, разделяющую производные
+     * структуры с оригиналом.
+     *
+     * @param fileName имя (путь) копии
+     * @param fragments фрагменты копии (нормализованное содержимое равно фрагментам оригинала)
+     * @param original файл с тем же нормализованным содержимым
+     */
+    IndexedFile(String fileName, List<CodeFragment> fragments, IndexedFile original) {
+        this.fileName = fileName;
+        this.fragments = Collections.unmodifiableList(fragments);
+        this.columns = original.columns;
+        this.bloomFilter = original.bloomFilter;
+        this.distinctHashes = original.distinctHashes;
+        this.scanOrder = original.scanOrder;
+        this.canonicalHash = original.canonicalHash;
+    }
+
+    /**
+     * Упорядочивает фрагменты по вероятности нечеткого совпадения: фрагменты без
+     * паттернов и с малым количеством конструкций совпадают реже, поэтому идут первыми.
+     * Тогда файл, который не может пройти порог, отбрасывается после нескольких промахов.
+     */
+    private static int[] discriminativeOrder(FragmentColumns columns) {
+        int size = columns.size();
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            int weight = (columns.patternMask(i) != 0 ? Long.SIZE : 0)
+                    + Long.bitCount(columns.constructionMask(i));
+            keys[i] = ((long) weight << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Возвращает имя (путь) файла.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Возвращает неизменяемый список фрагментов файла.
+     */
+    public List<CodeFragment> getFragments() {
+        return fragments;
+    }
+
+    /**
+     * Возвращает хеш нормализованного содержимого фрагмента.
+     *
+     * @param index номер фрагмента
+     */
+    public long getFragmentHash(int index) {
+        return columns.hash(index);
+    }
+
+    /**
+     * Возвращает канонический хеш нормализованного содержимого файла.
+     */
+    public CanonicalHash getCanonicalHash() {
+        return canonicalHash;
+    }
+
+    /**
+     * Возвращает различающиеся хеши фрагментов файла.
+     */
+    long[] getDistinctHashes() {
+        return distinctHashes;
+    }
+
+    /**
+     * Возвращает предвычисленные признаки фрагментов.
+     */
+    FragmentColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * Возвращает порядок просмотра фрагментов при нечетком сравнении.
+     */
+    int[] getScanOrder() {
+        return scanOrder;
+    }
+
+    /**
+     * Возвращает фильтр Блума по хешам фрагментов файла.
+     */
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * Возвращает количество фрагментов файла.
+     */
+    public int getFragmentCount() {
+        return fragments.size();
+    }
+
+    /**
+     * Возвращает количество фрагментов файла заданного вида.
+     */
+    public int getFragmentCount(CodeFragment.Kind kind) {
+        return columns.positions(kind).length;
+    }
+}
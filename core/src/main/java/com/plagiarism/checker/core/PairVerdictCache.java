@@ -0,0 +1,122 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.utils.HashUtils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный кеш решений о схожести пар фрагментов.
+ * <p>
+ * Одна и та же пара «фрагмент базы данных — фрагмент работы» повторяется во многих
+ * файлах (общий стартовый код, типовые циклы), а решение правила зависит только
+ * от содержимого пары. Ключом служит пара 64-битных хешей содержимого, сведенная
+ * к одному перемешанному значению.
+ * <p>
+ * Кеш прямого отображения без блокировок: каждая ячейка — одно 64-битное слово,
+ * в котором хранятся старшие биты ключа и решение. Запись в занятую ячейку
+ * вытесняет прежнее решение, поэтому размер кеша не растет. Потоки шардов
+ * читают и пишут ячейки независимо; счетчики попаданий не создают общей точки
+ * записи благодаря {@link LongAdder}.
+ */
+final class PairVerdictCache {
+
+    /** Емкость кеша по умолчанию (количество ячеек) */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Максимальная емкость кеша */
+    static final int MAX_CAPACITY = 1 << 26;
+
+    /** Решение для пары неизвестно */
+    static final int UNKNOWN = -1;
+
+    /** Множитель для сведения пары хешей к одному значению (золотое сечение) */
+    private static final long PAIR_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Ячейки: ключ без младшего бита | решение; 0 — пустая ячейка */
+    private final AtomicLongArray slots;
+
+    /** Маска номера ячейки */
+    private final int mask;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Создает кеш с емкостью, округленной вверх до степени двойки.
+     *
+     * @param capacity количество ячеек (от 1 до {@link #MAX_CAPACITY})
+     */
+    PairVerdictCache(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Cache capacity must be between 1 and " + MAX_CAPACITY
+                    + ", got: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Сводит хеши фрагментов пары к ключу кеша. Порядок хешей важен:
+     * правила несимметричны относительно фрагментов базы данных и работы.
+     */
+    static long key(long dbHash, long checkHash) {
+        long key = HashUtils.mix64(dbHash * PAIR_MULTIPLIER + checkHash) & ~1L;
+        // Нулевое слово обозначает пустую ячейку
+        return key == 0 ? 2 : key;
+    }
+
+    /**
+     * Возвращает сохраненное решение для пары.
+     *
+     * @param key ключ пары ({@link #key(long, long)})
+     * @return 1 — пары схожи, 0 — не схожи, {@link #UNKNOWN} — решения нет
+     */
+    int get(long key) {
+        long entry = slots.getAcquire(slot(key));
+        if ((entry & ~1L) == key) {
+            hits.increment();
+            return (int) (entry & 1);
+        }
+        misses.increment();
+        return UNKNOWN;
+    }
+
+    /**
+     * Сохраняет решение для пары, вытесняя прежнее содержимое ячейки.
+     */
+    void put(long key, boolean verdict) {
+        slots.setRelease(slot(key), verdict ? key | 1 : key);
+    }
+
+    private int slot(long key) {
+        return (int) (key >>> 32) & mask;
+    }
+
+    /**
+     * Возвращает количество ячеек кеша.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Возвращает количество найденных в кеше решений.
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Возвращает количество обращений, для которых решения в кеше не было.
+     */
+    long misses() {
+        return misses.sum();
+    }
+}
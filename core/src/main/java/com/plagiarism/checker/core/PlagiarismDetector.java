@@ -0,0 +1,565 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Основной фасадный класс для детектирования плагиата в Java коде.
+ * Координирует работу DatabaseManager, FragmentExtractor и SimilarityCalculator.
+ */
+public class PlagiarismDetector {
+    private static final Logger logger = LogManager.getLogger(PlagiarismDetector.class);
+
+    /** Менеджер базы данных */
+    private final DatabaseManager databaseManager;
+
+    /** Экстрактор фрагментов */
+    private final FragmentExtractor fragmentExtractor;
+
+    /** Калькулятор схожести */
+    private final SimilarityCalculator similarityCalculator;
+
+    /** Флаг выполнения операции */
+    private volatile boolean processingInProgress;
+
+    /**
+     * Конструктор инициализирует детектор плагиата.
+     */
+    public PlagiarismDetector() {
+        this.databaseManager = new DatabaseManager();
+        this.fragmentExtractor = new FragmentExtractor();
+        this.similarityCalculator = new SimilarityCalculator();
+        this.processingInProgress = false;
+        logger.debug("PlagiarismDetector initialized");
+    }
+
+    /**
+     * Загружает базу данных Java файлов из указанной директории.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @throws IOException если возникает ошибка чтения файлов или директория не существует
+     * @throws IllegalStateException если уже выполняется другая операция
+     */
+    public void loadDatabase(Path databasePath) throws IOException {
+        loadDatabase(databasePath, file -> true);
+    }
+
+    /**
+     * Загружает в базу данных только те Java файлы директории, которые проходят фильтр.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param fileFilter фильтр файлов, которые должны попасть в базу данных
+     * @throws IOException если возникает ошибка чтения файлов или директория не существует
+     * @throws IllegalStateException если уже выполняется другая операция
+     */
+    public void loadDatabase(Path databasePath, Predicate<Path> fileFilter) throws IOException {
+        loadDatabaseWithProgress(databasePath, fileFilter, ProgressListener.NONE);
+    }
+
+    /**
+     * Загружает базу данных Java файлов из указанной директории, сообщая о ходе загрузки.
+     * Отдельное имя метода исключает неоднозначность с {@link #loadDatabase(Path, Predicate)}
+     * для лямбда-выражений.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param progressListener получатель сведений о ходе загрузки
+     * @throws IOException если возникает ошибка чтения файлов или директория не существует
+     * @throws IllegalStateException если уже выполняется другая операция
+     */
+    public void loadDatabaseWithProgress(Path databasePath, ProgressListener progressListener) throws IOException {
+        loadDatabaseWithProgress(databasePath, file -> true, progressListener);
+    }
+
+    /**
+     * Загружает в базу данных Java файлы директории, проходящие фильтр, сообщая о ходе загрузки.
+     *
+     * @param databasePath путь к директории с Java файлами
+     * @param fileFilter фильтр файлов, которые должны попасть в базу данных
+     * @param progressListener получатель сведений о ходе загрузки
+     * @throws IOException если возникает ошибка чтения файлов или директория не существует
+     * @throws IllegalStateException если уже выполняется другая операция
+     */
+    public void loadDatabaseWithProgress(Path databasePath, Predicate<Path> fileFilter,
+                                         ProgressListener progressListener) throws IOException {
+        if (processingInProgress) {
+            throw new IllegalStateException("Operation already in progress. Please wait for completion.");
+        }
+
+        processingInProgress = true;
+        try {
+            databaseManager.loadDatabaseWithProgress(databasePath, fragmentExtractor, fileFilter, progressListener);
+            logger.info("=== DATABASE LOADING COMPLETED ===");
+        } finally {
+            processingInProgress = false;
+        }
+    }
+
+    /**
+     * Регистрирует директорию с шаблонным (стартовым) кодом задания. Подряд идущие
+     * блоки операторов и строк шаблонов вычитаются из кода при извлечении фрагментов,
+     * поэтому общий каркас не дает совпадений между работами. Действует на файлы, добавленные
+     * в базу данных и проверенные после регистрации: шаблоны нужно регистрировать
+     * до загрузки базы данных (или перезагрузить ее).
+     *
+     * @param templateDirectory директория с Java файлами шаблона
+     * @return количество новых блоков операторов шаблона
+     * @throws IOException если директория или файлы шаблона не могут быть прочитаны
+     */
+    public int addTemplateDirectory(Path templateDirectory) throws IOException {
+        if (templateDirectory == null || !Files.isDirectory(templateDirectory)) {
+            throw new IOException("Template directory does not exist: " + templateDirectory);
+        }
+
+        int added = 0;
+        List<Path> templateFiles = FileUtils.findJavaFiles(templateDirectory);
+        for (Path templateFile : templateFiles) {
+            added += fragmentExtractor.addTemplate(FileUtils.readFile(templateFile));
+        }
+        if (databaseManager.isLoaded()) {
+            logger.warn("Template registered after the database was loaded; reload it to exclude the template from database files");
+        }
+        logger.info("Registered {} template files from {} ({} statement blocks)", templateFiles.size(), templateDirectory, added);
+        return added;
+    }
+
+    /**
+     * Добавляет в базу данных один Java файл без перезагрузки базы.
+     * Файл с тем же путем заменяется. Может вызываться параллельно с проверками.
+     *
+     * @param file путь к Java файлу
+     * @return количество фрагментов файла (0 — фрагментов нет, файл не добавлен)
+     * @throws IOException если файл не может быть прочитан
+     */
+    public int addFile(Path file) throws IOException {
+        return databaseManager.addFile(file, fragmentExtractor);
+    }
+
+    /**
+     * Добавляет в базу данных несколько Java файлов без перезагрузки базы.
+     *
+     * @param files пути к Java файлам
+     * @return количество добавленных файлов
+     * @throws IOException если добавление прервано
+     */
+    public int addFiles(Collection<Path> files) throws IOException {
+        return databaseManager.addFiles(files, fragmentExtractor);
+    }
+
+    /**
+     * Добавляет в базу данных один файл по его исходному коду без перезагрузки базы.
+     * Файл с тем же идентификатором заменяется. Может вызываться параллельно с проверками.
+     *
+     * @param id идентификатор (имя) файла в базе данных
+     * @param code исходный код файла
+     * @return количество фрагментов файла (0 — фрагментов нет, файл не добавлен)
+     */
+    public int addSource(String id, String code) {
+        return databaseManager.addSource(id, code, fragmentExtractor);
+    }
+
+    /**
+     * Добавляет в базу данных несколько файлов по их исходному коду.
+     *
+     * @param sources исходный код файлов по их идентификаторам
+     * @return количество добавленных файлов
+     */
+    public int addSources(Map<String, String> sources) {
+        return databaseManager.addSources(sources, fragmentExtractor);
+    }
+
+    /**
+     * Удаляет файл из базы данных без перезагрузки базы.
+     *
+     * @param id идентификатор (имя) файла в базе данных
+     * @return true, если файл был в базе данных
+     */
+    public boolean removeFile(String id) {
+        return databaseManager.removeFile(id);
+    }
+
+    /**
+     * Удаляет несколько файлов из базы данных.
+     *
+     * @param ids идентификаторы файлов
+     * @return количество удаленных файлов
+     */
+    public int removeFiles(Collection<String> ids) {
+        return databaseManager.removeFiles(ids);
+    }
+
+    /**
+     * Открывает сегментированный индекс базы данных в директории и восстанавливает
+     * из него базу данных. Последующие изменения записываются в индекс, а проверки
+     * выполняются по его сегментам.
+     *
+     * @param directory директория сегментов (создается при необходимости)
+     * @return количество восстановленных файлов
+     * @throws IOException если сегменты не удалось прочитать
+     * @throws IllegalStateException если уже выполняется другая операция
+     */
+    public int openSegments(Path directory) throws IOException {
+        if (processingInProgress) {
+            throw new IllegalStateException("Operation already in progress. Please wait for completion.");
+        }
+
+        processingInProgress = true;
+        try {
+            return databaseManager.openSegments(new SegmentStore(directory));
+        } finally {
+            processingInProgress = false;
+        }
+    }
+
+    /**
+     * Сбрасывает несохраненные изменения базы данных и закрывает сегментированное хранилище.
+     *
+     * @throws IOException если изменения не удалось записать
+     */
+    public void closeSegments() throws IOException {
+        databaseManager.closeSegments();
+    }
+
+    /**
+     * Проверяет код на наличие плагиата в загруженной базе данных.
+     *
+     * @param codeToCheck код для проверки на плагиат
+     * @return список результатов проверки с файлами и процентами схожести
+     */
+    public List<PlagiarismResult> checkForPlagiarism(String codeToCheck) {
+        return checkForPlagiarism(codeToCheck, 0);
+    }
+
+    /**
+     * Проверяет код на наличие плагиата и возвращает не более заданного числа лучших результатов.
+     *
+     * @param codeToCheck код для проверки на плагиат
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return список результатов проверки с файлами и процентами схожести
+     */
+    public List<PlagiarismResult> checkForPlagiarism(String codeToCheck, int maxResults) {
+        return checkForPlagiarism(codeToCheck, maxResults, ProgressListener.NONE);
+    }
+
+    /**
+     * Проверяет код на наличие плагиата, сообщая о ходе сравнения с файлами базы данных.
+     *
+     * @param codeToCheck код для проверки на плагиат
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @param progressListener получатель сведений о ходе сравнения
+     * @return список результатов проверки с файлами и процентами схожести
+     */
+    public List<PlagiarismResult> checkForPlagiarism(String codeToCheck, int maxResults,
+                                                     ProgressListener progressListener) {
+        if (processingInProgress) {
+            logger.error("Operation already in progress");
+            return Collections.emptyList();
+        }
+
+        if (codeToCheck == null || codeToCheck.trim().isEmpty()) {
+            logger.warn("Empty code provided for checking");
+            return Collections.emptyList();
+        }
+
+        if (!databaseManager.isLoaded()) {
+            logger.warn("Database not loaded or empty");
+            return Collections.emptyList();
+        }
+
+        processingInProgress = true;
+        logger.info("=== STARTING PLAGIARISM CHECK ===");
+
+        try {
+            // Извлекаем фрагменты из проверяемого кода
+            List<CodeFragment> checkFragments = fragmentExtractor.extractFragments(codeToCheck);
+            if (checkFragments.isEmpty()) {
+                logger.warn("No fragments extracted from checked code");
+                return Collections.emptyList();
+            }
+
+            logger.info("Checked code contains {} fragments", checkFragments.size());
+
+            List<PlagiarismResult> results = compareFragments(checkFragments, maxResults, progressListener);
+
+            logger.info("=== CHECK COMPLETED ===");
+            logger.info("Found {} files with suspected plagiarism", results.size());
+
+            return results;
+
+        } catch (OutOfMemoryError e) {
+            logger.error("Insufficient memory for plagiarism check");
+            return Collections.emptyList();
+        } catch (Exception e) {
+            logger.error("Critical error during plagiarism check: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        } finally {
+            processingInProgress = false;
+        }
+    }
+
+    /**
+     * Проверяет уже извлеченные фрагменты кода по загруженной базе данных.
+     * <p>
+     * В отличие от {@link #checkForPlagiarism(String)} метод не блокирует
+     * параллельные вызовы, поэтому предназначен для серверных режимов,
+     * обрабатывающих несколько запросов одновременно.
+     *
+     * @param checkFragments фрагменты проверяемого кода
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return список результатов проверки с файлами и процентами схожести
+     */
+    public List<PlagiarismResult> checkFragments(List<CodeFragment> checkFragments, int maxResults) {
+        if (checkFragments == null || checkFragments.isEmpty()) {
+            logger.warn("No fragments provided for checking");
+            return Collections.emptyList();
+        }
+
+        if (!databaseManager.isLoaded()) {
+            logger.warn("Database not loaded or empty");
+            return Collections.emptyList();
+        }
+
+        try {
+            return compareFragments(checkFragments, maxResults, ProgressListener.NONE);
+        } catch (OutOfMemoryError e) {
+            logger.error("Insufficient memory for plagiarism check");
+            return Collections.emptyList();
+        } catch (Exception e) {
+            logger.error("Critical error during fragment check: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Проверяет пакет работ за один проход по базе данных.
+     * Как и {@link #checkFragments(List, int)}, не блокирует параллельные вызовы.
+     *
+     * @param batch фрагменты проверяемых работ
+     * @param maxResults максимальное количество результатов на работу (0 — без ограничения)
+     * @return списки результатов в порядке работ пакета
+     */
+    public List<List<PlagiarismResult>> checkFragmentsBatch(List<List<CodeFragment>> batch, int maxResults) {
+        List<List<PlagiarismResult>> empty = new ArrayList<>();
+        if (batch != null) {
+            batch.forEach(submission -> empty.add(Collections.emptyList()));
+        }
+
+        if (batch == null || batch.isEmpty()) {
+            return empty;
+        }
+
+        if (!databaseManager.isLoaded()) {
+            logger.warn("Database not loaded or empty");
+            return empty;
+        }
+
+        try {
+            List<List<Map<String, Object>>> similarityResults = similarityCalculator.calculateBatchSimilarities(
+                    batch, databaseManager.getShards(), maxResults);
+
+            List<List<PlagiarismResult>> results = new ArrayList<>(similarityResults.size());
+            for (List<Map<String, Object>> submissionResults : similarityResults) {
+                results.add(submissionResults.stream()
+                        .map(this::createPlagiarismResult)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+            }
+            return results;
+
+        } catch (OutOfMemoryError e) {
+            logger.error("Insufficient memory for batch check");
+            return empty;
+        } catch (Exception e) {
+            logger.error("Critical error during batch check: {}", e.getMessage(), e);
+            return empty;
+        }
+    }
+
+    /**
+     * Сравнивает фрагменты кода с заданными работами, которых нет в базе данных
+     * (например, с другими работами того же пакета). Фрагменты взвешиваются по
+     * документным частотам базы данных, поэтому результаты сопоставимы с проверкой
+     * по базе. Не блокирует параллельные вызовы.
+     *
+     * @param checkFragments фрагменты проверяемого кода
+     * @param entries работы для сравнения (идентификатор → фрагменты)
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return список результатов по убыванию схожести
+     */
+    public List<PlagiarismResult> checkFragmentsAgainst(List<CodeFragment> checkFragments,
+                                                        Map<String, List<CodeFragment>> entries,
+                                                        int maxResults) {
+        if (checkFragments == null || checkFragments.isEmpty() || entries == null || entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            return similarityCalculator.calculateSimilarities(checkFragments, entries,
+                            databaseManager.getDocumentFrequencies()).stream()
+                    .limit(maxResults > 0 ? maxResults : Long.MAX_VALUE)
+                    .map(this::createPlagiarismResult)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            logger.error("Critical error during fragment check: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Сравнивает фрагменты со всеми шардами базы данных и формирует результаты.
+     */
+    private List<PlagiarismResult> compareFragments(List<CodeFragment> checkFragments, int maxResults,
+                                                    ProgressListener progressListener) {
+        logger.info("Comparing against {} database files in {} shards",
+                databaseManager.getFileCount(), databaseManager.getShardCount());
+
+        // Рассчитываем схожести параллельно по всем шардам
+        List<Map<String, Object>> similarityResults = similarityCalculator.calculateSimilarities(
+                checkFragments, databaseManager.getShards(), maxResults, progressListener);
+
+        // Преобразуем в PlagiarismResult
+        return similarityResults.stream()
+                .map(this::createPlagiarismResult)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Создает объект PlagiarismResult из результата сравнения.
+     */
+    @SuppressWarnings("unchecked")
+    private PlagiarismResult createPlagiarismResult(Map<String, Object> resultMap) {
+        try {
+            String fileName = (String) resultMap.get("fileName");
+            double similarity = (double) resultMap.get("similarity");
+            Map<CodeFragment, List<String>> matchedFragments =
+                    (Map<CodeFragment, List<String>>) resultMap.get("matchedFragments");
+
+            return new PlagiarismResult(fileName, similarity, matchedFragments);
+        } catch (Exception e) {
+            logger.error("Error creating PlagiarismResult: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Проверяет файл на наличие плагиата.
+     *
+     * @param filePath путь к файлу для проверки
+     * @return список результатов проверки на плагиат
+     * @throws IOException если файл не существует, не читается или не является Java файлом
+     */
+    public List<PlagiarismResult> checkFileForPlagiarism(Path filePath) throws IOException {
+        return checkFileForPlagiarism(filePath, ProgressListener.NONE);
+    }
+
+    /**
+     * Проверяет файл на наличие плагиата, сообщая о ходе сравнения с файлами базы данных.
+     *
+     * @param filePath путь к файлу для проверки
+     * @param progressListener получатель сведений о ходе сравнения
+     * @return список результатов проверки на плагиат
+     * @throws IOException если файл не существует, не читается или не является Java файлом
+     */
+    public List<PlagiarismResult> checkFileForPlagiarism(Path filePath,
+                                                         ProgressListener progressListener) throws IOException {
+        logger.info("Checking file for plagiarism: {}", filePath);
+
+        validateFilePath(filePath);
+        String content = FileUtils.readFile(filePath);
+        return checkForPlagiarism(content, 0, progressListener);
+    }
+
+    /**
+     * Валидирует путь к файлу для проверки.
+     */
+    private void validateFilePath(Path filePath) throws IOException {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+
+        if (!filePath.toString().toLowerCase().endsWith(".java")) {
+            throw new IOException("File must have .java extension: " + filePath);
+        }
+    }
+
+    /**
+     * Возвращает список файлов в загруженной базе данных.
+     */
+    public List<String> getDatabaseFiles() {
+        return databaseManager.getDatabaseFiles();
+    }
+
+    /**
+     * Возвращает статистику по загруженной базе данных.
+     */
+    public Map<String, Integer> getDatabaseStats() {
+        return databaseManager.getStatistics();
+    }
+
+    /**
+     * Очищает базу данных.
+     */
+    public void clearDatabase() {
+        databaseManager.clear();
+    }
+
+    /**
+     * Проверяет, загружена ли база данных.
+     */
+    public boolean isDatabaseLoaded() {
+        return databaseManager.isLoaded();
+    }
+
+    /**
+     * Проверяет, выполняется ли в данный момент какая-либо операция.
+     */
+    public boolean isProcessingInProgress() {
+        return processingInProgress;
+    }
+
+    /**
+     * Возвращает количество файлов в базе данных.
+     */
+    public int getDatabaseFileCount() {
+        return databaseManager.getFileCount();
+    }
+
+    /**
+     * Возвращает общее количество фрагментов во всех файлах базы данных.
+     */
+    public int getTotalFragmentsCount() {
+        return databaseManager.getTotalFragmentsCount();
+    }
+
+    /**
+     * Возвращает менеджер базы данных.
+     */
+    public DatabaseManager getDatabaseManager() {
+        return databaseManager;
+    }
+
+    /**
+     * Возвращает экстрактор фрагментов.
+     */
+    public FragmentExtractor getFragmentExtractor() {
+        return fragmentExtractor;
+    }
+
+    /**
+     * Возвращает калькулятор схожести.
+     */
+    public SimilarityCalculator getSimilarityCalculator() {
+        return similarityCalculator;
+    }
+}
\ No newline at end of file
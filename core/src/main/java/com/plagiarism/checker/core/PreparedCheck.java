@@ -0,0 +1,90 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Проверяемая работа, подготовленная к сравнению с файлами базы данных.
+ * <p>
+ * Собирает структуры, которые строятся один раз на запрос и затем
+ * используются при сравнении с каждым файлом: признаки фрагментов,
+ * различающиеся хеши для фильтра Блума, таблицу проб для точных совпадений,
+ * индекс окон для правила вхождения и индекс префиксов токенов.
+ */
+final class PreparedCheck {
+
+    /** Фрагменты проверяемого кода */
+    private final List<CodeFragment> fragments;
+
+    /** Признаки фрагментов */
+    private final FragmentColumns columns;
+
+    /** Различающиеся хеши фрагментов */
+    private final long[] distinctHashes;
+
+    /** Таблица проб по хешам фрагментов для точных совпадений */
+    private final HashProbeTable exactTable;
+
+    /** Индекс отпечатков окон для правила вхождения */
+    private final ContainmentIndex containmentIndex;
+
+    /** Индекс префиксов токенов для токенного правила */
+    private final TokenPrefixIndex tokenIndex;
+
+    /**
+     * Подготавливает работу к сравнению.
+     *
+     * @param fragments фрагменты проверяемого кода
+     * @param minContainmentLength минимальная длина фрагментов для правила вхождения
+     * @param containmentRatio минимальное соотношение длин для правила вхождения
+     * @param tokenThreshold порог токенного сходства в процентах
+     * @param maxTokenLength максимальная длина фрагмента для токенного правила (не включительно)
+     */
+    PreparedCheck(List<CodeFragment> fragments, int minContainmentLength, double containmentRatio,
+                  double tokenThreshold, int maxTokenLength) {
+        this.fragments = fragments;
+        this.columns = new FragmentColumns(fragments, false);
+        this.distinctHashes = Arrays.stream(columns.hashes()).distinct().toArray();
+        this.exactTable = new HashProbeTable(columns.hashes());
+        this.containmentIndex = new ContainmentIndex(columns, minContainmentLength, containmentRatio);
+        this.tokenIndex = new TokenPrefixIndex(columns, tokenThreshold, maxTokenLength);
+    }
+
+    List<CodeFragment> fragments() {
+        return fragments;
+    }
+
+    FragmentColumns columns() {
+        return columns;
+    }
+
+    long[] distinctHashes() {
+        return distinctHashes;
+    }
+
+    /**
+     * Находит первый фрагмент работы, точно совпадающий с фрагментом базы данных.
+     *
+     * @param db признаки фрагментов файла базы данных
+     * @param i номер фрагмента базы данных
+     * @return номер фрагмента работы или -1, если точного совпадения нет
+     */
+    int findExact(FragmentColumns db, int i) {
+        String content = db.content(i);
+        if (content == null) {
+            return -1;
+        }
+        int j = exactTable.find(db.hash(i));
+        return j >= 0 && content.equals(columns.content(j)) ? j : -1;
+    }
+
+    ContainmentIndex containmentIndex() {
+        return containmentIndex;
+    }
+
+    TokenPrefixIndex tokenIndex() {
+        return tokenIndex;
+    }
+}
@@ -0,0 +1,24 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.ProgressSnapshot;
+
+/**
+ * Получатель сведений о ходе загрузки базы данных и проверки работ.
+ * <p>
+ * Вызывается из рабочих потоков операции не чаще 20 раз в секунду и один раз
+ * по завершении операции. Реализация должна быстро возвращать управление
+ * и сама переносить обновление интерфейса в нужный поток.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /** Получатель, игнорирующий все сведения */
+    ProgressListener NONE = progress -> { };
+
+    /**
+     * Сообщает о ходе операции.
+     *
+     * @param progress снимок хода операции
+     */
+    void onProgress(ProgressSnapshot progress);
+}
@@ -0,0 +1,100 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.ProgressSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики хода операции, которые обновляются из нескольких потоков.
+ * <p>
+ * Обновления объединяются: получатель вызывается не чаще
+ * {@link #MAX_UPDATES_PER_SECOND} раз в секунду тем потоком, который первым
+ * заметил, что интервал истек. Итоговый снимок передается методом {@link #finish()}.
+ */
+final class ProgressTracker {
+    private static final Logger logger = LogManager.getLogger(ProgressTracker.class);
+
+    /** Максимальная частота уведомлений получателя */
+    static final int MAX_UPDATES_PER_SECOND = 20;
+
+    /** Минимальный интервал между уведомлениями в наносекундах */
+    private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L / MAX_UPDATES_PER_SECOND;
+
+    private final String phase;
+    private final long totalFiles;
+    private final ProgressListener listener;
+    private final long startNanos;
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder fragments = new LongAdder();
+    private final LongAdder comparisons = new LongAdder();
+
+    /** Время последнего уведомления */
+    private final AtomicLong lastReportNanos;
+
+    /**
+     * Создает счетчики хода операции.
+     *
+     * @param phase название этапа операции
+     * @param totalFiles общее количество файлов
+     * @param listener получатель сведений о ходе операции
+     */
+    ProgressTracker(String phase, long totalFiles, ProgressListener listener) {
+        this.phase = phase;
+        this.totalFiles = totalFiles;
+        this.listener = listener != null ? listener : ProgressListener.NONE;
+        this.startNanos = System.nanoTime();
+        this.lastReportNanos = new AtomicLong(startNanos - REPORT_INTERVAL_NANOS);
+    }
+
+    /**
+     * Учитывает обработанный файл и при необходимости уведомляет получателя.
+     *
+     * @param fileBytes размер файла в байтах
+     * @param fileFragments количество фрагментов файла
+     * @param fileComparisons количество сравнений пар фрагментов
+     */
+    void fileProcessed(long fileBytes, long fileFragments, long fileComparisons) {
+        files.increment();
+        if (fileBytes != 0) {
+            bytes.add(fileBytes);
+        }
+        if (fileFragments != 0) {
+            fragments.add(fileFragments);
+        }
+        if (fileComparisons != 0) {
+            comparisons.add(fileComparisons);
+        }
+        if (listener == ProgressListener.NONE) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long last = lastReportNanos.get();
+        if (now - last >= REPORT_INTERVAL_NANOS && lastReportNanos.compareAndSet(last, now)) {
+            report(now);
+        }
+    }
+
+    /**
+     * Передает получателю итоговый снимок операции.
+     */
+    void finish() {
+        if (listener != ProgressListener.NONE) {
+            report(System.nanoTime());
+        }
+    }
+
+    private void report(long now) {
+        try {
+            listener.onProgress(new ProgressSnapshot(phase, files.sum(), totalFiles, bytes.sum(),
+                    fragments.sum(), comparisons.sum(), now - startNanos));
+        } catch (RuntimeException e) {
+            logger.warn("Progress listener failed: {}", e.getMessage());
+        }
+    }
+}
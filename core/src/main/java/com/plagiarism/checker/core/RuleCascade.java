@@ -0,0 +1,187 @@
+package com.plagiarism.checker.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный порядок правил схожести фрагментов.
+ * <p>
+ * Пара фрагментов схожа, если срабатывает любое из правил, поэтому порядок
+ * их проверки влияет только на стоимость, но не на решение. Каскад измеряет
+ * на выборке пар среднюю стоимость каждого правила и долю его срабатываний
+ * и периодически переупорядочивает правила по возрастанию отношения
+ * стоимости к доле срабатываний: дешевые и часто срабатывающие правила
+ * проверяются первыми.
+ * <p>
+ * Выборка определяется битами хеша пары, поэтому решение о замере не требует
+ * общего состояния. Доля срабатываний оценивается со сглаживанием: правило без
+ * замеров считается срабатывающим в половине случаев, поэтому правило,
+ * попавшее в конец, со временем снова получает замеры.
+ */
+final class RuleCascade {
+
+    /**
+     * Правила схожести фрагментов.
+     */
+    enum Rule {
+        /** Точное совпадение */
+        EXACT,
+        /** Содержание одного фрагмента в другом */
+        CONTAINMENT,
+        /** Алгоритмическая схожесть по маркерам */
+        ALGORITHM,
+        /** Токенное сходство коротких фрагментов */
+        TOKEN
+    }
+
+    /** Маска хеша пары: замеряется примерно одна пара из 64 */
+    private static final long SAMPLE_MASK = 63;
+
+    /** Количество замеров между пересчетами порядка */
+    static final int REORDER_INTERVAL = 4096;
+
+    /** Исходный порядок правил */
+    private static final Rule[] DEFAULT_ORDER = Rule.values();
+
+    private final LongAdder[] samples;
+    private final LongAdder[] hits;
+    private final LongAdder[] nanos;
+
+    /** Общее количество замеров */
+    private final AtomicLong sampleCount;
+
+    /** Количество пересчетов порядка */
+    private final AtomicLong reorderCount;
+
+    /** Текущий порядок правил (массив не изменяется после публикации) */
+    private volatile Rule[] order;
+
+    /** Переупорядочивать ли правила по замерам */
+    private volatile boolean adaptive;
+
+    RuleCascade() {
+        int count = DEFAULT_ORDER.length;
+        this.samples = new LongAdder[count];
+        this.hits = new LongAdder[count];
+        this.nanos = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = new LongAdder();
+            hits[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+        }
+        this.sampleCount = new AtomicLong();
+        this.reorderCount = new AtomicLong();
+        this.order = DEFAULT_ORDER;
+        this.adaptive = true;
+    }
+
+    /**
+     * Возвращает текущий порядок правил. Массив нельзя изменять.
+     */
+    Rule[] order() {
+        return order;
+    }
+
+    /**
+     * Проверяет, нужно ли замерять правила для пары с заданным хешем.
+     */
+    boolean isSampled(long pairHash) {
+        return adaptive && (pairHash & SAMPLE_MASK) == 0;
+    }
+
+    /**
+     * Учитывает замер одного правила и при необходимости пересчитывает порядок.
+     *
+     * @param rule проверенное правило
+     * @param elapsedNanos время проверки
+     * @param fired сработало ли правило
+     */
+    void record(Rule rule, long elapsedNanos, boolean fired) {
+        int index = rule.ordinal();
+        samples[index].increment();
+        nanos[index].add(elapsedNanos);
+        if (fired) {
+            hits[index].increment();
+        }
+        if (sampleCount.incrementAndGet() % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+    }
+
+    /**
+     * Включает или отключает переупорядочивание. При отключении восстанавливается
+     * исходный порядок правил.
+     */
+    void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            this.order = DEFAULT_ORDER;
+        }
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Упорядочивает правила по возрастанию ожидаемой стоимости одного срабатывания.
+     */
+    private synchronized void reorder() {
+        if (!adaptive) {
+            return;
+        }
+        double[] scores = new double[DEFAULT_ORDER.length];
+        for (Rule rule : DEFAULT_ORDER) {
+            scores[rule.ordinal()] = score(rule);
+        }
+        Rule[] reordered = DEFAULT_ORDER.clone();
+        // Сортировка устойчива: при равных оценках сохраняется исходный порядок
+        Arrays.sort(reordered, Comparator.comparingDouble(rule -> scores[rule.ordinal()]));
+        order = reordered;
+        reorderCount.incrementAndGet();
+    }
+
+    /**
+     * Оценивает стоимость правила в расчете на одно срабатывание.
+     */
+    private double score(Rule rule) {
+        int index = rule.ordinal();
+        long sampled = samples[index].sum();
+        double averageNanos = (nanos[index].sum() + 1.0) / (sampled + 1.0);
+        double hitRate = (hits[index].sum() + 1.0) / (sampled + 2.0);
+        return averageNanos / hitRate;
+    }
+
+    /**
+     * Возвращает количество пересчетов порядка.
+     */
+    long getReorderCount() {
+        return reorderCount.get();
+    }
+
+    /**
+     * Возвращает статистику правил в текущем порядке проверки.
+     */
+    List<Map<String, Object>> statistics() {
+        List<Map<String, Object>> statistics = new ArrayList<>();
+        for (Rule rule : order) {
+            int index = rule.ordinal();
+            long sampled = samples[index].sum();
+            long fired = hits[index].sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("rule", rule.name().toLowerCase());
+            entry.put("samples", sampled);
+            entry.put("hits", fired);
+            entry.put("hit_rate", sampled == 0 ? 0.0 : (double) fired / sampled);
+            entry.put("avg_nanos", sampled == 0 ? 0.0 : (double) nanos[index].sum() / sampled);
+            statistics.add(entry);
+        }
+        return statistics;
+    }
+}
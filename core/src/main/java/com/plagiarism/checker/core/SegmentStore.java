@@ -0,0 +1,980 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Сегментированный индекс базы данных для потока добавлений.
+ * <p>
+ * Изменения (добавленные и удаленные файлы) сначала попадают в сегмент в памяти.
+ * Когда в нем набирается {@link #getMemtableLimit()} изменений, он становится
+ * неизменяемым сегментом и в фоне записывается на диск. Фоновое слияние
+ * объединяет {@link #COMPACTION_FAN_IN} соседних сегментов одного уровня в
+ * один сегмент следующего уровня, поэтому количество сегментов растет
+ * логарифмически, а каждое добавление записывает на диск только себя,
+ * а не всю базу данных, как {@link DatabaseManager#persistAll(Path)}.
+ * <p>
+ * Каждый сегмент и сегмент в памяти имеют собственный индекс для поиска
+ * ({@link DatabaseShard}), и проверки выполняются по индексам всех сегментов
+ * ({@link #getShards()}) с объединением результатов. Файл хранится в индексе
+ * только одного сегмента — последнего, в который он был записан: при замене
+ * или удалении файл удаляется из индекса более старого сегмента. Слияние
+ * переносит индексированные файлы входных сегментов в индекс результата без
+ * повторного построения и атомарно подменяет входные сегменты результатом.
+ * <p>
+ * Каждое изменение до подтверждения дописывается в журнал предзаписи сегмента
+ * в памяти и сбрасывается на диск. Журнал удаляется после записи сегмента, а при
+ * открытии хранилища неудаленные журналы воспроизводятся. Если сегмент не удалось
+ * записать, ошибка записывается в лог, а сегмент остается в памяти вместе со
+ * своим журналом и записывается повторно при следующем сбросе; {@link #flush()}
+ * пробрасывает ошибку вызывающему коду.
+ * <p>
+ * Каждый сегмент покрывает диапазон поколений {@code [first, last]}: сегмент
+ * сброса — одно поколение, результат слияния — объединение диапазонов входных
+ * сегментов. Восстановление после сбоя открывает сегменты директории по порядку
+ * поколений; сегменты, диапазон которых покрыт другим сегментом (слияние успело
+ * записать результат, но не удалить входные), удаляются.
+ */
+public class SegmentStore implements Closeable {
+    private static final Logger logger = LogManager.getLogger(SegmentStore.class);
+
+    /** Количество файлов в сегменте в памяти по умолчанию, после которого он сбрасывается на диск */
+    public static final int DEFAULT_MEMTABLE_LIMIT = 256;
+
+    /** Количество сегментов одного уровня, объединяемых слиянием */
+    public static final int COMPACTION_FAN_IN = 4;
+
+    /** Сигнатура файла сегмента */
+    private static final int SEGMENT_MAGIC = 0x50435347; // "PCSG"
+
+    /** Версия формата сегмента (2 — с видом фрагментов) */
+    private static final int SEGMENT_VERSION = 2;
+
+    /** Версия формата сегмента без вида фрагментов */
+    private static final int SEGMENT_VERSION_WITHOUT_KINDS = 1;
+
+    /** Префикс и суффикс имен файлов сегментов */
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** Префикс и суффикс имен журналов предзаписи */
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+
+    /**
+     * Неизменяемый сегмент. Поля file, changes и index изменяются под блокировкой хранилища.
+     */
+    private static final class Segment {
+        private final long firstGeneration;
+        private final long lastGeneration;
+        private final int level;
+        private final int entryCount;
+
+        /** Файл сегмента (null — сегмент еще не записан) */
+        private Path file;
+
+        /** Изменения незаписанного сегмента (null после записи) */
+        private Map<String, List<CodeFragment>> changes;
+
+        /** Журналы предзаписи, которые удаляются после записи сегмента */
+        private List<Path> journals;
+
+        /** Индекс живых файлов сегмента */
+        private DatabaseShard index;
+
+        private Segment(Path file, long firstGeneration, long lastGeneration, int level, int entryCount) {
+            this.file = file;
+            this.firstGeneration = firstGeneration;
+            this.lastGeneration = lastGeneration;
+            this.level = level;
+            this.entryCount = entryCount;
+            this.journals = Collections.emptyList();
+        }
+
+        private boolean covers(Segment other) {
+            return other != this
+                    && firstGeneration <= other.firstGeneration
+                    && lastGeneration >= other.lastGeneration;
+        }
+    }
+
+    /** Директория сегментов */
+    private final Path directory;
+
+    /** Количество файлов в сегменте в памяти, после которого он сбрасывается */
+    private final int memtableLimit;
+
+    /** Сегменты в порядке поколений; незаписанные сегменты всегда в конце */
+    private final List<Segment> segments;
+
+    /** Индекс сегмента, в котором хранится каждый живой файл */
+    private final Map<String, DatabaseShard> locations;
+
+    /** Поток сброса и слияния сегментов */
+    private final ExecutorService maintenance;
+
+    /** Индексы для проверок: сегменты по порядку и сегмент в памяти */
+    private volatile List<DatabaseShard> queryShards;
+
+    /** Документные частоты фрагментов, общие для индексов сегментов */
+    private DocumentFrequencies documentFrequencies;
+
+    /** Индекс точных копий, общий для индексов сегментов */
+    private DuplicateIndex duplicateIndex;
+
+    /** Сегмент в памяти: файл → фрагменты (null — файл удален) */
+    private Map<String, List<CodeFragment>> memtable;
+
+    /** Индекс сегмента в памяти */
+    private DatabaseShard memtableIndex;
+
+    /** Поколение сегмента в памяти */
+    private long memtableGeneration;
+
+    /** Журнал предзаписи сегмента в памяти */
+    private Path journalFile;
+    private FileChannel journalChannel;
+    private DataOutputStream journal;
+
+    /** Следующее поколение сегмента */
+    private long nextGeneration;
+
+    /** Номер следующего индекса сегмента */
+    private int nextIndexNumber;
+
+    /**
+     * Создает хранилище с размером сегмента в памяти по умолчанию.
+     *
+     * @param directory директория сегментов (создается при необходимости)
+     */
+    public SegmentStore(Path directory) {
+        this(directory, DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    /**
+     * Создает хранилище.
+     *
+     * @param directory директория сегментов (создается при необходимости)
+     * @param memtableLimit количество файлов, после которого сегмент в памяти сбрасывается на диск
+     * @throws IllegalArgumentException если directory равен null или memtableLimit меньше единицы
+     */
+    public SegmentStore(Path directory, int memtableLimit) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Segment directory cannot be null");
+        }
+        if (memtableLimit < 1) {
+            throw new IllegalArgumentException("Memtable limit must be positive: " + memtableLimit);
+        }
+        this.directory = directory;
+        this.memtableLimit = memtableLimit;
+        this.segments = new ArrayList<>();
+        this.locations = new HashMap<>();
+        this.queryShards = Collections.emptyList();
+        this.memtable = new LinkedHashMap<>();
+        this.maintenance = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Открывает сегменты директории с собственными таблицей документных частот
+     * и индексом копий.
+     *
+     * @return количество восстановленных файлов
+     * @throws IOException если директория недоступна или сегмент поврежден
+     */
+    public int open() throws IOException {
+        return open(new DocumentFrequencies(), new DuplicateIndex());
+    }
+
+    /**
+     * Открывает сегменты директории, строит их индексы и воспроизводит журналы
+     * предзаписи. Незавершенные временные файлы, сегменты, покрытые результатом
+     * слияния, и журналы записанных сегментов удаляются.
+     *
+     * @param documentFrequencies таблица документных частот базы данных
+     * @param duplicateIndex индекс точных копий базы данных
+     * @return количество восстановленных файлов
+     * @throws IOException если директория недоступна, сегмент поврежден или
+     *                     восстановленные из журнала изменения не удалось записать
+     */
+    synchronized int open(DocumentFrequencies documentFrequencies, DuplicateIndex duplicateIndex) throws IOException {
+        if (journal != null) {
+            throw new IllegalStateException("Segment store is already open: " + directory);
+        }
+        FileUtils.createDirectoryIfNotExists(directory);
+        this.documentFrequencies = documentFrequencies;
+        this.duplicateIndex = duplicateIndex;
+
+        List<Segment> found = new ArrayList<>();
+        SortedMap<Long, Path> journals = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    found.add(readHeader(file));
+                } else if (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)) {
+                    journals.put(parseGeneration(name, file), file);
+                }
+            }
+        }
+
+        List<Segment> live = new ArrayList<>();
+        for (Segment segment : found) {
+            if (found.stream().anyMatch(other -> other.covers(segment))) {
+                logger.info("Removing segment {} superseded by a compacted segment", segment.file.getFileName());
+                Files.deleteIfExists(segment.file);
+            } else {
+                live.add(segment);
+            }
+        }
+        live.sort(Comparator.comparingLong((Segment segment) -> segment.firstGeneration));
+
+        // Каждый живой файл индексируется в последнем сегменте, где он записан
+        Map<String, Segment> owners = new HashMap<>();
+        Map<String, List<CodeFragment>> entries = new HashMap<>();
+        for (Segment segment : live) {
+            readEntries(segment.file).forEach((fileName, fragments) -> {
+                if (fragments == null) {
+                    owners.remove(fileName);
+                    entries.remove(fileName);
+                } else {
+                    owners.put(fileName, segment);
+                    entries.put(fileName, fragments);
+                }
+            });
+        }
+        segments.clear();
+        locations.clear();
+        for (Segment segment : live) {
+            segment.index = newIndex();
+            segments.add(segment);
+        }
+        entries.forEach((fileName, fragments) -> {
+            DatabaseShard index = owners.get(fileName).index;
+            index.put(fileName, fragments);
+            locations.put(fileName, index);
+        });
+        nextGeneration = live.isEmpty() ? 1 : live.get(live.size() - 1).lastGeneration + 1;
+
+        // Журналы записанных сегментов остались от сбоя между записью сегмента и удалением журнала
+        List<Path> replayed = new ArrayList<>();
+        memtable = new LinkedHashMap<>();
+        memtableIndex = newIndex();
+        for (Map.Entry<Long, Path> entry : journals.entrySet()) {
+            if (entry.getKey() < nextGeneration) {
+                Files.deleteIfExists(entry.getValue());
+            } else {
+                replayJournal(entry.getValue());
+                replayed.add(entry.getValue());
+            }
+        }
+        if (!replayed.isEmpty()) {
+            long first = journals.tailMap(nextGeneration).firstKey();
+            long last = journals.lastKey();
+            logger.info("Recovered {} changes from {} write-ahead logs", memtable.size(), replayed.size());
+            if (memtable.isEmpty()) {
+                for (Path file : replayed) {
+                    Files.deleteIfExists(file);
+                }
+            } else {
+                Segment recovered = new Segment(null, first, last, 0, memtable.size());
+                recovered.changes = memtable;
+                recovered.index = memtableIndex;
+                recovered.journals = replayed;
+                segments.add(recovered);
+            }
+            nextGeneration = last + 1;
+        }
+
+        startMemtable();
+        publish();
+        writePending();
+        logger.info("Opened {} segments in {} ({} files)", segments.size(), directory, locations.size());
+        return locations.size();
+    }
+
+    /**
+     * Записывает добавленный или замененный файл.
+     *
+     * @throws UncheckedIOException если изменение не удалось записать в журнал предзаписи
+     */
+    public void put(String fileName, List<CodeFragment> fragments) {
+        putAll(Collections.singletonMap(fileName, fragments));
+    }
+
+    /**
+     * Записывает добавленные или замененные файлы. Журнал предзаписи сбрасывается
+     * на диск один раз для всех файлов.
+     *
+     * @throws UncheckedIOException если изменения не удалось записать в журнал предзаписи
+     */
+    public synchronized void putAll(Map<String, List<CodeFragment>> entries) {
+        Map<String, List<CodeFragment>> copies = new LinkedHashMap<>();
+        entries.forEach((fileName, fragments) -> copies.put(fileName, List.copyOf(fragments)));
+        record(copies);
+    }
+
+    /**
+     * Записывает удаление файла.
+     *
+     * @return true, если файл был в хранилище
+     * @throws UncheckedIOException если изменение не удалось записать в журнал предзаписи
+     */
+    public boolean remove(String fileName) {
+        return removeAll(Collections.singletonList(fileName)) > 0;
+    }
+
+    /**
+     * Записывает удаление файлов. Файлы, которых нет в хранилище, пропускаются.
+     *
+     * @return количество удаленных файлов
+     * @throws UncheckedIOException если изменения не удалось записать в журнал предзаписи
+     */
+    public synchronized int removeAll(Collection<String> fileNames) {
+        Map<String, List<CodeFragment>> removals = new LinkedHashMap<>();
+        for (String fileName : fileNames) {
+            if (locations.containsKey(fileName)) {
+                removals.put(fileName, null);
+            }
+        }
+        record(removals);
+        return removals.size();
+    }
+
+    /**
+     * Удаляет все файлы хранилища.
+     */
+    public synchronized void clear() {
+        removeAll(new ArrayList<>(locations.keySet()));
+    }
+
+    /**
+     * Дописывает изменения в журнал предзаписи и применяет их к сегменту в памяти.
+     */
+    private void record(Map<String, List<CodeFragment>> changes) {
+        if (journal == null) {
+            throw new IllegalStateException("Segment store is not open: " + directory);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        appendToJournal(changes);
+        changes.forEach(this::apply);
+        if (memtable.size() >= memtableLimit) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Применяет одно изменение: файл переносится в индекс сегмента в памяти
+     * (или удаляется) и исключается из индекса более старого сегмента.
+     */
+    private void apply(String fileName, List<CodeFragment> fragments) {
+        DatabaseShard previous = locations.remove(fileName);
+        if (previous != null && (previous != memtableIndex || fragments == null)) {
+            previous.remove(fileName);
+        }
+        if (fragments != null) {
+            memtableIndex.put(fileName, fragments);
+            locations.put(fileName, memtableIndex);
+        }
+        memtable.put(fileName, fragments);
+    }
+
+    /**
+     * Дописывает изменения в журнал предзаписи и сбрасывает его на диск. При ошибке
+     * журнал обрезается до прежнего размера, чтобы не оставить в нем неполную запись.
+     */
+    private void appendToJournal(Map<String, List<CodeFragment>> changes) {
+        long size = -1;
+        try {
+            size = journalChannel.size();
+            for (Map.Entry<String, List<CodeFragment>> change : changes.entrySet()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream record = new DataOutputStream(bytes)) {
+                    writeEntry(record, change.getKey(), change.getValue());
+                }
+                byte[] payload = bytes.toByteArray();
+                CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                journal.writeInt(payload.length);
+                journal.writeInt((int) checksum.getValue());
+                journal.write(payload);
+            }
+            journal.flush();
+            journalChannel.force(false);
+        } catch (IOException e) {
+            try {
+                if (size >= 0) {
+                    journalChannel.truncate(size);
+                }
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Failed to append to write-ahead log " + journalFile, e);
+        }
+    }
+
+    /**
+     * Применяет записи журнала предзаписи к сегменту в памяти. Чтение останавливается
+     * на первой неполной или поврежденной записи (сбой во время дописывания).
+     */
+    private void replayJournal(Path file) throws IOException {
+        long fileSize = Files.size(file);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (length < 0 || length > fileSize) {
+                    logger.warn("Ignoring corrupted tail of write-ahead log {}", file);
+                    return;
+                }
+                int expected = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) {
+                    logger.warn("Ignoring corrupted tail of write-ahead log {}", file);
+                    return;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                String fileName = DatabaseShard.readString(record);
+                apply(fileName, readFragments(record, SEGMENT_VERSION));
+            }
+        } catch (EOFException e) {
+            logger.warn("Ignoring truncated tail of write-ahead log {}", file);
+        }
+    }
+
+    /**
+     * Начинает новый сегмент в памяти со следующим поколением и собственным журналом предзаписи.
+     */
+    private void startMemtable() throws IOException {
+        closeJournal();
+        memtable = new LinkedHashMap<>();
+        memtableIndex = newIndex();
+        memtableGeneration = nextGeneration++;
+        journalFile = directory.resolve(WAL_PREFIX + memtableGeneration + WAL_SUFFIX);
+        journalChannel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        journal = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(journalChannel)));
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            journalChannel = null;
+        }
+    }
+
+    /**
+     * Делает сегмент в памяти неизменяемым сегментом и передает его запись
+     * потоку обслуживания. Если сегмент в памяти пуст, повторяется запись
+     * ранее не записанных сегментов.
+     */
+    private synchronized Future<?> scheduleFlush() {
+        if (!memtable.isEmpty()) {
+            Segment frozen = new Segment(null, memtableGeneration, memtableGeneration, 0, memtable.size());
+            frozen.changes = memtable;
+            frozen.index = memtableIndex;
+            frozen.journals = List.of(journalFile);
+            segments.add(frozen);
+            try {
+                startMemtable();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to start write-ahead log in " + directory, e);
+            } finally {
+                publish();
+            }
+        }
+        return maintenance.submit(() -> {
+            try {
+                writePending();
+            } catch (IOException e) {
+                logger.error("Segment maintenance in {} failed, {} unwritten segments are kept for retry: {}",
+                        directory, getPendingSegmentCount(), e.getMessage());
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Записывает незаписанные сегменты по порядку и удаляет их журналы, затем
+     * выполняет слияние. При ошибке записи следующие сегменты не записываются,
+     * чтобы незаписанные сегменты оставались в конце списка.
+     */
+    private void writePending() throws IOException {
+        while (true) {
+            Segment pending;
+            synchronized (this) {
+                pending = segments.stream()
+                        .filter(segment -> segment.file == null)
+                        .findFirst()
+                        .orElse(null);
+            }
+            if (pending == null) {
+                break;
+            }
+            Path file = writeSegment(pending.changes, pending.firstGeneration, pending.lastGeneration, pending.level);
+            List<Path> journals;
+            synchronized (this) {
+                pending.file = file;
+                pending.changes = null;
+                journals = pending.journals;
+                pending.journals = Collections.emptyList();
+            }
+            for (Path journalPath : journals) {
+                Files.deleteIfExists(journalPath);
+            }
+        }
+        compact(false);
+    }
+
+    /**
+     * Синхронно записывает сегмент в памяти и ранее не записанные сегменты на диск.
+     *
+     * @throws IOException если сегмент не удалось записать (изменения остаются в памяти
+     *                     и в журнале предзаписи и записываются при следующем сбросе)
+     */
+    public void flush() throws IOException {
+        await(scheduleFlush());
+    }
+
+    /**
+     * Заменяет все содержимое хранилища одним базовым сегментом (например, после
+     * полной загрузки базы данных). Уровень базового сегмента соответствует его
+     * размеру, поэтому последующие сбросы не сливаются с ним, пока не наберут
+     * сопоставимый объем. Старые сегменты и журналы удаляются после записи нового.
+     *
+     * @param entries новое содержимое (файл → фрагменты)
+     * @throws IOException если сегмент не удалось записать
+     */
+    public void replaceAll(Map<String, List<CodeFragment>> entries) throws IOException {
+        Map<String, List<CodeFragment>> copy = new LinkedHashMap<>(entries);
+        await(maintenance.submit(() -> {
+            replaceAllNow(copy);
+            return null;
+        }));
+    }
+
+    private synchronized void replaceAllNow(Map<String, List<CodeFragment>> entries) throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Segment store is not open: " + directory);
+        }
+        long first = segments.isEmpty() ? memtableGeneration : segments.get(0).firstGeneration;
+        int level = 0;
+        for (long capacity = memtableLimit; capacity < entries.size(); capacity *= COMPACTION_FAN_IN) {
+            level++;
+        }
+        Path file = writeSegment(entries, first, memtableGeneration, level);
+
+        Segment base = new Segment(file, first, memtableGeneration, level, entries.size());
+        base.index = newIndex();
+        entries.forEach(base.index::put);
+
+        List<Segment> replaced = new ArrayList<>(segments);
+        DatabaseShard replacedMemtable = memtableIndex;
+        Path replacedJournal = journalFile;
+        segments.clear();
+        segments.add(base);
+        locations.clear();
+        entries.keySet().forEach(fileName -> locations.put(fileName, base.index));
+        startMemtable();
+        publish();
+
+        // Файлы заменены базовым сегментом: старые индексы исключаются из общих структур
+        replacedMemtable.clear();
+        Files.deleteIfExists(replacedJournal);
+        for (Segment segment : replaced) {
+            segment.index.clear();
+            for (Path journalPath : segment.journals) {
+                Files.deleteIfExists(journalPath);
+            }
+            if (segment.file != null) {
+                Files.deleteIfExists(segment.file);
+            }
+        }
+    }
+
+    /**
+     * Синхронно объединяет все сегменты в один. Удаленные файлы при этом
+     * окончательно исключаются.
+     *
+     * @throws IOException если сегмент не удалось записать
+     */
+    public void compactAll() throws IOException {
+        flush();
+        await(maintenance.submit(() -> {
+            compact(true);
+            return null;
+        }));
+    }
+
+    /**
+     * Объединяет записанные сегменты (выполняется потоком обслуживания).
+     * Без флага full сливаются {@link #COMPACTION_FAN_IN} последних записанных
+     * сегментов одного уровня, пока такие есть.
+     */
+    private void compact(boolean full) throws IOException {
+        while (true) {
+            List<Segment> inputs;
+            synchronized (this) {
+                int written = 0;
+                while (written < segments.size() && segments.get(written).file != null) {
+                    written++;
+                }
+                if (written < 2) {
+                    return;
+                }
+                int from = full ? 0 : written - COMPACTION_FAN_IN;
+                if (from < 0) {
+                    return;
+                }
+                inputs = new ArrayList<>(segments.subList(from, written));
+                if (!full && inputs.stream().anyMatch(segment -> segment.level != inputs.get(0).level)) {
+                    return;
+                }
+            }
+
+            // Записанные сегменты неизменяемы на диске, поэтому читаются без блокировки
+            Map<String, List<CodeFragment>> merged = new LinkedHashMap<>();
+            for (Segment input : inputs) {
+                merged.putAll(readEntries(input.file));
+            }
+            boolean oldest;
+            synchronized (this) {
+                oldest = segments.get(0) == inputs.get(0);
+            }
+            if (oldest) {
+                // Старше слитых сегментов ничего нет: удаления больше не нужны
+                merged.values().removeIf(Objects::isNull);
+            }
+
+            int level = inputs.stream().mapToInt(segment -> segment.level).max().orElse(0) + 1;
+            long first = inputs.get(0).firstGeneration;
+            long last = inputs.get(inputs.size() - 1).lastGeneration;
+            Path file = writeSegment(merged, first, last, level);
+
+            Segment output = new Segment(file, first, last, level, merged.size());
+            synchronized (this) {
+                output.index = newIndex();
+                for (Segment input : inputs) {
+                    for (IndexedFile indexed : input.index.getIndexedFiles()) {
+                        output.index.adopt(indexed);
+                        locations.put(indexed.getFileName(), output.index);
+                    }
+                }
+                int position = segments.indexOf(inputs.get(0));
+                segments.subList(position, position + inputs.size()).clear();
+                segments.add(position, output);
+                publish();
+            }
+            deleteSegments(inputs);
+            logger.debug("Compacted {} segments into {} ({} entries)",
+                    inputs.size(), file.getFileName(), output.entryCount);
+            if (full) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Публикует индексы для проверок (вызывается под блокировкой хранилища).
+     */
+    private void publish() {
+        List<DatabaseShard> shards = new ArrayList<>(segments.size() + 1);
+        for (Segment segment : segments) {
+            shards.add(segment.index);
+        }
+        shards.add(memtableIndex);
+        queryShards = Collections.unmodifiableList(shards);
+    }
+
+    private DatabaseShard newIndex() {
+        return new DatabaseShard(nextIndexNumber++, documentFrequencies, duplicateIndex);
+    }
+
+    /**
+     * Записывает сегмент во временный файл и атомарно переименовывает его.
+     *
+     * @return файл записанного сегмента
+     */
+    private Path writeSegment(Map<String, List<CodeFragment>> entries,
+                              long firstGeneration, long lastGeneration, int level) throws IOException {
+        Path file = directory.resolve(SEGMENT_PREFIX + firstGeneration + "-" + lastGeneration + SEGMENT_SUFFIX);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(SEGMENT_VERSION);
+            out.writeLong(firstGeneration);
+            out.writeLong(lastGeneration);
+            out.writeInt(level);
+            out.writeInt(entries.size());
+
+            for (Map.Entry<String, List<CodeFragment>> entry : entries.entrySet()) {
+                writeEntry(out, entry.getKey(), entry.getValue());
+            }
+        }
+
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    /**
+     * Записывает одну запись сегмента или журнала (fragments == null — файл удален).
+     */
+    private static void writeEntry(DataOutputStream out, String fileName, List<CodeFragment> fragments)
+            throws IOException {
+        DatabaseShard.writeString(out, fileName);
+        out.writeInt(fragments == null ? -1 : fragments.size());
+        if (fragments != null) {
+            for (CodeFragment fragment : fragments) {
+                DatabaseShard.writeString(out, fragment.getNormalizedContent());
+                DatabaseShard.writeString(out, fragment.getOriginalContent());
+                out.writeInt(fragment.getLineNumber());
+                out.writeByte(fragment.getKind().ordinal());
+            }
+        }
+    }
+
+    /**
+     * Читает фрагменты записи, записанные методом {@link #writeEntry}.
+     *
+     * @return фрагменты или null, если запись обозначает удаление файла
+     */
+    private static List<CodeFragment> readFragments(DataInputStream in, int version) throws IOException {
+        int fragmentCount = in.readInt();
+        if (fragmentCount < 0) {
+            return null;
+        }
+        List<CodeFragment> fragments = new ArrayList<>(fragmentCount);
+        for (int j = 0; j < fragmentCount; j++) {
+            String normalized = DatabaseShard.readString(in);
+            String original = DatabaseShard.readString(in);
+            int lineNumber = in.readInt();
+            CodeFragment.Kind kind = version == SEGMENT_VERSION_WITHOUT_KINDS
+                    ? CodeFragment.Kind.infer(normalized, original)
+                    : DatabaseShard.readKind(in);
+            fragments.add(new CodeFragment(normalized, original, lineNumber, kind));
+        }
+        return fragments;
+    }
+
+    /**
+     * Читает заголовок сегмента.
+     */
+    private Segment readHeader(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            checkMagic(in, file);
+            long first = in.readLong();
+            long last = in.readLong();
+            int level = in.readInt();
+            int entryCount = in.readInt();
+            return new Segment(file, first, last, level, entryCount);
+        } catch (EOFException e) {
+            throw new IOException("Truncated segment: " + file, e);
+        }
+    }
+
+    /**
+     * Читает записи сегмента (null — файл удален).
+     */
+    private Map<String, List<CodeFragment>> readEntries(Path file) throws IOException {
+        Map<String, List<CodeFragment>> entries = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = checkMagic(in, file);
+            in.readLong();
+            in.readLong();
+            in.readInt();
+
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String fileName = DatabaseShard.readString(in);
+                entries.put(fileName, readFragments(in, version));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated segment: " + file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Проверяет сигнатуру и версию сегмента.
+     *
+     * @return версия формата сегмента
+     */
+    private static int checkMagic(DataInputStream in, Path file) throws IOException {
+        if (in.readInt() != SEGMENT_MAGIC) {
+            throw new IOException("Not a segment file: " + file);
+        }
+        int version = in.readInt();
+        if (version != SEGMENT_VERSION && version != SEGMENT_VERSION_WITHOUT_KINDS) {
+            throw new IOException("Unsupported segment version " + version + ": " + file);
+        }
+        return version;
+    }
+
+    /**
+     * Извлекает поколение из имени журнала предзаписи.
+     */
+    private static long parseGeneration(String name, Path file) throws IOException {
+        try {
+            return Long.parseLong(name.substring(WAL_PREFIX.length(), name.length() - WAL_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed write-ahead log name: " + file, e);
+        }
+    }
+
+    private static void deleteSegments(List<Segment> obsolete) throws IOException {
+        for (Segment segment : obsolete) {
+            Files.deleteIfExists(segment.file);
+        }
+    }
+
+    /**
+     * Ожидает завершения задачи обслуживания, пробрасывая ее ошибку записи.
+     */
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for segment maintenance");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Segment maintenance failed", e.getCause());
+        }
+    }
+
+    /**
+     * Возвращает индексы для проверок: индексы сегментов по порядку поколений
+     * и индекс сегмента в памяти. Каждый файл содержится ровно в одном из них.
+     */
+    public List<DatabaseShard> getShards() {
+        return queryShards;
+    }
+
+    /**
+     * Возвращает фрагменты файла или null, если файла нет в хранилище.
+     */
+    public synchronized List<CodeFragment> get(String fileName) {
+        DatabaseShard index = locations.get(fileName);
+        return index == null ? null : index.get(fileName);
+    }
+
+    /**
+     * Возвращает копию имен файлов хранилища.
+     */
+    public synchronized Set<String> getFileNames() {
+        return new HashSet<>(locations.keySet());
+    }
+
+    /**
+     * Возвращает количество файлов в хранилище.
+     */
+    public synchronized int getFileCount() {
+        return locations.size();
+    }
+
+    /**
+     * Возвращает директорию сегментов.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Возвращает количество файлов, после которого сегмент в памяти сбрасывается на диск.
+     */
+    public int getMemtableLimit() {
+        return memtableLimit;
+    }
+
+    /**
+     * Возвращает количество сегментов, включая еще не записанные на диск.
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Возвращает количество сегментов, которые еще не записаны на диск.
+     */
+    public synchronized int getPendingSegmentCount() {
+        return (int) segments.stream().filter(segment -> segment.file == null).count();
+    }
+
+    /**
+     * Возвращает количество изменений в сегменте в памяти.
+     */
+    public synchronized int getMemtableSize() {
+        return memtable.size();
+    }
+
+    /**
+     * Сбрасывает сегмент в памяти на диск и останавливает поток обслуживания.
+     * Индексы сегментов остаются доступными для чтения. Если сегменты не удалось
+     * записать, их журналы предзаписи остаются на диске и воспроизводятся при
+     * следующем открытии.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                closeJournal();
+                if (journalFile != null && memtable.isEmpty()) {
+                    Files.deleteIfExists(journalFile);
+                }
+            }
+        }
+        logger.info("Segment store {} closed ({} segments)", directory, getSegmentCount());
+    }
+}
@@ -0,0 +1,1273 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.utils.HashUtils;
+import com.plagiarism.checker.utils.IntersectionKernel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Калькулятор для расчета схожести между фрагментами кода.
+ * Использует различные алгоритмы сравнения для определения степени плагиата.
+ */
+public class SimilarityCalculator {
+    private static final Logger logger = LogManager.getLogger(SimilarityCalculator.class);
+
+    /** Порог схожести для учета фрагмента как совпадающего */
+    private static final double SIMILARITY_THRESHOLD = 5.0;
+
+    /** Порог токенного сходства */
+    private static final double TOKEN_SIMILARITY_THRESHOLD = 80.0;
+
+    /** Максимальная длина фрагментов для токенного сравнения (не включительно) */
+    private static final int MAX_LENGTH_FOR_TOKEN_SIMILARITY = 100;
+
+    /** Минимальная длина фрагмента для сравнения содержания */
+    private static final int MIN_LENGTH_FOR_CONTAINMENT = 50;
+
+    /** Минимальное соотношение длины для сравнения содержания */
+    private static final double CONTAINMENT_RATIO = 0.7;
+
+    /** Порог токенного сходства фрагментов всего файла для полного совпадения кода */
+    private static final double FULL_CODE_MATCH_THRESHOLD = 60.0;
+
+    /** Виды фрагментов, представляющих весь файл */
+    private static final CodeFragment.Kind[] WHOLE_FILE_KINDS = {
+            CodeFragment.Kind.FULL_CODE, CodeFragment.Kind.ALGORITHM
+    };
+
+    /** Бонус за полное совпадение кода */
+    private static final double FULL_CODE_MATCH_BONUS = 20.0;
+
+    /** Множитель для усиления результата схожести */
+    private static final double SIMILARITY_BOOST_FACTOR = 1.5;
+
+    /** Признак результата, найденного как точная копия по каноническому хешу */
+    private static final String EXACT_DUPLICATE = "exactDuplicate";
+
+    /** Порядок результатов: по убыванию процента схожести, при равной схожести сначала точные копии */
+    private static final Comparator<Map<String, Object>> BY_SIMILARITY_DESC =
+            Comparator.<Map<String, Object>>comparingDouble(result -> (double) result.get("similarity"))
+                    .reversed()
+                    .thenComparing(result -> !result.containsKey(EXACT_DUPLICATE));
+
+    /** Отсутствие границы лучших результатов */
+    private static final double NO_CUTOFF = Double.NEGATIVE_INFINITY;
+
+    /** Пул потоков для параллельного выполнения запроса по шардам */
+    private final ExecutorService shardExecutor;
+
+    /**
+     * Минимальное оценочное количество общих фрагментов, при котором файл
+     * базы данных сравнивается построчно (0 — предварительный фильтр отключен)
+     */
+    private volatile int minSharedFragments;
+
+    /** Количество файлов, отброшенных предварительным фильтром */
+    private final AtomicLong prefilterSkippedFiles;
+
+    /**
+     * Максимальная доля файлов базы данных, содержащих фрагмент, при которой
+     * фрагмент учитывается (1.0 — стоп-фрагменты не исключаются)
+     */
+    private volatile double maxDocumentFrequencyRatio;
+
+    /** Взвешивать ли совпадения по обратной документной частоте */
+    private volatile boolean idfWeighting;
+
+    /** Количество фрагментов базы данных, пропущенных как стоп-фрагменты */
+    private final AtomicLong skippedStopFragments;
+
+    /** Количество файлов базы данных, найденных как точные копии проверяемых работ */
+    private final AtomicLong exactDuplicateHits;
+
+    /** Количество файлов, сравнение с которыми прервано по верхней оценке схожести */
+    private final AtomicLong earlyRejectedFiles;
+
+    /** Кеш решений токенного правила для пар фрагментов (null — кеш отключен) */
+    private volatile PairVerdictCache verdictCache;
+
+    /** Порядок правил при сравнении по предвычисленным признакам */
+    private final RuleCascade fragmentCascade;
+
+    /** Порядок правил при сравнении строк ({@link #isContentSimilar(String, String, String)}) */
+    private final RuleCascade contentCascade;
+
+    /** Ядро подсчета пересечений множеств токенов */
+    private final IntersectionKernel kernel;
+
+    /** Маркеры алгоритмической схожести */
+    private final AlgorithmMarkers markers;
+
+    /**
+     * Конструктор инициализирует калькулятор схожести.
+     */
+    public SimilarityCalculator() {
+        this.shardExecutor = createShardExecutor();
+        this.minSharedFragments = 0;
+        this.prefilterSkippedFiles = new AtomicLong();
+        this.maxDocumentFrequencyRatio = 1.0;
+        this.idfWeighting = false;
+        this.skippedStopFragments = new AtomicLong();
+        this.exactDuplicateHits = new AtomicLong();
+        this.earlyRejectedFiles = new AtomicLong();
+        this.verdictCache = new PairVerdictCache(PairVerdictCache.DEFAULT_CAPACITY);
+        this.fragmentCascade = new RuleCascade();
+        this.contentCascade = new RuleCascade();
+        this.kernel = IntersectionKernel.getDefault();
+        this.markers = AlgorithmMarkers.getDefault();
+        logger.debug("SimilarityCalculator initialized");
+    }
+
+    /**
+     * Создает пул потоков для запросов по шардам.
+     * Потоки являются демонами и завершаются после простоя, поэтому
+     * пул не нужно явно закрывать.
+     */
+    private static ExecutorService createShardExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "shard-query-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Устанавливает порог предварительного фильтра по фильтрам Блума.
+     * <p>
+     * Файлы базы данных, с которыми проверяемый код по оценке фильтра Блума
+     * имеет меньше заданного количества точно совпадающих фрагментов,
+     * пропускаются без построчного сравнения. Правила схожести допускают
+     * нечеткие совпадения без общих фрагментов, поэтому фильтр может
+     * отбросить файл с ненулевой схожестью; по умолчанию он отключен.
+     *
+     * @param minSharedFragments минимальное количество общих фрагментов (0 — фильтр отключен)
+     * @throws IllegalArgumentException если порог отрицательный
+     */
+    public void setMinSharedFragments(int minSharedFragments) {
+        if (minSharedFragments < 0) {
+            throw new IllegalArgumentException("Minimum shared fragments cannot be negative: " + minSharedFragments);
+        }
+        this.minSharedFragments = minSharedFragments;
+    }
+
+    /**
+     * Возвращает порог предварительного фильтра (0 — фильтр отключен).
+     */
+    public int getMinSharedFragments() {
+        return minSharedFragments;
+    }
+
+    /**
+     * Возвращает количество файлов, отброшенных предварительным фильтром.
+     */
+    public long getPrefilterSkippedFiles() {
+        return prefilterSkippedFiles.get();
+    }
+
+    /**
+     * Устанавливает максимальную документную частоту учитываемых фрагментов.
+     * <p>
+     * Фрагменты, которые встречаются в большей доле файлов базы данных
+     * (шаблонные {@code return VAR ;}, {@code if ( VAR > VAR )} и т.п.), считаются
+     * стоп-фрагментами: они не сравниваются и не входят ни в совпадения, ни в общее
+     * количество фрагментов файла. Такие фрагменты совпадают почти с каждым файлом,
+     * поэтому их исключение убирает большую часть сравнений и ложных совпадений.
+     * Учитывается только при запросах по шардам; по умолчанию отключено (1.0).
+     *
+     * @param maxDocumentFrequencyRatio доля файлов в диапазоне (0, 1]
+     * @throws IllegalArgumentException если доля вне диапазона
+     */
+    public void setMaxDocumentFrequencyRatio(double maxDocumentFrequencyRatio) {
+        if (!(maxDocumentFrequencyRatio > 0 && maxDocumentFrequencyRatio <= 1.0)) {
+            throw new IllegalArgumentException("Document frequency ratio must be in (0, 1]: " + maxDocumentFrequencyRatio);
+        }
+        this.maxDocumentFrequencyRatio = maxDocumentFrequencyRatio;
+    }
+
+    /**
+     * Возвращает максимальную документную частоту учитываемых фрагментов (1.0 — без ограничения).
+     */
+    public double getMaxDocumentFrequencyRatio() {
+        return maxDocumentFrequencyRatio;
+    }
+
+    /**
+     * Включает взвешивание совпадений по обратной документной частоте
+     * ({@link DocumentFrequencies#inverseFrequency(long)}): процент схожести
+     * считается как доля веса совпавших фрагментов в общем весе фрагментов файла,
+     * поэтому совпадение редкого фрагмента значит больше совпадения частого.
+     * Учитывается только при запросах по шардам; по умолчанию выключено.
+     */
+    public void setIdfWeighting(boolean idfWeighting) {
+        this.idfWeighting = idfWeighting;
+    }
+
+    /**
+     * Проверяет, включено ли взвешивание по обратной документной частоте.
+     */
+    public boolean isIdfWeighting() {
+        return idfWeighting;
+    }
+
+    /**
+     * Возвращает количество фрагментов базы данных, пропущенных как стоп-фрагменты.
+     */
+    public long getSkippedStopFragments() {
+        return skippedStopFragments.get();
+    }
+
+    /**
+     * Возвращает количество файлов базы данных, найденных как точные копии проверяемых работ.
+     */
+    public long getExactDuplicateHits() {
+        return exactDuplicateHits.get();
+    }
+
+    /**
+     * Возвращает количество файлов, сравнение с которыми прервано досрочно:
+     * верхняя оценка их схожести не проходила порог или границу лучших результатов.
+     */
+    public long getEarlyRejectedFiles() {
+        return earlyRejectedFiles.get();
+    }
+
+    /**
+     * Устанавливает емкость кеша решений для пар фрагментов.
+     * <p>
+     * Правила точного совпадения, вхождения и алгоритмической схожести проверяются
+     * по предвычисленным признакам за постоянное время, а токенное правило требует
+     * пересечения множеств токенов. Его решение зависит только от содержимого пары,
+     * поэтому оно запоминается по паре хешей фрагментов: повторяющиеся пары
+     * (стартовый код, типовые конструкции) сравниваются один раз.
+     * Новый кеш создается пустым, счетчики попаданий сбрасываются.
+     *
+     * @param capacity количество ячеек кеша (0 — кеш отключен); округляется вверх до степени двойки
+     * @throws IllegalArgumentException если емкость отрицательная или слишком большая
+     */
+    public void setVerdictCacheCapacity(int capacity) {
+        if (capacity < 0 || capacity > PairVerdictCache.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Verdict cache capacity must be between 0 and "
+                    + PairVerdictCache.MAX_CAPACITY + ": " + capacity);
+        }
+        this.verdictCache = capacity == 0 ? null : new PairVerdictCache(capacity);
+    }
+
+    /**
+     * Возвращает емкость кеша решений для пар фрагментов (0 — кеш отключен).
+     */
+    public int getVerdictCacheCapacity() {
+        PairVerdictCache cache = verdictCache;
+        return cache == null ? 0 : cache.capacity();
+    }
+
+    /**
+     * Возвращает количество решений токенного правила, найденных в кеше.
+     */
+    public long getVerdictCacheHits() {
+        PairVerdictCache cache = verdictCache;
+        return cache == null ? 0 : cache.hits();
+    }
+
+    /**
+     * Возвращает количество решений токенного правила, вычисленных заново.
+     */
+    public long getVerdictCacheMisses() {
+        PairVerdictCache cache = verdictCache;
+        return cache == null ? 0 : cache.misses();
+    }
+
+    /**
+     * Возвращает долю обращений к кешу решений, завершившихся попаданием (0 — обращений не было).
+     */
+    public double getVerdictCacheHitRate() {
+        PairVerdictCache cache = verdictCache;
+        if (cache == null) {
+            return 0.0;
+        }
+        long hits = cache.hits();
+        long lookups = hits + cache.misses();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Включает или отключает адаптивный порядок правил схожести фрагментов.
+     * <p>
+     * Пара фрагментов схожа, если срабатывает любое правило, поэтому порядок их
+     * проверки не влияет на результат. При включенном режиме стоимость и доля
+     * срабатываний правил замеряются на выборке пар, и правила периодически
+     * переупорядочиваются так, чтобы дешевые и часто срабатывающие проверялись
+     * первыми. При отключении восстанавливается исходный порядок. По умолчанию включен.
+     */
+    public void setAdaptiveRuleOrder(boolean adaptive) {
+        fragmentCascade.setAdaptive(adaptive);
+        contentCascade.setAdaptive(adaptive);
+    }
+
+    /**
+     * Проверяет, включен ли адаптивный порядок правил.
+     */
+    public boolean isAdaptiveRuleOrder() {
+        return fragmentCascade.isAdaptive();
+    }
+
+    /**
+     * Возвращает текущий порядок правил при сравнении с файлами базы данных
+     * ({@code exact}, {@code containment}, {@code algorithm}, {@code token}).
+     */
+    public List<String> getRuleOrder() {
+        return Arrays.stream(fragmentCascade.order())
+                .map(rule -> rule.name().toLowerCase())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Возвращает статистику правил при сравнении с файлами базы данных в текущем порядке:
+     * для каждого правила имя ({@code rule}), количество замеров ({@code samples}),
+     * срабатываний ({@code hits}), их долю ({@code hit_rate}) и среднее время
+     * проверки в наносекундах ({@code avg_nanos}).
+     */
+    public List<Map<String, Object>> getRuleStatistics() {
+        return fragmentCascade.statistics();
+    }
+
+    /**
+     * Возвращает количество пересчетов порядка правил при сравнении с файлами базы данных.
+     */
+    public long getRuleReorderCount() {
+        return fragmentCascade.getReorderCount();
+    }
+
+    /**
+     * Сравнивает фрагменты проверяемого кода с фрагментами базы данных.
+     * Веса фрагментов (стоп-фрагменты, обратная документная частота) считаются
+     * по документным частотам переданных записей.
+     *
+     * @param checkFragments фрагменты из проверяемого кода
+     * @param databaseEntries записи базы данных (файл → фрагменты)
+     * @return отсортированный список результатов сравнения
+     */
+    public List<Map<String, Object>> calculateSimilarities(
+            List<CodeFragment> checkFragments,
+            Map<String, List<CodeFragment>> databaseEntries) {
+        return calculateSimilarities(checkFragments, databaseEntries, null);
+    }
+
+    /**
+     * Сравнивает фрагменты проверяемого кода с фрагментами базы данных,
+     * взвешивая фрагменты по заданным документным частотам (например, по частотам
+     * основной базы данных, чтобы результаты были сопоставимы с проверкой по шардам).
+     *
+     * @param checkFragments фрагменты из проверяемого кода
+     * @param databaseEntries записи базы данных (файл → фрагменты)
+     * @param frequencies документные частоты для весов (null — частоты переданных записей)
+     * @return отсортированный список результатов сравнения
+     */
+    public List<Map<String, Object>> calculateSimilarities(
+            List<CodeFragment> checkFragments,
+            Map<String, List<CodeFragment>> databaseEntries,
+            DocumentFrequencies frequencies) {
+
+        logger.info("Calculating similarities for {} fragments against {} files",
+                checkFragments.size(), databaseEntries.size());
+
+        // Файлы индексируются до подготовки запроса: запрос не регистрирует токены
+        // в словаре, поэтому их токены должны быть в нем к этому моменту
+        List<IndexedFile> files = databaseEntries.entrySet().parallelStream()
+                .filter(entry -> entry.getValue() != null && !entry.getValue().isEmpty())
+                .map(entry -> new IndexedFile(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+
+        FragmentWeights weights = null;
+        if (isWeighted()) {
+            DocumentFrequencies source = frequencies;
+            if (source == null) {
+                source = new DocumentFrequencies();
+                for (IndexedFile file : files) {
+                    source.add(file.getDistinctHashes());
+                }
+            }
+            weights = weightsFor(source);
+        }
+        FragmentWeights fileWeights = weights;
+        PreparedCheck check = prepare(withoutStopFragments(checkFragments, weights));
+
+        return files.parallelStream()
+                .map(file -> calculateFileSimilarity(file, check, fileWeights, NO_CUTOFF, null))
+                .filter(result -> result != null)
+                .sorted(BY_SIMILARITY_DESC)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Сравнивает фрагменты проверяемого кода со всеми шардами базы данных.
+     * Запрос выполняется по шардам параллельно, после чего лучшие результаты
+     * каждого шарда объединяются в общий отсортированный список.
+     *
+     * @param checkFragments фрагменты из проверяемого кода
+     * @param shards шарды базы данных
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @return отсортированный список результатов сравнения
+     */
+    public List<Map<String, Object>> calculateSimilarities(
+            List<CodeFragment> checkFragments,
+            List<DatabaseShard> shards,
+            int maxResults) {
+        return calculateSimilarities(checkFragments, shards, maxResults, ProgressListener.NONE);
+    }
+
+    /**
+     * Сравнивает фрагменты проверяемого кода со всеми шардами базы данных
+     * и сообщает о ходе сравнения: просмотренных файлах базы данных,
+     * их фрагментах и выполненных сравнениях пар фрагментов.
+     *
+     * @param checkFragments фрагменты из проверяемого кода
+     * @param shards шарды базы данных
+     * @param maxResults максимальное количество результатов (0 — без ограничения)
+     * @param progressListener получатель сведений о ходе сравнения
+     * @return отсортированный список результатов сравнения
+     */
+    public List<Map<String, Object>> calculateSimilarities(
+            List<CodeFragment> checkFragments,
+            List<DatabaseShard> shards,
+            int maxResults,
+            ProgressListener progressListener) {
+
+        logger.info("Calculating similarities for {} fragments against {} shards",
+                checkFragments.size(), shards.size());
+
+        int totalFiles = shards.stream().mapToInt(DatabaseShard::getFileCount).sum();
+        ProgressTracker progress = new ProgressTracker("Comparing", totalFiles, progressListener);
+        CanonicalHash checkHash = CanonicalHash.of(checkFragments);
+
+        List<CompletableFuture<List<Map<String, Object>>>> futures = shards.stream()
+                .filter(shard -> !shard.isEmpty())
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> calculateShardSimilarities(shard, checkFragments, checkHash, maxResults, progress),
+                        shardExecutor))
+                .collect(Collectors.toList());
+
+        List<Map<String, Object>> merged = new ArrayList<>();
+        for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+            merged.addAll(future.join());
+        }
+        progress.finish();
+
+        merged.sort(BY_SIMILARITY_DESC);
+        return limitResults(merged, maxResults);
+    }
+
+    /**
+     * Рассчитывает лучшие результаты в пределах одного шарда.
+     * Точные копии работы находятся по каноническому хешу и учитываются
+     * до просмотра остальных файлов шарда.
+     */
+    private List<Map<String, Object>> calculateShardSimilarities(
+            DatabaseShard shard,
+            List<CodeFragment> checkFragments,
+            CanonicalHash checkHash,
+            int maxResults,
+            ProgressTracker progress) {
+
+        FragmentWeights weights = weightsFor(shard);
+        PreparedCheck check = prepare(withoutStopFragments(checkFragments, weights));
+        TopSimilarities top = new TopSimilarities(maxResults);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Set<IndexedFile> duplicates = addExactDuplicates(shard, checkFragments, checkHash, check, weights,
+                top, results, progress);
+        for (IndexedFile file : shard.getIndexedFiles()) {
+            if (duplicates.contains(file)) {
+                continue;
+            }
+            if (!passesPrefilter(file, check)) {
+                progress.fileProcessed(0, file.getFragmentCount(), 0);
+                continue;
+            }
+            Map<String, Object> result = calculateFileSimilarity(file, check, weights, top.cutoff(), progress);
+            if (result != null) {
+                results.add(result);
+                top.add((double) result.get("similarity"));
+            }
+        }
+        results.sort(BY_SIMILARITY_DESC);
+
+        logger.debug("Shard {}: {} matching files", shard.getIndex(), results.size());
+        return limitResults(results, maxResults);
+    }
+
+    /**
+     * Сравнивает несколько проверяемых работ со всеми шардами за один проход.
+     * Каждый файл базы данных просматривается один раз для всех работ пакета,
+     * поэтому близко пришедшие запросы выгоднее проверять вместе.
+     *
+     * @param batch фрагменты проверяемых работ
+     * @param shards шарды базы данных
+     * @param maxResults максимальное количество результатов на работу (0 — без ограничения)
+     * @return отсортированные списки результатов в порядке работ пакета
+     */
+    public List<List<Map<String, Object>>> calculateBatchSimilarities(
+            List<List<CodeFragment>> batch,
+            List<DatabaseShard> shards,
+            int maxResults) {
+
+        logger.info("Calculating similarities for a batch of {} submissions against {} shards",
+                batch.size(), shards.size());
+
+        List<CanonicalHash> checkHashes = batch.stream().map(CanonicalHash::of).collect(Collectors.toList());
+
+        List<CompletableFuture<List<List<Map<String, Object>>>>> futures = shards.stream()
+                .filter(shard -> !shard.isEmpty())
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> calculateShardBatchSimilarities(shard, batch, checkHashes, maxResults), shardExecutor))
+                .collect(Collectors.toList());
+
+        List<List<Map<String, Object>>> merged = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            merged.add(new ArrayList<>());
+        }
+        for (CompletableFuture<List<List<Map<String, Object>>>> future : futures) {
+            List<List<Map<String, Object>>> shardResults = future.join();
+            for (int i = 0; i < batch.size(); i++) {
+                merged.get(i).addAll(shardResults.get(i));
+            }
+        }
+
+        List<List<Map<String, Object>>> results = new ArrayList<>(batch.size());
+        for (List<Map<String, Object>> submissionResults : merged) {
+            submissionResults.sort(BY_SIMILARITY_DESC);
+            results.add(limitResults(submissionResults, maxResults));
+        }
+        return results;
+    }
+
+    /**
+     * Рассчитывает лучшие результаты пакета работ в пределах одного шарда.
+     */
+    private List<List<Map<String, Object>>> calculateShardBatchSimilarities(
+            DatabaseShard shard,
+            List<List<CodeFragment>> batch,
+            List<CanonicalHash> checkHashes,
+            int maxResults) {
+
+        List<List<Map<String, Object>>> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+
+        FragmentWeights weights = weightsFor(shard);
+        List<PreparedCheck> checks = new ArrayList<>(batch.size());
+        List<TopSimilarities> tops = new ArrayList<>(batch.size());
+        List<Set<IndexedFile>> duplicates = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            checks.add(prepare(withoutStopFragments(batch.get(i), weights)));
+            tops.add(new TopSimilarities(maxResults));
+            duplicates.add(addExactDuplicates(shard, batch.get(i), checkHashes.get(i), checks.get(i), weights,
+                    tops.get(i), results.get(i), null));
+        }
+
+        for (IndexedFile file : shard.getIndexedFiles()) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (duplicates.get(i).contains(file) || !passesPrefilter(file, checks.get(i))) {
+                    continue;
+                }
+                TopSimilarities top = tops.get(i);
+                Map<String, Object> result = calculateFileSimilarity(file, checks.get(i), weights, top.cutoff(), null);
+                if (result != null) {
+                    results.get(i).add(result);
+                    top.add((double) result.get("similarity"));
+                }
+            }
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            List<Map<String, Object>> submissionResults = results.get(i);
+            submissionResults.sort(BY_SIMILARITY_DESC);
+            results.set(i, limitResults(submissionResults, maxResults));
+        }
+        return results;
+    }
+
+    /**
+     * Находит в шарде точные копии работы по каноническому хешу и сразу добавляет
+     * их результаты. Копии сравниваются обычным образом, но это сравнение линейно:
+     * все их фрагменты находятся таблицей точных совпадений. Найденные заранее
+     * копии поднимают границу лучших результатов до просмотра остальных файлов.
+     *
+     * @return найденные копии, которые не нужно сравнивать повторно
+     */
+    private Set<IndexedFile> addExactDuplicates(DatabaseShard shard, List<CodeFragment> checkFragments,
+                                                CanonicalHash checkHash, PreparedCheck check,
+                                                FragmentWeights weights, TopSimilarities top,
+                                                List<Map<String, Object>> results, ProgressTracker progress) {
+        List<IndexedFile> copies = shard.getDuplicateIndex().find(checkHash, checkFragments);
+        if (copies.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<IndexedFile> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (IndexedFile file : copies) {
+            if (!shard.contains(file)) {
+                continue;
+            }
+            found.add(file);
+            Map<String, Object> result = calculateFileSimilarity(file, check, weights, NO_CUTOFF, progress);
+            if (result != null) {
+                result.put(EXACT_DUPLICATE, true);
+                results.add(result);
+                top.add((double) result.get("similarity"));
+            }
+        }
+        exactDuplicateHits.addAndGet(found.size());
+        return found;
+    }
+
+    /**
+     * Подготавливает фрагменты проверяемого кода к сравнению с файлами базы данных.
+     */
+    private PreparedCheck prepare(List<CodeFragment> checkFragments) {
+        return new PreparedCheck(checkFragments, MIN_LENGTH_FOR_CONTAINMENT, CONTAINMENT_RATIO,
+                TOKEN_SIMILARITY_THRESHOLD, MAX_LENGTH_FOR_TOKEN_SIMILARITY);
+    }
+
+    /**
+     * Веса фрагментов базы данных по документным частотам на время одного запроса.
+     * <p>
+     * Стоп-фрагменты определяются по текущим частотам и меняются по мере роста
+     * базы данных, поэтому из производных структур файлов (столбцы, фильтр Блума,
+     * порядок просмотра) они не исключаются: на запрос влияет только подсчет,
+     * где они получают нулевой вес и не сравниваются, а из фрагментов проверяемого
+     * кода они удаляются до построения его индексов.
+     */
+    private static final class FragmentWeights {
+        private final DocumentFrequencies frequencies;
+        private final HashProbeTable stopFragments;
+        private final boolean idf;
+
+        private FragmentWeights(DocumentFrequencies frequencies, HashProbeTable stopFragments, boolean idf) {
+            this.frequencies = frequencies;
+            this.stopFragments = stopFragments;
+            this.idf = idf;
+        }
+
+        private boolean isStop(long hash) {
+            return stopFragments != null && stopFragments.find(hash) >= 0;
+        }
+
+        /**
+         * Возвращает вес фрагмента: 0 для стоп-фрагмента, иначе 1 или обратная документная частота.
+         */
+        private double weight(long hash) {
+            if (isStop(hash)) {
+                return 0;
+            }
+            return idf ? frequencies.inverseFrequency(hash) : 1;
+        }
+    }
+
+    /**
+     * Проверяет, включены ли стоп-фрагменты или взвешивание по обратной частоте.
+     */
+    private boolean isWeighted() {
+        return maxDocumentFrequencyRatio < 1.0 || idfWeighting;
+    }
+
+    /**
+     * Возвращает веса фрагментов для запроса по шарду или null, если
+     * стоп-фрагменты и взвешивание отключены (все веса равны единице).
+     */
+    private FragmentWeights weightsFor(DatabaseShard shard) {
+        return weightsFor(shard.getDocumentFrequencies());
+    }
+
+    /**
+     * Возвращает веса фрагментов по документным частотам или null, если
+     * стоп-фрагменты и взвешивание отключены.
+     */
+    private FragmentWeights weightsFor(DocumentFrequencies frequencies) {
+        double ratio = maxDocumentFrequencyRatio;
+        boolean idf = idfWeighting;
+        if (ratio >= 1.0 && !idf) {
+            return null;
+        }
+        HashProbeTable stopFragments = ratio < 1.0 ? frequencies.stopFragmentTable(ratio) : null;
+        return new FragmentWeights(frequencies, stopFragments, idf);
+    }
+
+    /**
+     * Исключает стоп-фрагменты из фрагментов проверяемого кода.
+     */
+    private List<CodeFragment> withoutStopFragments(List<CodeFragment> checkFragments, FragmentWeights weights) {
+        if (weights == null || weights.stopFragments == null) {
+            return checkFragments;
+        }
+        return checkFragments.stream()
+                .filter(fragment -> fragment.getNormalizedContent() == null
+                        || !weights.isStop(HashUtils.hash64(fragment.getNormalizedContent())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Проверяет, нужно ли сравнивать файл базы данных с проверяемым кодом.
+     * Файл отбрасывается, если по оценке его фильтра Блума общих фрагментов
+     * меньше порога {@link #minSharedFragments}.
+     */
+    private boolean passesPrefilter(IndexedFile file, PreparedCheck check) {
+        int threshold = minSharedFragments;
+        if (threshold == 0) {
+            return true;
+        }
+        if (file.getBloomFilter().countMatches(check.distinctHashes(), threshold) >= threshold) {
+            return true;
+        }
+        prefilterSkippedFiles.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Обрезает отсортированный список результатов до заданного размера.
+     */
+    private List<Map<String, Object>> limitResults(List<Map<String, Object>> results, int maxResults) {
+        if (maxResults <= 0 || results.size() <= maxResults) {
+            return results;
+        }
+        return new ArrayList<>(results.subList(0, maxResults));
+    }
+
+    /**
+     * Рассчитывает схожесть для одного файла базы данных.
+     * <p>
+     * По ходу сравнения поддерживается верхняя оценка итогового процента: текущие
+     * совпадения плюс все еще не просмотренные фрагменты. Как только оценка не проходит
+     * {@link #SIMILARITY_THRESHOLD} или не превышает границу лучших результатов шарда,
+     * файл отбрасывается. Нечеткое сравнение просматривает фрагменты в порядке
+     * {@link IndexedFile#getScanOrder()}, что не влияет на итоговый результат:
+     * каждый фрагмент базы данных учитывается независимо от остальных.
+     * <p>
+     * С весами фрагментов (стоп-фрагменты, обратная документная частота) совпадения
+     * и общее количество считаются как суммы весов; стоп-фрагменты с нулевым весом
+     * не сравниваются.
+     *
+     * @param weights веса фрагментов базы данных (null — все веса равны единице)
+     * @param cutoff граница лучших результатов: файл со схожестью не выше нее не попадет
+     *               в результат ({@link #NO_CUTOFF} — без границы)
+     * @param progress счетчики хода сравнения (null — не учитывать)
+     * @return результат сравнения или null, если файл не прошел порог или границу
+     */
+    private Map<String, Object> calculateFileSimilarity(IndexedFile file, PreparedCheck check,
+                                                        FragmentWeights weights, double cutoff,
+                                                        ProgressTracker progress) {
+        List<CodeFragment> checkFragments = check.fragments();
+        FragmentColumns checkColumns = check.columns();
+        ContainmentIndex containmentIndex = check.containmentIndex();
+        TokenPrefixIndex tokenIndex = check.tokenIndex();
+
+        String fileName = file.getFileName();
+        List<CodeFragment> dbFragments = file.getFragments();
+        FragmentColumns dbColumns = file.getColumns();
+        if (dbFragments.isEmpty()) {
+            if (progress != null) {
+                progress.fileProcessed(0, 0, 0);
+            }
+            return null;
+        }
+
+        int fragmentCount = dbFragments.size();
+        double[] fragmentWeights = weights == null ? null : new double[fragmentCount];
+        double total = fragmentCount;
+        if (fragmentWeights != null) {
+            total = 0;
+            int stopCount = 0;
+            for (int i = 0; i < fragmentCount; i++) {
+                fragmentWeights[i] = weights.weight(dbColumns.hash(i));
+                total += fragmentWeights[i];
+                if (fragmentWeights[i] == 0) {
+                    stopCount++;
+                }
+            }
+            skippedStopFragments.addAndGet(stopCount);
+            if (total == 0) {
+                // Файл состоит только из стоп-фрагментов
+                if (progress != null) {
+                    progress.fileProcessed(0, fragmentCount, 0);
+                }
+                return null;
+            }
+        }
+        // Пробы точных совпадений и сравнения пар фрагментов
+        long comparisons = fragmentCount;
+        boolean fullCodeMatch = hasFullCodeMatch(dbColumns, checkColumns);
+
+        int matchesCount = 0;
+        double matchedWeight = 0;
+        Map<CodeFragment, List<String>> matchedFragments = new HashMap<>();
+        Set<String> matchedContentSamples = new HashSet<>();
+
+        // Точные совпадения находятся по таблице проб за линейное время;
+        // нечеткие правила применяются только к оставшимся фрагментам
+        boolean[] exactMatched = new boolean[fragmentCount];
+        for (int i = 0; i < fragmentCount; i++) {
+            if (fragmentWeights != null && fragmentWeights[i] == 0) {
+                continue;
+            }
+            int j = check.findExact(dbColumns, i);
+            if (j >= 0) {
+                exactMatched[i] = true;
+                matchesCount++;
+                matchedWeight += fragmentWeights == null ? 1 : fragmentWeights[i];
+                matchedFragments.put(checkFragments.get(j), Collections.singletonList(fileName));
+                matchedContentSamples.add(truncateText(dbFragments.get(i).getNormalizedContent(), 50));
+                logMatch("Exact match", fileName, dbColumns.content(i));
+            }
+        }
+
+        // Количество (вес) фрагментов, для которых совпадение уже исключено
+        double missedWeight = 0;
+
+        // Сравниваем остальные фрагменты по предвычисленным признакам
+        for (int i : file.getScanOrder()) {
+            if (exactMatched[i]) {
+                continue;
+            }
+            double weight = fragmentWeights == null ? 1 : fragmentWeights[i];
+            if (weight == 0) {
+                continue;
+            }
+            CodeFragment dbFragment = dbFragments.get(i);
+            // Фрагменты работы, связанные правилом вхождения,
+            // и фрагменты, с которыми может сработать токенное правило
+            long[] contained = containmentIndex.candidates(dbColumns, i);
+            long[] tokenCandidates = tokenIndex.candidates(dbColumns, i);
+            boolean matched = false;
+            for (int j = 0; j < checkFragments.size(); j++) {
+                CodeFragment checkFragment = checkFragments.get(j);
+                comparisons++;
+                if (isFragmentSimilar(dbColumns, i, checkColumns, j, fileName,
+                        ContainmentIndex.contains(contained, j),
+                        TokenPrefixIndex.contains(tokenCandidates, j))) {
+                    matchesCount++;
+                    matchedWeight += weight;
+                    matchedFragments.put(checkFragment, Collections.singletonList(fileName));
+                    matchedContentSamples.add(truncateText(dbFragment.getNormalizedContent(), 50));
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                missedWeight += weight;
+                if (!canQualify(total - missedWeight, total, fullCodeMatch, cutoff)) {
+                    earlyRejectedFiles.incrementAndGet();
+                    if (progress != null) {
+                        progress.fileProcessed(0, fragmentCount, comparisons);
+                    }
+                    return null;
+                }
+            }
+        }
+
+        if (progress != null) {
+            progress.fileProcessed(0, fragmentCount, comparisons);
+        }
+        double similarity = calculateSimilarity(matchedWeight, total, fullCodeMatch);
+
+        if (similarity > SIMILARITY_THRESHOLD) {
+            logger.debug("File {}: similarity {}% (matches: {})",
+                    fileName, String.format("%.2f", similarity), matchesCount);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("fileName", fileName);
+            result.put("similarity", similarity);
+            result.put("matchesCount", matchesCount);
+            result.put("matchedFragments", matchedFragments);
+            return result;
+        }
+
+        return null;
+    }
+
+    /**
+     * Рассчитывает итоговый процент схожести файла.
+     * Результат не убывает с ростом количества совпадений, поэтому для количества
+     * совпадений, которое еще может быть достигнуто, он дает верхнюю оценку.
+     */
+    private double calculateSimilarity(double matchesCount, double totalFragments, boolean fullCodeMatch) {
+        // Рассчитываем процент схожести
+        double similarity = calculateSimilarityPercentage(matchesCount, totalFragments);
+
+        // Усиливаем результат при полном совпадении
+        if (fullCodeMatch) {
+            similarity = Math.min(100, similarity + FULL_CODE_MATCH_BONUS);
+        }
+
+        // Применяем логарифмическое масштабирование
+        return Math.min(100, similarity * SIMILARITY_BOOST_FACTOR);
+    }
+
+    /**
+     * Проверяет, может ли файл попасть в результат при заданном максимуме совпадений.
+     * Граница лучших результатов строгая: при равной схожести сортировка оставляет
+     * выше файлы, просмотренные раньше, поэтому более поздний файл в список не войдет.
+     */
+    private boolean canQualify(double possibleMatches, double totalFragments, boolean fullCodeMatch, double cutoff) {
+        double bound = calculateSimilarity(possibleMatches, totalFragments, fullCodeMatch);
+        return bound > SIMILARITY_THRESHOLD && bound > cutoff;
+    }
+
+    /**
+     * Рассчитывает процент схожести на основе количества совпадений.
+     */
+    private double calculateSimilarityPercentage(double matchesCount, double totalFragments) {
+        if (totalFragments == 0) {
+            return 0.0;
+        }
+        return matchesCount / totalFragments * 100;
+    }
+
+    /**
+     * Определяет схожесть двух фрагментов кода.
+     * Правила проверяются в порядке, который поддерживает {@link RuleCascade}.
+     */
+    public boolean isContentSimilar(String dbContent, String checkContent, String fileName) {
+        if (dbContent == null || checkContent == null) {
+            return false;
+        }
+
+        RuleCascade cascade = contentCascade;
+        boolean sampled = cascade.isSampled(dbContent.hashCode() * 31L + checkContent.hashCode());
+        for (RuleCascade.Rule rule : cascade.order()) {
+            boolean fired;
+            if (sampled) {
+                long start = System.nanoTime();
+                fired = applyContentRule(rule, dbContent, checkContent, fileName);
+                cascade.record(rule, System.nanoTime() - start, fired);
+            } else {
+                fired = applyContentRule(rule, dbContent, checkContent, fileName);
+            }
+            if (fired) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Применяет одно правило схожести к паре строк.
+     */
+    private boolean applyContentRule(RuleCascade.Rule rule, String dbContent, String checkContent,
+                                     String fileName) {
+        switch (rule) {
+            case EXACT:
+                // Точное совпадение
+                if (dbContent.equals(checkContent)) {
+                    logMatch("Exact match", fileName, dbContent);
+                    return true;
+                }
+                return false;
+
+            case CONTAINMENT:
+                // Содержание одного фрагмента в другом
+                return isContentContained(dbContent, checkContent, fileName);
+
+            case ALGORITHM:
+                // Алгоритмическая схожесть
+                if (isAlgorithmSimilar(dbContent, checkContent)) {
+                    logMatch("Algorithm match", fileName, dbContent);
+                    return true;
+                }
+                return false;
+
+            case TOKEN:
+                // Токенное сходство (для коротких фрагментов)
+                if (dbContent.length() < MAX_LENGTH_FOR_TOKEN_SIMILARITY
+                        && checkContent.length() < MAX_LENGTH_FOR_TOKEN_SIMILARITY) {
+                    double tokenSimilarity = calculateTokenSimilarity(dbContent, checkContent);
+                    if (tokenSimilarity > TOKEN_SIMILARITY_THRESHOLD) {
+                        logMatch(String.format("Token match %.1f%%", tokenSimilarity), fileName, dbContent);
+                        return true;
+                    }
+                }
+                return false;
+
+            default:
+                throw new IllegalStateException("Unknown rule: " + rule);
+        }
+    }
+
+    /**
+     * Определяет схожесть двух фрагментов по предвычисленным признакам.
+     * Правила совпадают с {@link #isContentSimilar(String, String, String)},
+     * но длины, хеши, маски маркеров и множества токенов берутся из столбцов,
+     * а вхождение заранее найдено по отпечаткам окон ({@link ContainmentIndex}).
+     * Токенное сходство вычисляется только для пар, отобранных {@link TokenPrefixIndex}:
+     * для остальных пар оно заведомо не превышает порог. Решение токенного правила
+     * запоминается в {@link PairVerdictCache}. Порядок правил поддерживает {@link RuleCascade}.
+     */
+    private boolean isFragmentSimilar(FragmentColumns db, int i, FragmentColumns check, int j, String fileName,
+                                      boolean contained, boolean tokenCandidate) {
+        if (db.content(i) == null || check.content(j) == null) {
+            return false;
+        }
+
+        RuleCascade cascade = fragmentCascade;
+        boolean sampled = cascade.isSampled(db.hash(i) ^ check.hash(j));
+        for (RuleCascade.Rule rule : cascade.order()) {
+            boolean fired;
+            if (sampled) {
+                long start = System.nanoTime();
+                fired = applyFragmentRule(rule, db, i, check, j, fileName, contained, tokenCandidate);
+                cascade.record(rule, System.nanoTime() - start, fired);
+            } else {
+                fired = applyFragmentRule(rule, db, i, check, j, fileName, contained, tokenCandidate);
+            }
+            if (fired) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Применяет одно правило схожести к паре фрагментов по предвычисленным признакам.
+     */
+    private boolean applyFragmentRule(RuleCascade.Rule rule, FragmentColumns db, int i,
+                                      FragmentColumns check, int j, String fileName,
+                                      boolean contained, boolean tokenCandidate) {
+        switch (rule) {
+            case EXACT:
+                // Точное совпадение: разные хеши означают разные строки
+                if (db.hash(i) == check.hash(j) && db.content(i).equals(check.content(j))) {
+                    logMatch("Exact match", fileName, db.content(i));
+                    return true;
+                }
+                return false;
+
+            case CONTAINMENT:
+                // Содержание одного фрагмента в другом
+                if (contained) {
+                    logMatch("Containing match", fileName, db.content(i));
+                    return true;
+                }
+                return false;
+
+            case ALGORITHM:
+                // Алгоритмическая схожесть
+                if (markers.isAlgorithmSimilar(db.patternMask(i), db.constructionMask(i),
+                        check.patternMask(j), check.constructionMask(j))) {
+                    logMatch("Algorithm match", fileName, db.content(i));
+                    return true;
+                }
+                return false;
+
+            case TOKEN:
+                // Токенное сходство (для коротких фрагментов, прошедших фильтры длины и префикса)
+                return tokenCandidate && isTokenSimilar(db, i, check, j, fileName);
+
+            default:
+                throw new IllegalStateException("Unknown rule: " + rule);
+        }
+    }
+
+    /**
+     * Применяет токенное правило к паре фрагментов, используя кеш решений.
+     */
+    private boolean isTokenSimilar(FragmentColumns db, int i, FragmentColumns check, int j, String fileName) {
+        PairVerdictCache cache = verdictCache;
+        long key = 0;
+        if (cache != null) {
+            key = PairVerdictCache.key(db.hash(i), check.hash(j));
+            int verdict = cache.get(key);
+            if (verdict != PairVerdictCache.UNKNOWN) {
+                if (verdict == 1) {
+                    logMatch("Token match (cached)", fileName, db.content(i));
+                }
+                return verdict == 1;
+            }
+        }
+        double tokenSimilarity = calculateTokenSimilarity(db, i, check, j);
+        boolean similar = tokenSimilarity > TOKEN_SIMILARITY_THRESHOLD;
+        if (cache != null) {
+            cache.put(key, similar);
+        }
+        if (similar) {
+            logMatch(String.format("Token match %.1f%%", tokenSimilarity), fileName, db.content(i));
+        }
+        return similar;
+    }
+
+    /**
+     * Вычисляет коэффициент сходства токенов двух фрагментов по столбцам.
+     * Одинаковые номера множеств токенов означают одинаковые множества.
+     */
+    private double calculateTokenSimilarity(FragmentColumns db, int i, FragmentColumns check, int j) {
+        int tokenSetId = db.tokenSetId(i);
+        if (tokenSetId >= 0 && tokenSetId == check.tokenSetId(j)) {
+            return db.tokenCount(i) > 0 ? 100.0 : 0.0;
+        }
+        return db.tokenSet(i).jaccardPercent(check.tokenSet(j), kernel);
+    }
+
+    /**
+     * Проверяет, содержится ли один фрагмент в другом.
+     */
+    private boolean isContentContained(String str1, String str2, String fileName) {
+        int length1 = str1.length();
+        int length2 = str2.length();
+        if (length1 < MIN_LENGTH_FOR_CONTAINMENT || length2 < MIN_LENGTH_FOR_CONTAINMENT) {
+            return false;
+        }
+
+        // Сначала сравниваются длины: поиск подстроки нужен только при подходящем соотношении
+        if (length2 > length1 * CONTAINMENT_RATIO && str1.contains(str2)) {
+            logMatch("Containing match", fileName, str1);
+            return true;
+        }
+
+        if (length1 > length2 * CONTAINMENT_RATIO && str2.contains(str1)) {
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Логирует информацию о совпадении.
+     */
+    private void logMatch(String matchType, String fileName, String content) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("{} in file {}: {}",
+                    matchType, fileName, truncateText(content, 50));
+        }
+    }
+
+    /**
+     * Проверяет алгоритмическую схожесть двух строк кода.
+     */
+    public boolean isAlgorithmSimilar(String str1, String str2) {
+        try {
+            // Общий паттерн или достаточное количество общих конструкций
+            return markers.isAlgorithmSimilar(str1, str2);
+
+        } catch (Exception e) {
+            logger.error("Error in isAlgorithmSimilar: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Вычисляет коэффициент сходства на основе общих токенов.
+     */
+    public double calculateTokenSimilarity(String str1, String str2) {
+        try {
+            if (str1 == null || str2 == null) {
+                return 0.0;
+            }
+
+            // Множества токенов строятся как битовые карты над общим словарем без его пополнения
+            TokenDictionary dictionary = TokenDictionary.shared();
+            TokenSet set1 = TokenSet.of(str1, dictionary, false);
+            TokenSet set2 = TokenSet.of(str2, dictionary, false);
+
+            return set1.jaccardPercent(set2, kernel);
+
+        } catch (Exception e) {
+            logger.error("Error in calculateTokenSimilarity: {}", e.getMessage());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Проверяет наличие совпадения полного кода или алгоритма
+     * по предвычисленным множествам токенов. Фрагменты всего файла берутся
+     * из индекса видов фрагментов и сравниваются только с фрагментами того же вида.
+     */
+    private boolean hasFullCodeMatch(FragmentColumns dbColumns, FragmentColumns checkColumns) {
+        for (CodeFragment.Kind kind : WHOLE_FILE_KINDS) {
+            for (int i : dbColumns.positions(kind)) {
+                for (int j : checkColumns.positions(kind)) {
+                    if (calculateTokenSimilarity(dbColumns, i, checkColumns, j) > FULL_CODE_MATCH_THRESHOLD) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет наличие совпадения полного кода или алгоритма.
+     * Фрагменты всего файла сравниваются только с фрагментами того же вида.
+     */
+    public boolean hasFullCodeMatch(List<CodeFragment> dbFragments, List<CodeFragment> checkFragments) {
+        try {
+            for (CodeFragment dbFragment : dbFragments) {
+                if (!dbFragment.getKind().isWholeFile()) {
+                    continue;
+                }
+                for (CodeFragment checkFragment : checkFragments) {
+                    if (checkFragment.getKind() == dbFragment.getKind()
+                            && calculateTokenSimilarity(dbFragment.getNormalizedContent(),
+                                    checkFragment.getNormalizedContent()) > FULL_CODE_MATCH_THRESHOLD) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (Exception e) {
+            logger.error("Error in hasFullCodeMatch: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Обрезает текст до указанной длины.
+     */
+    private String truncateText(String text, int maxLength) {
+        if (text == null || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...";
+    }
+
+    /**
+     * Лучшие значения схожести, найденные в шарде: граница, ниже которой
+     * файл уже не войдет в ограниченный список результатов.
+     */
+    private static final class TopSimilarities {
+        private final int limit;
+        private final PriorityQueue<Double> best;
+
+        TopSimilarities(int limit) {
+            this.limit = limit;
+            this.best = new PriorityQueue<>();
+        }
+
+        void add(double similarity) {
+            if (limit <= 0) {
+                return;
+            }
+            best.add(similarity);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        double cutoff() {
+            return limit > 0 && best.size() == limit ? best.peek() : NO_CUTOFF;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.plagiarism.checker.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Блоки шаблонного кода: последовательности из нескольких подряд идущих
+ * нормализованных единиц (операторов или строк) шаблона.
+ * <p>
+ * Единица проверяемого кода считается шаблонной, только если она входит в
+ * блок из {@link #BLOCK_SIZE} подряд идущих единиц, который так же подряд
+ * встречается в шаблоне. Поэтому тривиальные операторы вроде {@code return VAR},
+ * совпавшие с шаблоном по отдельности, из работы не вычитаются. Шаблон короче
+ * блока образует один блок целиком.
+ */
+final class TemplateBlocks {
+
+    /** Количество подряд идущих единиц в блоке */
+    static final int BLOCK_SIZE = 3;
+
+    /** Разделитель единиц в ключе блока */
+    private static final char SEPARATOR = '\u0000';
+
+    /** Ключи блоков по количеству единиц в блоке */
+    private final Map<Integer, Set<String>> blocks;
+
+    TemplateBlocks() {
+        this.blocks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Регистрирует блоки последовательности единиц шаблона.
+     *
+     * @param units непустые нормализованные единицы шаблона по порядку
+     * @return количество новых блоков
+     */
+    int add(List<String> units) {
+        int size = Math.min(BLOCK_SIZE, units.size());
+        if (size == 0) {
+            return 0;
+        }
+        Set<String> keys = blocks.computeIfAbsent(size, key -> ConcurrentHashMap.newKeySet());
+        int added = 0;
+        for (int start = 0; start + size <= units.size(); start++) {
+            if (keys.add(key(units, start, size))) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Отмечает единицы, входящие в блоки шаблона.
+     *
+     * @param units непустые нормализованные единицы проверяемого кода по порядку
+     * @return признаки шаблонных единиц (по номеру единицы)
+     */
+    boolean[] cover(List<String> units) {
+        boolean[] covered = new boolean[units.size()];
+        for (Map.Entry<Integer, Set<String>> entry : blocks.entrySet()) {
+            int size = entry.getKey();
+            Set<String> keys = entry.getValue();
+            for (int start = 0; start + size <= units.size(); start++) {
+                if (keys.contains(key(units, start, size))) {
+                    for (int i = start; i < start + size; i++) {
+                        covered[i] = true;
+                    }
+                }
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Проверяет, зарегистрирован ли хотя бы один блок.
+     */
+    boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    /**
+     * Возвращает количество зарегистрированных блоков.
+     */
+    int size() {
+        return blocks.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Удаляет все блоки.
+     */
+    void clear() {
+        blocks.clear();
+    }
+
+    private static String key(List<String> units, int start, int size) {
+        StringBuilder key = new StringBuilder();
+        for (int i = start; i < start + size; i++) {
+            if (i > start) {
+                key.append(SEPARATOR);
+            }
+            key.append(units.get(i));
+        }
+        return key.toString();
+    }
+}
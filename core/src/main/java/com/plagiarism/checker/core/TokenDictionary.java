@@ -0,0 +1,76 @@
+package com.plagiarism.checker.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Словарь токенов нормализованного кода.
+ * <p>
+ * Присваивает каждому различному токену постоянный номер в порядке первого
+ * появления, поэтому частые токены (VAR, NUM, скобки) получают маленькие номера
+ * и множества токенов компактно представляются битовыми картами.
+ * Нормализация сводит идентификаторы и литералы к VAR, NUM и STR, так что
+ * словарь остается небольшим. Словарь общий для базы данных и запросов,
+ * но регистрируют токены только файлы базы данных: запросы лишь ищут номера
+ * ({@link #find(String)}), поэтому произвольные проверяемые работы не
+ * увеличивают словарь.
+ */
+final class TokenDictionary {
+
+    /** Номер для токена, которого нет в словаре */
+    static final int UNKNOWN = -1;
+
+    /** Общий словарь процесса */
+    private static final TokenDictionary SHARED = new TokenDictionary();
+
+    /** Номера токенов */
+    private final Map<String, Integer> ids;
+
+    /** Следующий свободный номер */
+    private final AtomicInteger nextId;
+
+    private TokenDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Возвращает общий словарь процесса.
+     */
+    static TokenDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Возвращает номер токена, при необходимости регистрируя его.
+     *
+     * @param token токен
+     * @return постоянный номер токена
+     */
+    int idOf(String token) {
+        Integer id = ids.get(token);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(token, key -> nextId.getAndIncrement());
+    }
+
+    /**
+     * Возвращает номер токена, не регистрируя его.
+     *
+     * @param token токен
+     * @return номер токена или {@link #UNKNOWN}, если токена нет в словаре
+     */
+    int find(String token) {
+        Integer id = ids.get(token);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * Возвращает количество зарегистрированных токенов.
+     */
+    int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,180 @@
+package com.plagiarism.checker.core;
+
+import java.util.Arrays;
+
+/**
+ * Индекс префиксов множеств токенов проверяемой работы для соединения по порогу
+ * коэффициента Жаккара (фильтры длины и префикса в духе PPJoin).
+ * <p>
+ * Если J(A, B) ≥ t, то |A ∩ B| ≥ t·max(|A|, |B|), поэтому множества обязаны
+ * пересекаться в префиксах длины |X| − ⌈t·|X|⌉ + 1 при любом общем порядке
+ * токенов. Порядок — по убыванию номера в словаре (редкие токены первыми).
+ * Кроме того, J ≤ min(|A|, |B|) / max(|A|, |B|), что отсекает пары с сильно
+ * различающимся количеством токенов. Фильтры только отбрасывают пары, которые
+ * не могут превысить порог; точный коэффициент по-прежнему вычисляется для
+ * каждого кандидата.
+ * <p>
+ * Списки фрагментов хранятся в таблице с открытой адресацией по номеру токена,
+ * размер которой зависит только от суммарной длины префиксов работы, а не от
+ * наибольшего номера в словаре.
+ */
+final class TokenPrefixIndex {
+
+    /** Пустая ячейка таблицы списков */
+    private static final int EMPTY_SLOT = -1;
+
+    /** Множитель для перемешивания номера токена (золотое сечение) */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    /** Запас для погрешности вычислений с плавающей точкой (увеличивает префикс) */
+    private static final double EPSILON = 1e-9;
+
+    /** Признаки фрагментов проверяемой работы */
+    private final FragmentColumns check;
+
+    /** Порог коэффициента Жаккара в процентах (строго больше) */
+    private final double thresholdPercent;
+
+    /** Максимальная длина фрагмента, для которой применяется токенное правило */
+    private final int maxLength;
+
+    /** Номера токенов префиксов по ячейкам таблицы ({@link #EMPTY_SLOT} — ячейка пуста) */
+    private final int[] slotIds;
+
+    /** Номера фрагментов работы по ячейкам таблицы (токен префикса → фрагменты) */
+    private final int[][] postings;
+
+    /** Маска номера ячейки */
+    private final int mask;
+
+    /**
+     * Строит индекс по подходящим фрагментам проверяемой работы.
+     *
+     * @param check признаки фрагментов проверяемой работы
+     * @param thresholdPercent порог коэффициента Жаккара в процентах
+     * @param maxLength максимальная длина фрагмента для токенного правила (не включительно)
+     */
+    TokenPrefixIndex(FragmentColumns check, double thresholdPercent, int maxLength) {
+        this.check = check;
+        this.thresholdPercent = thresholdPercent;
+        this.maxLength = maxLength;
+
+        int[][] prefixes = new int[check.size()][];
+        int total = 0;
+        for (int j = 0; j < check.size(); j++) {
+            if (isEligible(check, j)) {
+                prefixes[j] = prefix(check.tokenSet(j));
+                total += prefixes[j].length;
+            }
+        }
+
+        // Не меньше двух ячеек на токен: различных токенов не больше суммарной длины префиксов
+        int capacity = Integer.highestOneBit(Math.max(1, total) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.slotIds = new int[capacity];
+        Arrays.fill(slotIds, EMPTY_SLOT);
+        int[] counts = new int[capacity];
+        for (int[] prefix : prefixes) {
+            if (prefix != null) {
+                for (int id : prefix) {
+                    int slot = slot(id);
+                    slotIds[slot] = id;
+                    counts[slot]++;
+                }
+            }
+        }
+        this.postings = new int[capacity][];
+        for (int slot = 0; slot < capacity; slot++) {
+            if (counts[slot] > 0) {
+                postings[slot] = new int[counts[slot]];
+            }
+        }
+        Arrays.fill(counts, 0);
+        for (int j = 0; j < prefixes.length; j++) {
+            if (prefixes[j] != null) {
+                for (int id : prefixes[j]) {
+                    int slot = slot(id);
+                    postings[slot][counts[slot]++] = j;
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает ячейку токена: ячейку с этим номером или первую пустую ячейку на пути поиска.
+     */
+    private int slot(int id) {
+        int hash = id * HASH_MULTIPLIER;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slotIds[slot] != id && slotIds[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Находит фрагменты работы, с которыми фрагмент базы данных может
+     * превысить порог токенного сходства.
+     *
+     * @param db признаки фрагментов файла базы данных
+     * @param i номер фрагмента базы данных
+     * @return битовая карта номеров фрагментов работы или null, если кандидатов нет
+     */
+    long[] candidates(FragmentColumns db, int i) {
+        if (!isEligible(db, i)) {
+            return null;
+        }
+
+        int dbCount = db.tokenCount(i);
+        long[] result = null;
+        for (int id : prefix(db.tokenSet(i))) {
+            int slot = slot(id);
+            if (slotIds[slot] == EMPTY_SLOT) {
+                continue;
+            }
+            for (int j : postings[slot]) {
+                if (!passesLengthFilter(dbCount, check.tokenCount(j))) {
+                    continue;
+                }
+                if (result == null) {
+                    result = new long[(check.size() + 63) >>> 6];
+                }
+                result[j >>> 6] |= 1L << j;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, отмечен ли фрагмент работы в битовой карте кандидатов.
+     */
+    static boolean contains(long[] candidates, int j) {
+        return candidates != null && (candidates[j >>> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * Проверяет верхнюю границу коэффициента Жаккара min / max
+     * по той же формуле, по которой вычисляется точный коэффициент.
+     */
+    private boolean passesLengthFilter(int count1, int count2) {
+        int min = Math.min(count1, count2);
+        int max = Math.max(count1, count2);
+        return (double) min / max * 100 > thresholdPercent;
+    }
+
+    private boolean isEligible(FragmentColumns columns, int index) {
+        return columns.content(index) != null
+                && columns.length(index) < maxLength
+                && columns.tokenCount(index) > 0;
+    }
+
+    /**
+     * Возвращает префикс множества токенов для порога индекса.
+     */
+    private int[] prefix(TokenSet tokens) {
+        int size = tokens.cardinality();
+        int minOverlap = (int) Math.ceil(size * (thresholdPercent / 100 - EPSILON));
+        int length = Math.max(1, Math.min(size, size - minOverlap + 1));
+        return tokens.highestIds(length);
+    }
+}
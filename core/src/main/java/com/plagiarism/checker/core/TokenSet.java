@@ -0,0 +1,243 @@
+package com.plagiarism.checker.core;
+
+import com.plagiarism.checker.utils.IntersectionKernel;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемое множество токенов фрагмента над номерами {@link TokenDictionary}.
+ * <p>
+ * Как контейнеры в roaring bitmap, множество хранится в одном из двух видов,
+ * выбираемом по размеру: плотная битовая карта (слова по 64 номера) или
+ * отсортированный массив номеров для редких множеств с большими номерами.
+ * Размеры пересечения и объединения считаются без выделения памяти.
+ * <p>
+ * Множества проверяемых работ строятся без регистрации токенов в словаре.
+ * Токены, которых нет в словаре, не получают номеров и хранятся отдельно
+ * отсортированными строками: они входят в мощность множества и пересекаются
+ * только с такими же неизвестными токенами другого множества, поэтому
+ * коэффициент Жаккара не зависит от того, зарегистрирован ли токен.
+ */
+final class TokenSet {
+
+    /** Пустое множество */
+    static final TokenSet EMPTY = new TokenSet(new long[0], true, 0, new String[0]);
+
+    /** Слова битовой карты (плотный вид) или отсортированные номера (разреженный вид) */
+    private final long[] data;
+
+    /** Признак плотного вида */
+    private final boolean dense;
+
+    /** Количество токенов в множестве, включая неизвестные словарю */
+    private final int cardinality;
+
+    /** Различные токены, которых нет в словаре, по возрастанию */
+    private final String[] unknownTokens;
+
+    private TokenSet(long[] data, boolean dense, int cardinality, String[] unknownTokens) {
+        this.data = data;
+        this.dense = dense;
+        this.cardinality = cardinality;
+        this.unknownTokens = unknownTokens;
+    }
+
+    /**
+     * Строит множество токенов строки.
+     * Токены выделяются так же, как в
+     * {@link SimilarityCalculator#calculateTokenSimilarity(String, String)}.
+     *
+     * @param content нормализованное содержимое фрагмента
+     * @param dictionary словарь токенов
+     * @param register регистрировать ли новые токены в словаре (только для файлов базы данных)
+     * @return множество токенов
+     */
+    static TokenSet of(String content, TokenDictionary dictionary, boolean register) {
+        if (content == null) {
+            return EMPTY;
+        }
+        String[] tokens = content.split("\\s+");
+        long[] ids = new long[tokens.length];
+        int known = 0;
+        String[] unknown = null;
+        int unknownCount = 0;
+        for (String token : tokens) {
+            int id = register ? dictionary.idOf(token) : dictionary.find(token);
+            if (id == TokenDictionary.UNKNOWN) {
+                if (unknown == null) {
+                    unknown = new String[tokens.length];
+                }
+                unknown[unknownCount++] = token;
+            } else {
+                ids[known++] = id;
+            }
+        }
+        Arrays.sort(ids, 0, known);
+
+        int distinct = 0;
+        for (int i = 0; i < known; i++) {
+            if (i == 0 || ids[i] != ids[distinct - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        String[] unknownTokens = unknown == null ? EMPTY.unknownTokens : distinctSorted(unknown, unknownCount);
+        if (distinct == 0 && unknownTokens.length == 0) {
+            return EMPTY;
+        }
+        int cardinality = distinct + unknownTokens.length;
+
+        int words = distinct == 0 ? 0 : (int) (ids[distinct - 1] >>> 6) + 1;
+        if (words <= distinct) {
+            long[] bitmap = new long[words];
+            for (int i = 0; i < distinct; i++) {
+                bitmap[(int) (ids[i] >>> 6)] |= 1L << ids[i];
+            }
+            return new TokenSet(bitmap, true, cardinality, unknownTokens);
+        }
+        return new TokenSet(Arrays.copyOf(ids, distinct), false, cardinality, unknownTokens);
+    }
+
+    /**
+     * Возвращает различные строки первых count элементов массива по возрастанию.
+     */
+    private static String[] distinctSorted(String[] tokens, int count) {
+        Arrays.sort(tokens, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || !tokens[i].equals(tokens[distinct - 1])) {
+                tokens[distinct++] = tokens[i];
+            }
+        }
+        return Arrays.copyOf(tokens, distinct);
+    }
+
+    /**
+     * Возвращает количество токенов в множестве.
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Возвращает наибольшие номера токенов множества, начиная с самого большого.
+     * Номера выдаются в порядке первого появления токенов, поэтому большие
+     * номера принадлежат более редким токенам. Неизвестные словарю токены
+     * (их нет ни в одном файле базы данных) считаются самыми редкими: они
+     * занимают начало порядка, но номеров не имеют и в результат не входят.
+     *
+     * @param count количество первых токенов порядка (не больше мощности множества)
+     * @return массив номеров известных токенов среди первых count по убыванию
+     */
+    int[] highestIds(int count) {
+        int[] ids = new int[Math.max(0, Math.min(count, cardinality) - unknownTokens.length)];
+        int filled = 0;
+        if (dense) {
+            for (int word = data.length - 1; word >= 0 && filled < ids.length; word--) {
+                long bits = data[word];
+                while (bits != 0 && filled < ids.length) {
+                    int bit = 63 - Long.numberOfLeadingZeros(bits);
+                    ids[filled++] = word * 64 + bit;
+                    bits &= ~(1L << bit);
+                }
+            }
+        } else {
+            for (int k = data.length - 1; k >= 0 && filled < ids.length; k--) {
+                ids[filled++] = (int) data[k];
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Подсчитывает количество общих токенов двух множеств.
+     *
+     * @param other другое множество
+     * @param kernel ядро подсчета пересечений
+     * @return размер пересечения
+     */
+    int intersectionSize(TokenSet other, IntersectionKernel kernel) {
+        int unknown = unknownTokens.length > 0 && other.unknownTokens.length > 0
+                ? unknownIntersectionSize(other)
+                : 0;
+        if (dense && other.dense) {
+            return kernel.andCardinality(data, other.data) + unknown;
+        }
+        if (!dense && !other.dense) {
+            return kernel.intersectionSize(data, other.data) + unknown;
+        }
+        TokenSet sparseSet = dense ? other : this;
+        long[] bitmap = dense ? data : other.data;
+        int count = 0;
+        for (long id : sparseSet.data) {
+            int word = (int) (id >>> 6);
+            if (word < bitmap.length && (bitmap[word] & (1L << id)) != 0) {
+                count++;
+            }
+        }
+        return count + unknown;
+    }
+
+    /**
+     * Подсчитывает общие неизвестные словарю токены двух множеств слиянием отсортированных строк.
+     */
+    private int unknownIntersectionSize(TokenSet other) {
+        String[] a = unknownTokens;
+        String[] b = other.unknownTokens;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int order = a[i].compareTo(b[j]);
+            if (order == 0) {
+                count++;
+                i++;
+                j++;
+            } else if (order < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Вычисляет коэффициент Жаккара двух множеств в процентах.
+     *
+     * @param other другое множество
+     * @param kernel ядро подсчета пересечений
+     * @return |A ∩ B| / |A ∪ B| * 100 (0 для двух пустых множеств)
+     */
+    double jaccardPercent(TokenSet other, IntersectionKernel kernel) {
+        int intersection = intersectionSize(other, kernel);
+        int union = cardinality + other.cardinality - intersection;
+        if (union == 0) {
+            return 0.0;
+        }
+        return (double) intersection / union * 100;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TokenSet other)) {
+            return false;
+        }
+        return dense == other.dense && cardinality == other.cardinality && Arrays.equals(data, other.data)
+                && Arrays.equals(unknownTokens, other.unknownTokens);
+    }
+
+    @Override
+    public int hashCode() {
+        return (Arrays.hashCode(data) * 31 + (dense ? 1 : 0)) * 31 + Arrays.hashCode(unknownTokens);
+    }
+
+    /**
+     * Возвращает размер представления в байтах.
+     */
+    int getSizeInBytes() {
+        return data.length * Long.BYTES;
+    }
+}
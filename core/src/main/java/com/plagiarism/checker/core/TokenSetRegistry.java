@@ -0,0 +1,96 @@
+package com.plagiarism.checker.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Реестр различных множеств токенов файлов базы данных (множество → номер).
+ * <p>
+ * Одинаковые множества фрагментов базы данных получают один номер, поэтому
+ * равенство множеств проверяется сравнением номеров. Реестр считает ссылки:
+ * каждый файл, учтенный в базе данных, удерживает свои множества, а множество,
+ * на которое больше не ссылается ни один файл, удаляется, поэтому размер реестра
+ * ограничен содержимым базы данных, а не историей добавлений.
+ * <p>
+ * Номера не используются повторно. Если множество удалено и зарегистрировано
+ * заново, оно получает новый номер, а у ранее построенных фрагментов остается
+ * прежний: такие фрагменты лишь не распознаются как равные по номеру, но не
+ * могут ошибочно совпасть с другим множеством.
+ */
+final class TokenSetRegistry {
+
+    /** Общий реестр процесса */
+    private static final TokenSetRegistry SHARED = new TokenSetRegistry();
+
+    /**
+     * Номер множества и количество ссылок на него (изменяется только внутри compute).
+     */
+    private static final class Entry {
+        private final int id;
+        private int references;
+
+        private Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    private final Map<TokenSet, Entry> entries;
+
+    /** Следующий свободный номер множества */
+    private final AtomicInteger nextId;
+
+    private TokenSetRegistry() {
+        this.entries = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Возвращает общий реестр процесса.
+     */
+    static TokenSetRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Возвращает номер зарегистрированного множества или новый номер, не регистрируя
+     * множество: оно попадает в реестр при учете файла в базе данных ({@link #acquire}).
+     */
+    int idFor(TokenSet tokenSet) {
+        Entry entry = entries.get(tokenSet);
+        return entry != null ? entry.id : nextId.getAndIncrement();
+    }
+
+    /**
+     * Возвращает номер множества или -1, если его нет в базе данных.
+     */
+    int find(TokenSet tokenSet) {
+        Entry entry = entries.get(tokenSet);
+        return entry != null ? entry.id : -1;
+    }
+
+    /**
+     * Добавляет ссылку на множество, регистрируя его с заданным номером, если его нет.
+     */
+    void acquire(TokenSet tokenSet, int id) {
+        entries.compute(tokenSet, (key, entry) -> {
+            Entry acquired = entry != null ? entry : new Entry(id);
+            acquired.references++;
+            return acquired;
+        });
+    }
+
+    /**
+     * Удаляет ссылку на множество; множество без ссылок удаляется из реестра.
+     */
+    void release(TokenSet tokenSet) {
+        entries.computeIfPresent(tokenSet, (key, entry) -> --entry.references == 0 ? null : entry);
+    }
+
+    /**
+     * Возвращает количество зарегистрированных множеств.
+     */
+    int size() {
+        return entries.size();
+    }
+}
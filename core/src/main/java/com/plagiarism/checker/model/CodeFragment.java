@@ -18,6 +18,51 @@ package com.plagiarism.checker.model;
  */
 public class CodeFragment {
 
+    /**
+     * Вид фрагмента кода. Определяет, с какими фрагментами и каким способом
+     * его имеет смысл сравнивать.
+     */
+    public enum Kind {
+        /** Весь нормализованный код файла */
+        FULL_CODE,
+        /** Весь код файла после алгоритмической нормализации */
+        ALGORITHM,
+        /** Оператор или последовательность операторов (биграмма, триграмма) */
+        STATEMENT,
+        /** Управляющая конструкция (цикл, условие, возврат) */
+        PATTERN;
+
+        /**
+         * Проверяет, представляет ли фрагмент этого вида весь файл.
+         */
+        public boolean isWholeFile() {
+            return this == FULL_CODE || this == ALGORITHM;
+        }
+
+        /**
+         * Определяет вид фрагмента, созданного без явного указания вида.
+         * Фрагменты всего файла раньше помечались строками {@code "FULL_CODE"} и
+         * {@code "ALGORITHM"} в оригинальном содержимом; у операторов оригинальное
+         * содержимое совпадает с нормализованным, у паттернов — нет.
+         *
+         * @param normalizedContent нормализованное содержимое фрагмента
+         * @param originalContent оригинальное содержимое фрагмента
+         * @return вид фрагмента
+         */
+        public static Kind infer(String normalizedContent, String originalContent) {
+            if ("FULL_CODE".equals(originalContent)) {
+                return FULL_CODE;
+            }
+            if ("ALGORITHM".equals(originalContent)) {
+                return ALGORITHM;
+            }
+            if (originalContent == null || originalContent.equals(normalizedContent)) {
+                return STATEMENT;
+            }
+            return PATTERN;
+        }
+    }
+
     /** Нормализованное содержимое фрагмента для сравнения */
     private final String normalizedContent;
 
@@ -27,8 +72,31 @@ public class CodeFragment {
     /** Номер строки в исходном файле (0 для полного кода или алгоритмических фрагментов) */
     private final int lineNumber;
 
+    /** Вид фрагмента */
+    private final Kind kind;
+
+    /**
+     * Создает новый фрагмент кода заданного вида.
+     *
+     * @param normalizedContent нормализованное содержимое фрагмента
+     * @param originalContent оригинальное содержимое фрагмента
+     * @param lineNumber номер строки в исходном файле (0 для фрагментов всего файла)
+     * @param kind вид фрагмента
+     * @throws IllegalArgumentException если вид не указан
+     */
+    public CodeFragment(String normalizedContent, String originalContent, int lineNumber, Kind kind) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Fragment kind cannot be null");
+        }
+        this.normalizedContent = normalizedContent;
+        this.originalContent = originalContent;
+        this.lineNumber = lineNumber;
+        this.kind = kind;
+    }
+
     /**
-     * Создает новый фрагмент кода.
+     * Создает новый фрагмент кода. Вид фрагмента определяется
+     * методом {@link Kind#infer(String, String)}.
      *
      * @param normalizedContent нормализованное содержимое фрагмента
      *                          (после удаления комментариев, нормализации имен и т.д.)
@@ -38,9 +106,7 @@ public class CodeFragment {
      *                   (0 для специальных фрагментов типа FULL_CODE или ALGORITHM)
      */
     public CodeFragment(String normalizedContent, String originalContent, int lineNumber) {
-        this.normalizedContent = normalizedContent;
-        this.originalContent = originalContent;
-        this.lineNumber = lineNumber;
+        this(normalizedContent, originalContent, lineNumber, Kind.infer(normalizedContent, originalContent));
     }
 
     /**
@@ -75,10 +141,19 @@ public class CodeFragment {
         return lineNumber;
     }
 
+    /**
+     * Возвращает вид фрагмента.
+     *
+     * @return вид фрагмента
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
     /**
      * Сравнивает данный фрагмент с другим объектом.
      * Два фрагмента считаются равными, если их нормализованное содержимое
-     * идентично. Оригинальное содержимое и номер строки не учитываются
+     * идентично. Оригинальное содержимое, номер строки и вид не учитываются
      * при сравнении.
      *
      * @param o объект для сравнения
@@ -117,6 +192,6 @@ public class CodeFragment {
         if (shortContent.length() > 50) {
             shortContent = shortContent.substring(0, 47) + "...";
         }
-        return "CodeFragment[line=" + lineNumber + ", content=" + shortContent + "]";
+        return "CodeFragment[line=" + lineNumber + ", kind=" + kind + ", content=" + shortContent + "]";
     }
 }
\ No newline at end of file
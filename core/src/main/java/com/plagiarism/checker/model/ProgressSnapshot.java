@@ -0,0 +1,149 @@
+package com.plagiarism.checker.model;
+
+/**
+ * Снимок хода длительной операции: загрузки базы данных или проверки работы.
+ * <p>
+ * Единица прогресса — файл: при загрузке это прочитанные файлы архива,
+ * при проверке — файлы базы данных, с которыми сравнен проверяемый код.
+ * По счетчикам и прошедшему времени вычисляются скорость и оценка оставшегося времени.
+ * <p>
+ * Класс является неизменяемым и может передаваться между потоками.
+ */
+public class ProgressSnapshot {
+
+    /** Название этапа операции */
+    private final String phase;
+
+    /** Количество обработанных файлов */
+    private final long filesProcessed;
+
+    /** Общее количество файлов (0 — неизвестно) */
+    private final long totalFiles;
+
+    /** Количество прочитанных байт */
+    private final long bytesProcessed;
+
+    /** Количество обработанных фрагментов */
+    private final long fragmentsProcessed;
+
+    /** Количество сравнений пар фрагментов */
+    private final long comparisons;
+
+    /** Время с начала операции в наносекундах */
+    private final long elapsedNanos;
+
+    /**
+     * Создает снимок хода операции.
+     *
+     * @param phase название этапа операции
+     * @param filesProcessed количество обработанных файлов
+     * @param totalFiles общее количество файлов (0 — неизвестно)
+     * @param bytesProcessed количество прочитанных байт
+     * @param fragmentsProcessed количество обработанных фрагментов
+     * @param comparisons количество сравнений пар фрагментов
+     * @param elapsedNanos время с начала операции в наносекундах
+     */
+    public ProgressSnapshot(String phase, long filesProcessed, long totalFiles, long bytesProcessed,
+                            long fragmentsProcessed, long comparisons, long elapsedNanos) {
+        this.phase = phase;
+        this.filesProcessed = filesProcessed;
+        this.totalFiles = totalFiles;
+        this.bytesProcessed = bytesProcessed;
+        this.fragmentsProcessed = fragmentsProcessed;
+        this.comparisons = comparisons;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Возвращает название этапа операции.
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Возвращает количество обработанных файлов.
+     */
+    public long getFilesProcessed() {
+        return filesProcessed;
+    }
+
+    /**
+     * Возвращает общее количество файлов (0 — неизвестно).
+     */
+    public long getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * Возвращает количество прочитанных байт.
+     */
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    /**
+     * Возвращает количество обработанных фрагментов.
+     */
+    public long getFragmentsProcessed() {
+        return fragmentsProcessed;
+    }
+
+    /**
+     * Возвращает количество сравнений пар фрагментов.
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Возвращает время с начала операции в миллисекундах.
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * Возвращает долю выполненной работы (0-1) или -1, если общий объем неизвестен.
+     */
+    public double getFraction() {
+        if (totalFiles <= 0) {
+            return -1;
+        }
+        return Math.min(1.0, (double) filesProcessed / totalFiles);
+    }
+
+    /**
+     * Возвращает скорость обработки в файлах в секунду.
+     */
+    public double getFilesPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0.0;
+        }
+        return filesProcessed * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Возвращает оценку оставшегося времени в миллисекундах
+     * или -1, если ее еще нельзя получить.
+     */
+    public long getEstimatedRemainingMillis() {
+        if (totalFiles <= 0 || filesProcessed <= 0) {
+            return -1;
+        }
+        long remaining = Math.max(0, totalFiles - filesProcessed);
+        return (long) ((double) elapsedNanos / filesProcessed * remaining / 1_000_000);
+    }
+
+    /**
+     * Проверяет, обработаны ли все файлы.
+     */
+    public boolean isComplete() {
+        return totalFiles > 0 && filesProcessed >= totalFiles;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d files, %.1f files/s", phase, filesProcessed, totalFiles, getFilesPerSecond());
+    }
+}
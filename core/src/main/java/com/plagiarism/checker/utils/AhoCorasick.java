@@ -0,0 +1,177 @@
+package com.plagiarism.checker.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Автомат Ахо–Корасик для поиска набора маркеров за один проход по строке.
+ * <p>
+ * Результат поиска — битовая маска найденных маркеров (бит i — маркер i),
+ * поэтому набор ограничен 64 маркерами. Переходы автомата хранятся в плотной
+ * таблице по классам символов, встречающихся в маркерах; остальные символы
+ * возвращают автомат в корень. Время поиска не зависит от количества маркеров.
+ * <p>
+ * Автомат неизменяем и может использоваться из нескольких потоков.
+ */
+public final class AhoCorasick {
+
+    /** Максимальное количество маркеров (по числу бит маски) */
+    public static final int MAX_MARKERS = Long.SIZE;
+
+    /** Класс символов ASCII (0 — символ не встречается в маркерах) */
+    private final int[] asciiClasses;
+
+    /** Классы символов за пределами ASCII */
+    private final Map<Character, Integer> otherClasses;
+
+    /** Количество классов символов (включая класс 0) */
+    private final int classCount;
+
+    /** Таблица переходов: state * classCount + class → следующее состояние */
+    private final int[] transitions;
+
+    /** Маски маркеров, заканчивающихся в состоянии (с учетом суффиксных ссылок) */
+    private final long[] outputs;
+
+    /** Маска всех маркеров */
+    private final long allMarkers;
+
+    /** Маркеры автомата */
+    private final List<String> markers;
+
+    /**
+     * Строит автомат для набора маркеров.
+     *
+     * @param markers маркеры (не пустые, не больше {@link #MAX_MARKERS})
+     * @throws IllegalArgumentException если маркеров слишком много или среди них есть пустые
+     */
+    public AhoCorasick(List<String> markers) {
+        if (markers.size() > MAX_MARKERS) {
+            throw new IllegalArgumentException("Too many markers: " + markers.size() + " (max " + MAX_MARKERS + ")");
+        }
+        this.markers = List.copyOf(markers);
+        this.allMarkers = markers.size() == MAX_MARKERS ? -1L : (1L << markers.size()) - 1;
+
+        // Классы символов
+        this.asciiClasses = new int[128];
+        this.otherClasses = new HashMap<>();
+        int classes = 1;
+        for (String marker : markers) {
+            if (marker == null || marker.isEmpty()) {
+                throw new IllegalArgumentException("Markers cannot be empty");
+            }
+            for (int i = 0; i < marker.length(); i++) {
+                char c = marker.charAt(i);
+                if (c < 128) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = classes++;
+                    }
+                } else if (!otherClasses.containsKey(c)) {
+                    otherClasses.put(c, classes++);
+                }
+            }
+        }
+        this.classCount = classes;
+
+        // Бор маркеров
+        List<int[]> trie = new ArrayList<>();
+        List<Long> trieOutputs = new ArrayList<>();
+        trie.add(new int[classCount]);
+        trieOutputs.add(0L);
+        for (int m = 0; m < markers.size(); m++) {
+            String marker = markers.get(m);
+            int state = 0;
+            for (int i = 0; i < marker.length(); i++) {
+                int cls = classOf(marker.charAt(i));
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[classCount]);
+                    trieOutputs.add(0L);
+                }
+                state = trie.get(state)[cls];
+            }
+            trieOutputs.set(state, trieOutputs.get(state) | (1L << m));
+        }
+
+        // Детерминированные переходы и выходы через суффиксные ссылки (обход в ширину)
+        int stateCount = trie.size();
+        this.transitions = new int[stateCount * classCount];
+        this.outputs = new long[stateCount];
+        int[] failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int cls = 1; cls < classCount; cls++) {
+            int next = trie.get(0)[cls];
+            transitions[cls] = next;
+            if (next != 0) {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = trieOutputs.get(state) | outputs[failure[state]];
+            for (int cls = 1; cls < classCount; cls++) {
+                int next = trie.get(state)[cls];
+                if (next != 0) {
+                    failure[next] = transitions[failure[state] * classCount + cls];
+                    transitions[state * classCount + cls] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * classCount + cls] = transitions[failure[state] * classCount + cls];
+                }
+            }
+        }
+    }
+
+    /**
+     * Строит автомат для набора маркеров.
+     *
+     * @param markers маркеры (не пустые, не больше {@link #MAX_MARKERS})
+     */
+    public AhoCorasick(String... markers) {
+        this(Arrays.asList(markers));
+    }
+
+    /**
+     * Находит маркеры, встречающиеся в тексте.
+     *
+     * @param text текст для поиска
+     * @return маска найденных маркеров (0 для null)
+     */
+    public long scan(CharSequence text) {
+        if (text == null) {
+            return 0L;
+        }
+        long found = 0L;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * classCount + classOf(text.charAt(i))];
+            found |= outputs[state];
+            if (found == allMarkers) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Возвращает маркеры автомата в порядке их битов.
+     */
+    public List<String> getMarkers() {
+        return markers;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        return otherClasses.isEmpty() ? 0 : otherClasses.getOrDefault(c, 0);
+    }
+}
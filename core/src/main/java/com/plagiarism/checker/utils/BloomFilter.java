@@ -0,0 +1,111 @@
+package com.plagiarism.checker.utils;
+
+/**
+ * Компактный фильтр Блума для 64-битных хешей.
+ * <p>
+ * Позволяет с небольшой вероятностью ложноположительного ответа проверить,
+ * встречался ли хеш среди добавленных. Ложноотрицательных ответов не бывает.
+ * Позиции битов вычисляются двойным хешированием из одного 64-битного значения.
+ * <p>
+ * Фильтр не потокобезопасен при заполнении; после заполнения
+ * его можно читать из нескольких потоков.
+ */
+public class BloomFilter {
+
+    /** Количество бит на элемент по умолчанию (около 1% ложных срабатываний) */
+    public static final int DEFAULT_BITS_PER_ELEMENT = 10;
+
+    /** Минимальный размер фильтра в битах */
+    private static final int MIN_BITS = 64;
+
+    /** Битовый массив фильтра */
+    private final long[] bits;
+
+    /** Количество бит в фильтре */
+    private final int bitCount;
+
+    /** Количество хеш-функций */
+    private final int hashCount;
+
+    /**
+     * Создает фильтр для ожидаемого количества элементов.
+     *
+     * @param expectedElements ожидаемое количество элементов
+     * @param bitsPerElement количество бит на элемент
+     */
+    public BloomFilter(int expectedElements, int bitsPerElement) {
+        if (bitsPerElement < 1) {
+            throw new IllegalArgumentException("Bits per element must be positive: " + bitsPerElement);
+        }
+        long requested = Math.max(MIN_BITS, (long) Math.max(1, expectedElements) * bitsPerElement);
+        int words = (int) Math.min(Integer.MAX_VALUE / 64, (requested + 63) / 64);
+        this.bits = new long[words];
+        this.bitCount = words * 64;
+        // Оптимальное количество хеш-функций: k = (m / n) * ln 2
+        this.hashCount = Math.max(1, (int) Math.round(bitsPerElement * Math.log(2)));
+    }
+
+    /**
+     * Добавляет хеш в фильтр.
+     *
+     * @param hash 64-битный хеш элемента
+     */
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Проверяет, мог ли хеш быть добавлен в фильтр.
+     *
+     * @param hash 64-битный хеш элемента
+     * @return false если элемент точно не добавлялся, true если возможно добавлялся
+     */
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Оценивает количество хешей из массива, присутствующих в фильтре.
+     * Подсчет прекращается, как только достигнут порог.
+     *
+     * @param hashes хеши для проверки
+     * @param threshold порог, после которого подсчет можно прекратить
+     * @return оценка количества общих элементов (не больше threshold)
+     */
+    public int countMatches(long[] hashes, int threshold) {
+        int count = 0;
+        for (long hash : hashes) {
+            if (mightContain(hash) && ++count >= threshold) {
+                return count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает размер фильтра в байтах.
+     */
+    public int getSizeInBytes() {
+        return bits.length * Long.BYTES;
+    }
+
+    /**
+     * Возвращает количество хеш-функций фильтра.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,68 @@
+package com.plagiarism.checker.utils;
+
+/**
+ * Утилиты для вычисления некриптографических хешей строк.
+ * <p>
+ * Используются для построения индексов и фильтров базы данных:
+ * 64-битный хеш намного реже дает коллизии, чем {@link String#hashCode()},
+ * и хорошо перемешивает биты для фильтров Блума.
+ */
+public final class HashUtils {
+
+    /** Начальное значение хеша */
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    /** Множитель для перемешивания символов */
+    private static final long MULTIPLIER = 0xC6A4A7935BD1E995L;
+
+    private HashUtils() {
+    }
+
+    /**
+     * Вычисляет 64-битный хеш последовательности символов.
+     *
+     * @param text строка для хеширования
+     * @return 64-битный хеш (0 для null)
+     */
+    public static long hash64(CharSequence text) {
+        return hash64(text, SEED);
+    }
+
+    /**
+     * Вычисляет 64-битный хеш последовательности символов с заданным начальным значением.
+     * Хеши с разными начальными значениями независимы, поэтому из двух таких хешей
+     * составляется 128-битный.
+     *
+     * @param text строка для хеширования
+     * @param seed начальное значение
+     * @return 64-битный хеш (0 для null)
+     */
+    public static long hash64(CharSequence text, long seed) {
+        if (text == null) {
+            return 0L;
+        }
+        long hash = seed ^ (text.length() * MULTIPLIER);
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= MULTIPLIER;
+            hash ^= hash >>> 47;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * Финальное перемешивание битов 64-битного значения (fmix64 из MurmurHash3).
+     *
+     * @param value исходное значение
+     * @return перемешанное значение
+     */
+    public static long mix64(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
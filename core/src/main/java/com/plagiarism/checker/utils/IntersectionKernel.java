@@ -0,0 +1,91 @@
+package com.plagiarism.checker.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ядро подсчета пересечений множеств для расчета схожести.
+ * <p>
+ * Множества представляются отсортированными массивами различающихся
+ * отпечатков ({@code long[]}) либо битовыми картами. Реализация выбирается
+ * во время выполнения: векторная (jdk.incubator.vector), если модуль доступен,
+ * иначе скалярная. Выбор можно переопределить системным свойством
+ * {@value #KERNEL_PROPERTY} со значением {@code scalar} или {@code vector}.
+ */
+public interface IntersectionKernel {
+
+    /** Системное свойство для принудительного выбора реализации */
+    String KERNEL_PROPERTY = "plagiarism.kernel";
+
+    /**
+     * Подсчитывает количество общих элементов двух отсортированных массивов
+     * без повторов.
+     *
+     * @param a первый отсортированный массив
+     * @param b второй отсортированный массив
+     * @return размер пересечения
+     */
+    int intersectionSize(long[] a, long[] b);
+
+    /**
+     * Подсчитывает количество единичных бит в побитовом И двух битовых карт.
+     * Слова за пределами более короткой карты считаются нулевыми.
+     *
+     * @param a первая битовая карта
+     * @param b вторая битовая карта
+     * @return количество общих единичных бит
+     */
+    int andCardinality(long[] a, long[] b);
+
+    /**
+     * Возвращает название реализации (для логов и бенчмарков).
+     */
+    String getName();
+
+    /**
+     * Возвращает реализацию, выбранную для текущей JVM.
+     */
+    static IntersectionKernel getDefault() {
+        return KernelHolder.DEFAULT;
+    }
+
+    /**
+     * Возвращает скалярную реализацию.
+     */
+    static IntersectionKernel scalar() {
+        return ScalarIntersectionKernel.INSTANCE;
+    }
+
+    /**
+     * Ленивая инициализация реализации по умолчанию.
+     */
+    final class KernelHolder {
+        private static final Logger logger = LogManager.getLogger(IntersectionKernel.class);
+
+        private static final IntersectionKernel DEFAULT = select();
+
+        private KernelHolder() {
+        }
+
+        private static IntersectionKernel select() {
+            String requested = System.getProperty(KERNEL_PROPERTY, "auto");
+            if (!"scalar".equalsIgnoreCase(requested)) {
+                try {
+                    IntersectionKernel vector = VectorIntersectionKernel.create();
+                    if (vector != null) {
+                        logger.info("Using {} intersection kernel", vector.getName());
+                        return vector;
+                    }
+                } catch (LinkageError e) {
+                    // Модуль jdk.incubator.vector не подключен (--add-modules)
+                    logger.debug("Vector API unavailable: {}", e.toString());
+                }
+                if ("vector".equalsIgnoreCase(requested)) {
+                    logger.warn("Vector intersection kernel requested but unavailable, using scalar");
+                }
+            }
+            logger.info("Using scalar intersection kernel");
+            return ScalarIntersectionKernel.INSTANCE;
+        }
+    }
+}
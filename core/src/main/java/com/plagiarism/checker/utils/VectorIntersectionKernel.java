@@ -0,0 +1,97 @@
+package com.plagiarism.checker.utils;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторная реализация {@link IntersectionKernel} на jdk.incubator.vector.
+ * <p>
+ * Пересечение считается блоками по ширине вектора: блок первого массива
+ * сравнивается со всеми циклическими сдвигами блока второго, после чего
+ * продвигается блок с меньшим максимальным элементом. Остаток обрабатывается
+ * скалярно. Класс загружается только при подключенном модуле Vector API.
+ */
+final class VectorIntersectionKernel implements IntersectionKernel {
+
+    /** Предпочтительная ширина вектора для текущего процессора */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /** Циклические сдвиги блока второго массива */
+    private final VectorShuffle<Long>[] rotations;
+
+    @SuppressWarnings("unchecked")
+    private VectorIntersectionKernel() {
+        int lanes = SPECIES.length();
+        rotations = (VectorShuffle<Long>[]) new VectorShuffle<?>[lanes];
+        for (int r = 0; r < lanes; r++) {
+            rotations[r] = VectorShuffle.iota(SPECIES, r, 1, true);
+        }
+    }
+
+    /**
+     * Создает векторное ядро или возвращает null, если на процессоре
+     * нет векторов хотя бы из двух 64-битных элементов.
+     *
+     * @throws LinkageError если модуль jdk.incubator.vector не подключен
+     */
+    static IntersectionKernel create() {
+        if (SPECIES.length() < 2) {
+            return null;
+        }
+        return new VectorIntersectionKernel();
+    }
+
+    @Override
+    public int intersectionSize(long[] a, long[] b) {
+        int lanes = SPECIES.length();
+        int i = 0;
+        int j = 0;
+        int count = 0;
+
+        while (i + lanes <= a.length && j + lanes <= b.length) {
+            LongVector va = LongVector.fromArray(SPECIES, a, i);
+            LongVector vb = LongVector.fromArray(SPECIES, b, j);
+
+            VectorMask<Long> matches = va.compare(VectorOperators.EQ, vb);
+            for (int r = 1; r < lanes; r++) {
+                matches = matches.or(va.compare(VectorOperators.EQ, vb.rearrange(rotations[r])));
+            }
+            count += matches.trueCount();
+
+            long maxA = a[i + lanes - 1];
+            long maxB = b[j + lanes - 1];
+            if (maxA <= maxB) {
+                i += lanes;
+            }
+            if (maxB <= maxA) {
+                j += lanes;
+            }
+        }
+
+        return count + ScalarIntersectionKernel.intersectionSize(a, i, b, j);
+    }
+
+    @Override
+    public int andCardinality(long[] a, long[] b) {
+        int words = Math.min(a.length, b.length);
+        int bound = SPECIES.loopBound(words);
+        LongVector sum = LongVector.zero(SPECIES);
+
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector va = LongVector.fromArray(SPECIES, a, i);
+            LongVector vb = LongVector.fromArray(SPECIES, b, i);
+            sum = sum.add(va.and(vb).lanewise(VectorOperators.BIT_COUNT));
+        }
+
+        return (int) sum.reduceLanes(VectorOperators.ADD)
+                + ScalarIntersectionKernel.andCardinality(a, b, bound);
+    }
+
+    @Override
+    public String getName() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+}
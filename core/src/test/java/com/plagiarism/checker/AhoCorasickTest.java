@@ -0,0 +1,68 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.utils.AhoCorasick;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTest {
+
+    private static final String[] MARKERS = {
+            "for ( VAR = NUM ; VAR < VAR ; VAR ++ )", "if ( VAR > VAR )", "return VAR ;",
+            "VAR = VAR", "for (", "if (", "{", "}", "VAR", "AR =", "ёж"
+    };
+
+    @Test
+    void testScanMatchesContains() {
+        AhoCorasick automaton = new AhoCorasick(MARKERS);
+        String[] pieces = {"for", "(", ")", "VAR", "NUM", "=", ";", "<", "++", "{", "}", "if", ">",
+                "return", "A", "R", " ", "ё", "ж"};
+        Random random = new Random(3);
+
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder sb = new StringBuilder();
+            int count = random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+                if (random.nextBoolean()) {
+                    sb.append(' ');
+                }
+            }
+            String text = sb.toString();
+
+            long expected = 0;
+            for (int m = 0; m < MARKERS.length; m++) {
+                if (text.contains(MARKERS[m])) {
+                    expected |= 1L << m;
+                }
+            }
+            assertEquals(expected, automaton.scan(text), text);
+        }
+    }
+
+    @Test
+    void testFullPatternLine() {
+        AhoCorasick automaton = new AhoCorasick(MARKERS);
+        long mask = automaton.scan("for ( VAR = NUM ; VAR < VAR ; VAR ++ ) { VAR = VAR + VAR ; }");
+
+        assertTrue((mask & 1L) != 0);
+        assertTrue((mask & (1L << 3)) != 0);
+        assertEquals(0, mask & (1L << 1));
+        assertEquals(0L, automaton.scan(null));
+        assertEquals(0L, automaton.scan("while ( x )"));
+    }
+
+    @Test
+    void testTooManyMarkersRejected() {
+        List<String> markers = new ArrayList<>();
+        for (int i = 0; i <= AhoCorasick.MAX_MARKERS; i++) {
+            markers.add("m" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(markers));
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick("a", ""));
+    }
+}
@@ -0,0 +1,67 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.BloomFilter;
+import com.plagiarism.checker.utils.HashUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, BloomFilter.DEFAULT_BITS_PER_ELEMENT);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(HashUtils.hash64("fragment " + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain(HashUtils.hash64("fragment " + i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(HashUtils.hash64("fragment " + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "Too many false positives: " + falsePositives);
+    }
+
+    @Test
+    void testPrefilterSkipsUnrelatedFiles() throws IOException {
+        Path dbDir = tempDir.resolve("db");
+        Files.createDirectories(dbDir);
+        String copied = "public class Sum { int sum(int[] a) { int s = 0; for (int i = 0; i < a.length; i++) { s = s + a[i]; } return s; } }";
+        Files.writeString(dbDir.resolve("Sum.java"), copied);
+        Files.writeString(dbDir.resolve("Other.java"),
+                "public class Other { void print(String text) { System.out.println(text); } }");
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir);
+        detector.getSimilarityCalculator().setMinSharedFragments(3);
+
+        List<PlagiarismResult> results = detector.checkForPlagiarism(copied);
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).getFileName().endsWith("Sum.java"));
+        assertTrue(detector.getSimilarityCalculator().getPrefilterSkippedFiles() >= 1);
+    }
+
+    @Test
+    void testNegativeThresholdRejected() {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        assertThrows(IllegalArgumentException.class,
+                () -> detector.getSimilarityCalculator().setMinSharedFragments(-1));
+    }
+}
@@ -0,0 +1,243 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.DatabaseManager;
+import com.plagiarism.checker.core.FragmentExtractor;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.core.SegmentStore;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseShardTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path createDatabase(int files) throws IOException {
+        Path dbDir = tempDir.resolve("db");
+        Files.createDirectories(dbDir);
+        for (int i = 0; i < files; i++) {
+            Files.writeString(dbDir.resolve("File" + i + ".java"),
+                    "public class File" + i + " { int sum(int a, int b) { int c = a + b; return c; } }");
+        }
+        return dbDir;
+    }
+
+    @Test
+    void testFilesAreDistributedAcrossShards() throws IOException {
+        DatabaseManager manager = new DatabaseManager(4);
+        manager.loadDatabase(createDatabase(12), new FragmentExtractor());
+
+        assertEquals(4, manager.getShardCount());
+        assertEquals(12, manager.getFileCount());
+
+        int filesInShards = manager.getShards().stream().mapToInt(shard -> shard.getFileCount()).sum();
+        assertEquals(12, filesInShards);
+
+        for (String file : manager.getDatabaseFiles()) {
+            int shardIndex = manager.getShardIndex(file);
+            assertNotNull(manager.getShard(shardIndex).get(file));
+        }
+
+        Map<String, Integer> stats = manager.getStatistics();
+        assertEquals(12, stats.get("total_files"));
+        assertEquals(4, stats.get("shard_count"));
+        assertEquals(4, manager.getShardStatistics().size());
+    }
+
+    @Test
+    void testLoadWithSingleReadSlotRecordsTimings() throws IOException {
+        DatabaseManager manager = new DatabaseManager(2);
+        manager.setReadConcurrency(1);
+        manager.loadDatabase(createDatabase(25), new FragmentExtractor());
+
+        assertEquals(25, manager.getFileCount());
+        Map<String, Long> timings = manager.getLastLoadTimings();
+        for (String key : List.of("elapsed_ms", "read_ms", "read_wait_ms", "extract_ms", "extract_idle_ms")) {
+            assertTrue(timings.get(key) >= 0, key);
+        }
+        assertThrows(IllegalArgumentException.class, () -> manager.setReadConcurrency(0));
+    }
+
+    @Test
+    void testPersistAndRestoreSingleShard() throws IOException {
+        DatabaseManager manager = new DatabaseManager(3);
+        manager.loadDatabase(createDatabase(9), new FragmentExtractor());
+
+        int shardIndex = manager.getShardIndex(manager.getDatabaseFiles().get(0));
+        int filesInShard = manager.getShard(shardIndex).getFileCount();
+        int fragmentsInShard = manager.getShard(shardIndex).getTotalFragmentsCount();
+        int totalFiles = manager.getFileCount();
+
+        Path snapshot = tempDir.resolve("shard.bin");
+        manager.persistShard(shardIndex, snapshot);
+        manager.getShard(shardIndex).clear();
+        assertEquals(totalFiles - filesInShard, manager.getFileCount());
+
+        manager.restoreShard(shardIndex, snapshot);
+        assertEquals(totalFiles, manager.getFileCount());
+        assertEquals(fragmentsInShard, manager.getShard(shardIndex).getTotalFragmentsCount());
+    }
+
+    @Test
+    void testFragmentKindsAreIndexedAndPersisted() throws IOException {
+        DatabaseManager manager = new DatabaseManager(1);
+        manager.loadDatabase(createDatabase(4), new FragmentExtractor());
+
+        Map<String, Integer> stats = manager.getStatistics();
+        assertEquals(4, stats.get("full_code_fragments"));
+        assertTrue(stats.get("statement_fragments") > 0);
+        assertTrue(stats.get("pattern_fragments") > 0);
+        int kindTotal = 0;
+        for (CodeFragment.Kind kind : CodeFragment.Kind.values()) {
+            kindTotal += manager.getShard(0).getFragmentCount(kind);
+        }
+        assertEquals(manager.getTotalFragmentsCount(), kindTotal);
+
+        Path snapshot = tempDir.resolve("kinds.bin");
+        manager.persistShard(0, snapshot);
+        Map<String, List<CodeFragment>> before = manager.getAllDatabaseEntries();
+        manager.getShard(0).clear();
+        manager.restoreShard(0, snapshot);
+
+        for (Map.Entry<String, List<CodeFragment>> entry : before.entrySet()) {
+            List<CodeFragment> restored = manager.getFragmentsForFile(entry.getKey());
+            assertEquals(entry.getValue().size(), restored.size());
+            for (int i = 0; i < restored.size(); i++) {
+                assertEquals(entry.getValue().get(i).getKind(), restored.get(i).getKind());
+            }
+        }
+        assertEquals(stats.get("pattern_fragments"), manager.getStatistics().get("pattern_fragments"));
+    }
+
+    @Test
+    void testRestoreRejectsCorruptedSnapshot() throws IOException {
+        DatabaseManager manager = new DatabaseManager(2);
+        Path snapshot = tempDir.resolve("broken.bin");
+        Files.writeString(snapshot, "not a snapshot");
+
+        assertThrows(IOException.class, () -> manager.restoreShard(0, snapshot));
+    }
+
+    @Test
+    void testReloadShardPicksUpChangedFiles() throws IOException {
+        DatabaseManager manager = new DatabaseManager(2);
+        FragmentExtractor extractor = new FragmentExtractor();
+        Path dbDir = createDatabase(4);
+        manager.loadDatabase(dbDir, extractor);
+
+        Path added = dbDir.resolve("Added.java");
+        Files.writeString(added, "public class Added { void run() { int x = 1; x = x + 1; } }");
+        int shardIndex = manager.getShardIndex(added.toString());
+        int otherShardFiles = manager.getShard(1 - shardIndex).getFileCount();
+
+        manager.reloadShard(shardIndex, extractor);
+
+        assertEquals(5, manager.getFileCount());
+        assertNotNull(manager.getShard(shardIndex).get(added.toString()));
+        assertEquals(otherShardFiles, manager.getShard(1 - shardIndex).getFileCount());
+    }
+
+    @Test
+    void testShardedCheckFindsCopiedFile() throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        Path dbDir = createDatabase(6);
+        detector.loadDatabase(dbDir);
+
+        String copied = Files.readString(dbDir.resolve("File3.java"));
+        List<PlagiarismResult> results = detector.checkForPlagiarism(copied);
+        assertFalse(results.isEmpty());
+
+        List<PlagiarismResult> top = detector.checkForPlagiarism(copied, 2);
+        assertTrue(top.size() <= 2);
+        assertEquals(results.get(0).getSimilarityPercentage(), top.get(0).getSimilarityPercentage(), 0.001);
+    }
+
+    @Test
+    void testIncrementalAddAndRemoveKeepStatistics() throws IOException {
+        DatabaseManager manager = new DatabaseManager(3);
+        FragmentExtractor extractor = new FragmentExtractor();
+        Path dbDir = createDatabase(5);
+        manager.loadDatabase(dbDir, extractor);
+        int fragments = manager.getTotalFragmentsCount();
+
+        Path extra = tempDir.resolve("Extra.java");
+        Files.writeString(extra, "public class Extra { void run() { int x = 1; x = x + 1; } }");
+        int extraFragments = manager.addFile(extra, extractor);
+        assertTrue(extraFragments > 0);
+        assertEquals(2, manager.addSources(Map.of(
+                "A", "public class A { int twice(int a) { return a * 2; } }",
+                "B", "public class B { int thrice(int b) { return b * 3; } }"), extractor));
+        assertEquals(8, manager.getFileCount());
+
+        // Повторное добавление заменяет файл, а не дублирует его
+        assertEquals(extraFragments, manager.addFile(extra, extractor));
+        assertEquals(8, manager.getFileCount());
+
+        assertTrue(manager.removeFile(extra.toString()));
+        assertFalse(manager.removeFile(extra.toString()));
+        assertEquals(2, manager.removeFiles(List.of("A", "B", "Missing")));
+
+        assertEquals(5, manager.getFileCount());
+        assertEquals(fragments, manager.getTotalFragmentsCount());
+        int shardFragments = manager.getShardStatistics().stream()
+                .mapToInt(stats -> stats.get("total_fragments"))
+                .sum();
+        assertEquals(fragments, shardFragments);
+
+        assertThrows(IOException.class, () -> manager.addFile(tempDir.resolve("Missing.java"), extractor));
+    }
+
+    @Test
+    void testReplacementWithoutFragmentsRemovesFile() throws IOException {
+        FragmentExtractor extractor = new FragmentExtractor();
+        String code = "public class A { int twice(int a) { int b = a * 2; return b; } }";
+
+        DatabaseManager manager = new DatabaseManager(2);
+        assertTrue(manager.addSource("A", code, extractor) > 0);
+        assertTrue(manager.addSource("B", code, extractor) > 0);
+
+        // Новая версия без фрагментов удаляет прежнюю, а не оставляет ее в индексе
+        assertEquals(0, manager.addSource("A", "  \n", extractor));
+        assertTrue(manager.getFragmentsForFile("A").isEmpty());
+        assertEquals(0, manager.addSources(Map.of("B", ""), extractor));
+        assertEquals(0, manager.getFileCount());
+
+        Path file = tempDir.resolve("Replaced.java");
+        Files.writeString(file, code);
+        assertEquals(1, manager.addFiles(List.of(file), extractor));
+        Files.writeString(file, "   \n");
+        assertEquals(0, manager.addFiles(List.of(file), extractor));
+        assertTrue(manager.getFragmentsForFile(file.toString()).isEmpty());
+        assertEquals(0, manager.getFileCount());
+
+        DatabaseManager segmented = new DatabaseManager(2);
+        segmented.openSegments(new SegmentStore(tempDir.resolve("segments"), 2));
+        assertTrue(segmented.addSource("A", code, extractor) > 0);
+        assertEquals(0, segmented.addSource("A", "", extractor));
+        assertEquals(0, segmented.getFileCount());
+        segmented.closeSegments();
+    }
+
+    @Test
+    void testAddedFileIsFoundByCheck() throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(createDatabase(3));
+
+        String code = "public class Added { long product(long[] v) { long p = 1; for (long x : v) { p = p * x; } return p; } }";
+        detector.addSource("Added", code);
+        assertEquals("Added", detector.checkForPlagiarism(code, 1).get(0).getFileName());
+
+        detector.removeFile("Added");
+        assertTrue(detector.checkForPlagiarism(code).stream().noneMatch(result -> result.getFileName().equals("Added")));
+    }
+}
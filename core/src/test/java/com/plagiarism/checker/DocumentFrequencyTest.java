@@ -0,0 +1,116 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.DocumentFrequencies;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.core.SimilarityCalculator;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.utils.HashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentFrequencyTest {
+
+    /** Шаблонный метод, который есть в каждом файле базы данных */
+    private static final String BOILERPLATE = "int get() { return value; }";
+
+    private static String source(int i) {
+        return "public class C" + i + " { int value; " + BOILERPLATE
+                + " long work" + i + "(long[] v) { long r = " + i + "; for (long x : v) { r = r * 31 + x * " + i + "; } return r; } }";
+    }
+
+    private static PlagiarismDetector createDetector(int files) {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        for (int i = 0; i < files; i++) {
+            detector.addSource("C" + i, source(i));
+        }
+        return detector;
+    }
+
+    private static long boilerplateHash(PlagiarismDetector detector) {
+        return detector.getDatabaseManager().getFragmentsForFile("C0").stream()
+                .map(CodeFragment::getNormalizedContent)
+                .filter(content -> content.contains("return value"))
+                .mapToLong(HashUtils::hash64)
+                .min()
+                .orElseThrow();
+    }
+
+    private static int matchCount(List<PlagiarismResult> results) {
+        return results.stream().mapToInt(PlagiarismResult::getMatchCount).sum();
+    }
+
+    private static int mapMatchCount(List<Map<String, Object>> results) {
+        return results.stream().mapToInt(result -> (Integer) result.get("matchesCount")).sum();
+    }
+
+    @Test
+    void testFrequenciesFollowAddAndRemove() {
+        PlagiarismDetector detector = createDetector(12);
+        DocumentFrequencies frequencies = detector.getDatabaseManager().getDocumentFrequencies();
+        long hash = boilerplateHash(detector);
+
+        assertEquals(12, frequencies.getDocumentCount());
+        assertEquals(12, frequencies.getFrequency(hash));
+        assertTrue(frequencies.inverseFrequency(hash) < frequencies.inverseFrequency(hash + 1));
+
+        detector.removeFile("C3");
+        detector.addSource("C4", source(4));
+        assertEquals(11, frequencies.getDocumentCount());
+        assertEquals(11, frequencies.getFrequency(hash));
+        assertTrue(frequencies.getStopFragmentCount(0.5) > 0);
+    }
+
+    @Test
+    void testStopFragmentsAreNotScored() {
+        PlagiarismDetector detector = createDetector(12);
+        String onlyBoilerplate = "public class Other { int value; " + BOILERPLATE + " }";
+
+        List<PlagiarismResult> before = detector.checkForPlagiarism(onlyBoilerplate);
+        assertFalse(before.isEmpty());
+
+        SimilarityCalculator calculator = detector.getSimilarityCalculator();
+        calculator.setMaxDocumentFrequencyRatio(0.5);
+        List<PlagiarismResult> after = detector.checkForPlagiarism(onlyBoilerplate);
+        // Шаблонные фрагменты больше не дают совпадений
+        assertTrue(matchCount(after) < matchCount(before));
+        assertTrue(calculator.getSkippedStopFragments() > 0);
+
+        // Копия файла по-прежнему находится и при взвешивании по обратной частоте
+        calculator.setIdfWeighting(true);
+        List<PlagiarismResult> copy = detector.checkForPlagiarism(source(7));
+        double best = copy.get(0).getSimilarityPercentage();
+        assertTrue(copy.stream().anyMatch(result ->
+                result.getFileName().equals("C7") && result.getSimilarityPercentage() == best));
+
+        assertThrows(IllegalArgumentException.class, () -> calculator.setMaxDocumentFrequencyRatio(0));
+        assertThrows(IllegalArgumentException.class, () -> calculator.setMaxDocumentFrequencyRatio(1.5));
+    }
+
+    @Test
+    void testStopFragmentsAreNotScoredAgainstEntries() {
+        PlagiarismDetector detector = createDetector(12);
+        Map<String, List<CodeFragment>> entries = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            entries.put("C" + i, detector.getDatabaseManager().getFragmentsForFile("C" + i));
+        }
+        List<CodeFragment> fragments = detector.getFragmentExtractor()
+                .extractFragments("public class Other { int value; " + BOILERPLATE + " }");
+
+        SimilarityCalculator calculator = detector.getSimilarityCalculator();
+        int before = mapMatchCount(calculator.calculateSimilarities(fragments, entries));
+        assertTrue(before > 0);
+
+        // Частоты считаются по самим записям, если частоты базы данных не переданы
+        calculator.setMaxDocumentFrequencyRatio(0.5);
+        assertTrue(mapMatchCount(calculator.calculateSimilarities(fragments, entries)) < before);
+        assertTrue(calculator.getSkippedStopFragments() > 0);
+        assertTrue(mapMatchCount(calculator.calculateSimilarities(fragments, entries,
+                detector.getDatabaseManager().getDocumentFrequencies())) < before);
+    }
+}
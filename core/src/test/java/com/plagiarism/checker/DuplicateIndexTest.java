@@ -0,0 +1,88 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.CanonicalHash;
+import com.plagiarism.checker.core.DatabaseManager;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String ORIGINAL =
+            "public class Sorter {\n"
+            + "    static void sort(int[] a) {\n"
+            + "        for (int i = 0; i < a.length; i++) {\n"
+            + "            for (int j = 0; j + 1 < a.length - i; j++) {\n"
+            + "                if (a[j] > a[j + 1]) { int t = a[j]; a[j] = a[j + 1]; a[j + 1] = t; }\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    /** Та же работа с другими отступами и комментарием */
+    private static final String REFORMATTED = "// copied\n" + ORIGINAL.replace("    ", "\t");
+
+    private static final String OTHER =
+            "public class Counter {\n"
+            + "    static int count(String s, char c) {\n"
+            + "        int n = 0;\n"
+            + "        for (char x : s.toCharArray()) { if (x == c) { n++; } }\n"
+            + "        return n;\n"
+            + "    }\n"
+            + "}\n";
+
+    private PlagiarismDetector createDetector() throws IOException {
+        Path dbDir = Files.createDirectories(tempDir.resolve("db"));
+        Files.writeString(dbDir.resolve("Original.java"), ORIGINAL);
+        Files.writeString(dbDir.resolve("Copy.java"), REFORMATTED);
+        Files.writeString(dbDir.resolve("Other.java"), OTHER);
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.loadDatabase(dbDir);
+        return detector;
+    }
+
+    private static Set<String> baseNames(List<String> files) {
+        return files.stream().map(file -> Path.of(file).getFileName().toString()).collect(Collectors.toSet());
+    }
+
+    @Test
+    void testIdenticalFilesShareIndex() throws IOException {
+        PlagiarismDetector detector = createDetector();
+        DatabaseManager manager = detector.getDatabaseManager();
+
+        assertEquals(1, detector.getDatabaseStats().get("duplicate_files"));
+        CanonicalHash hash = CanonicalHash.of(detector.getFragmentExtractor().extractFragments(ORIGINAL));
+        assertEquals(Set.of("Original.java", "Copy.java"), baseNames(manager.getDuplicateIndex().getFiles(hash)));
+
+        assertTrue(detector.removeFile(tempDir.resolve("db").resolve("Copy.java").toString()));
+        assertEquals(0, detector.getDatabaseStats().get("duplicate_files"));
+    }
+
+    @Test
+    void testExactDuplicatesAreReportedFirst() throws IOException {
+        PlagiarismDetector detector = createDetector();
+
+        List<PlagiarismResult> results = detector.checkForPlagiarism(ORIGINAL);
+
+        assertTrue(results.size() >= 2);
+        assertEquals(100.0, results.get(0).getSimilarityPercentage(), 0.001);
+        assertEquals(100.0, results.get(1).getSimilarityPercentage(), 0.001);
+        assertEquals(Set.of("Original.java", "Copy.java"),
+                baseNames(List.of(results.get(0).getFileName(), results.get(1).getFileName())));
+        assertEquals(2, detector.getSimilarityCalculator().getExactDuplicateHits());
+    }
+}
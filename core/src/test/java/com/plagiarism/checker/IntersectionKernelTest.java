@@ -0,0 +1,80 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.SimilarityCalculator;
+import com.plagiarism.checker.utils.IntersectionKernel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntersectionKernelTest {
+
+    @Test
+    void testDefaultKernelMatchesScalar() {
+        IntersectionKernel scalar = IntersectionKernel.scalar();
+        IntersectionKernel selected = IntersectionKernel.getDefault();
+        Random random = new Random(7);
+
+        for (int round = 0; round < 500; round++) {
+            int size1 = random.nextInt(70);
+            int size2 = random.nextInt(70);
+            long[] a = random.longs(size1, 0, 100).sorted().distinct().toArray();
+            long[] b = random.longs(size2, 0, 100).sorted().distinct().toArray();
+
+            long expected = LongStream.of(a).filter(x -> LongStream.of(b).anyMatch(y -> y == x)).count();
+            assertEquals(expected, scalar.intersectionSize(a, b));
+            assertEquals(expected, selected.intersectionSize(a, b), selected.getName());
+
+            long[] bits1 = random.longs(size1).toArray();
+            long[] bits2 = random.longs(size2).toArray();
+            assertEquals(scalar.andCardinality(bits1, bits2), selected.andCardinality(bits1, bits2),
+                    selected.getName());
+        }
+    }
+
+    @Test
+    void testTokenSimilarityMatchesSetJaccard() {
+        SimilarityCalculator calculator = new SimilarityCalculator();
+        String[] vocabulary = {"VAR", "NUM", "(", ")", "{", "}", ";", "=", "+", "<", "for", "if", "return"};
+        Random random = new Random(11);
+
+        for (int round = 0; round < 300; round++) {
+            String str1 = randomTokens(random, vocabulary);
+            String str2 = randomTokens(random, vocabulary);
+
+            Set<String> set1 = new HashSet<>(Arrays.asList(str1.split("\\s+")));
+            Set<String> set2 = new HashSet<>(Arrays.asList(str2.split("\\s+")));
+            Set<String> intersection = new HashSet<>(set1);
+            intersection.retainAll(set2);
+            Set<String> union = new HashSet<>(set1);
+            union.addAll(set2);
+            double expected = union.isEmpty() ? 0.0 : (double) intersection.size() / union.size() * 100;
+
+            assertEquals(expected, calculator.calculateTokenSimilarity(str1, str2), 0.0, str1 + " | " + str2);
+        }
+    }
+
+    @Test
+    void testTokensUnknownToDictionaryStillCount() {
+        SimilarityCalculator calculator = new SimilarityCalculator();
+        // Токены запросов не регистрируются: неизвестные токены совпадают только друг с другом
+        assertEquals(100.0, calculator.calculateTokenSimilarity("unseenTokenA VAR", "VAR unseenTokenA"), 1e-9);
+        assertEquals(100.0 / 3, calculator.calculateTokenSimilarity("unseenTokenB VAR", "unseenTokenB NUM"), 1e-9);
+        assertEquals(0.0, calculator.calculateTokenSimilarity("unseenTokenC", "unseenTokenD"), 1e-9);
+    }
+
+    private String randomTokens(Random random, String[] vocabulary) {
+        StringBuilder sb = new StringBuilder();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 && random.nextBoolean() ? " " : "")
+                    .append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -33,6 +33,21 @@ class ModelClassesTest {
         assertEquals(fragment1.hashCode(), fragment2.hashCode());
     }
 
+    @Test
+    void testCodeFragment_Kind() {
+        assertEquals(CodeFragment.Kind.PATTERN,
+                new CodeFragment("for ( VAR )", "for (i)", 3, CodeFragment.Kind.PATTERN).getKind());
+        assertThrows(IllegalArgumentException.class, () -> new CodeFragment("a", "a", 1, null));
+
+        // Вид фрагментов, созданных без явного вида, определяется по старым признакам
+        assertEquals(CodeFragment.Kind.FULL_CODE, new CodeFragment("code", "FULL_CODE", 0).getKind());
+        assertEquals(CodeFragment.Kind.ALGORITHM, new CodeFragment("code", "ALGORITHM", 0).getKind());
+        assertEquals(CodeFragment.Kind.STATEMENT, new CodeFragment("int VAR = NUM", "int VAR = NUM", 2).getKind());
+        assertEquals(CodeFragment.Kind.PATTERN, new CodeFragment("if ( VAR > NUM )", "if (x > 0)", 4).getKind());
+        assertTrue(CodeFragment.Kind.FULL_CODE.isWholeFile());
+        assertFalse(CodeFragment.Kind.STATEMENT.isWholeFile());
+    }
+
     @Test
     void testPlagiarismResult_ConstructorAndGetters() {
         Map<CodeFragment, List<String>> matches = new HashMap<>();
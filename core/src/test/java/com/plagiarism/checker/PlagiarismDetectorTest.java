@@ -1,12 +1,15 @@
 package com.plagiarism.checker;
 
 import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.ProgressSnapshot;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -119,4 +122,32 @@ class PlagiarismDetectorTest {
         assertTrue(detector.getTotalFragmentsCount() > 0);
         assertFalse(detector.isProcessingInProgress());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProgressReportedForLoadAndCheck() throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        for (int i = 0; i < 30; i++) {
+            Files.writeString(tempDir.resolve("File" + i + ".java"),
+                    "public class File" + i + " { int f(int a) { if (a > " + i + ") { return a; } return 0; } }");
+        }
+
+        List<ProgressSnapshot> loadProgress = new CopyOnWriteArrayList<>();
+        detector.loadDatabaseWithProgress(tempDir, loadProgress::add);
+
+        assertFalse(loadProgress.isEmpty());
+        ProgressSnapshot loaded = loadProgress.get(loadProgress.size() - 1);
+        assertTrue(loaded.isComplete());
+        assertEquals(30, loaded.getFilesProcessed());
+        assertEquals(detector.getTotalFragmentsCount(), loaded.getFragmentsProcessed());
+        assertTrue(loaded.getBytesProcessed() > 0);
+
+        List<ProgressSnapshot> checkProgress = new CopyOnWriteArrayList<>();
+        detector.checkForPlagiarism("public class X { int f(int a) { if (a > 3) { return a; } return 0; } }", 0,
+                checkProgress::add);
+
+        ProgressSnapshot checked = checkProgress.get(checkProgress.size() - 1);
+        assertEquals(detector.getDatabaseFileCount(), checked.getFilesProcessed());
+        assertTrue(checked.getComparisons() > 0);
+        assertEquals(0, checked.getEstimatedRemainingMillis());
+    }
+}
@@ -0,0 +1,164 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.DatabaseManager;
+import com.plagiarism.checker.core.FragmentExtractor;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.core.SegmentStore;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String source(int i) {
+        return "public class S" + i + " { int f(int a) { int b = a * " + i + "; return b + " + i + "; } }";
+    }
+
+    private long segmentFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void testChangesSurviveReopenAndAreCompacted() throws IOException {
+        Path segments = tempDir.resolve("segments");
+        FragmentExtractor extractor = new FragmentExtractor();
+
+        DatabaseManager manager = new DatabaseManager(2);
+        manager.openSegments(new SegmentStore(segments, 2));
+        for (int i = 0; i < 20; i++) {
+            manager.addSource("S" + i, source(i), extractor);
+        }
+        manager.removeFile("S3");
+        manager.addSource("S5", source(50), extractor);
+        manager.getSegmentStore().flush();
+
+        // Десять сбросов по два файла сливаются, а не копятся
+        assertTrue(manager.getSegmentStore().getSegmentCount() < 10);
+        List<CodeFragment> replaced = manager.getFragmentsForFile("S5");
+        manager.closeSegments();
+
+        DatabaseManager reopened = new DatabaseManager(3);
+        assertEquals(19, reopened.openSegments(new SegmentStore(segments, 2)));
+        assertTrue(reopened.isLoaded());
+        assertTrue(reopened.getFragmentsForFile("S3").isEmpty());
+        assertEquals(replaced.get(0).getNormalizedContent(),
+                reopened.getFragmentsForFile("S5").get(0).getNormalizedContent());
+
+        reopened.getSegmentStore().compactAll();
+        assertEquals(1, reopened.getSegmentStore().getSegmentCount());
+        assertEquals(1, segmentFiles(segments));
+        reopened.closeSegments();
+    }
+
+    @Test
+    void testRecoveryDropsSegmentsSupersededByCompaction() throws IOException {
+        Path segments = tempDir.resolve("segments");
+        try (SegmentStore store = new SegmentStore(segments, 1)) {
+            store.open();
+            store.put("A", new FragmentExtractor().extractFragments(source(1)));
+            store.flush();
+            store.remove("A");
+            store.flush();
+        }
+
+        // Имитация сбоя во время слияния: результат записан, входные сегменты не удалены
+        Path[] inputs;
+        try (Stream<Path> files = Files.list(segments)) {
+            inputs = files.sorted().toArray(Path[]::new);
+        }
+        assertEquals(2, inputs.length);
+        byte[][] saved = {Files.readAllBytes(inputs[0]), Files.readAllBytes(inputs[1])};
+        try (SegmentStore store = new SegmentStore(segments, 1)) {
+            store.open();
+            store.compactAll();
+        }
+        Files.write(inputs[0], saved[0]);
+        Files.write(inputs[1], saved[1]);
+
+        try (SegmentStore store = new SegmentStore(segments, 1)) {
+            assertEquals(0, store.open());
+            assertEquals(1, store.getSegmentCount());
+        }
+    }
+
+    @Test
+    void testChecksSearchAllSegments() throws IOException {
+        PlagiarismDetector detector = new PlagiarismDetector();
+        detector.getDatabaseManager().openSegments(new SegmentStore(tempDir.resolve("segments"), 2));
+        for (int i = 0; i < 5; i++) {
+            detector.addSource("S" + i, source(i));
+        }
+
+        // Четыре файла в записанных сегментах, последний — в сегменте в памяти
+        DatabaseManager manager = detector.getDatabaseManager();
+        assertTrue(manager.getShards().size() > 1);
+        assertEquals(5, manager.getShards().stream().mapToInt(shard -> shard.getFileCount()).sum());
+        assertEquals(0, manager.getShard(0).getFileCount());
+
+        for (int i : new int[]{0, 4}) {
+            List<PlagiarismResult> results = detector.checkForPlagiarism(source(i));
+            assertFalse(results.isEmpty());
+            assertEquals("S" + i, results.get(0).getFileName());
+        }
+        manager.closeSegments();
+        assertEquals(5, manager.getShards().stream().mapToInt(shard -> shard.getFileCount()).sum());
+    }
+
+    @Test
+    void testAcknowledgedChangesSurviveCrash() throws IOException {
+        Path segments = tempDir.resolve("segments");
+        SegmentStore crashed = new SegmentStore(segments, 100);
+        crashed.open();
+        crashed.put("A", new FragmentExtractor().extractFragments(source(1)));
+        crashed.put("B", new FragmentExtractor().extractFragments(source(2)));
+        crashed.remove("A");
+        // Хранилище не закрывается: сегмент в памяти не сброшен на диск
+        assertEquals(0, segmentFiles(segments));
+
+        try (SegmentStore store = new SegmentStore(segments, 100)) {
+            assertEquals(1, store.open());
+            assertNull(store.get("A"));
+            assertNotNull(store.get("B"));
+            assertEquals(1, segmentFiles(segments));
+        }
+    }
+
+    @Test
+    void testFailedFlushIsKeptForRetry() throws IOException {
+        Path segments = tempDir.resolve("segments");
+        try (SegmentStore store = new SegmentStore(segments, 100)) {
+            store.open();
+            store.put("A", new FragmentExtractor().extractFragments(source(1)));
+
+            // Непустая директория на месте файла сегмента не дает его записать
+            Path blocker = segments.resolve("segment-1-1.seg");
+            Files.createDirectories(blocker.resolve("blocker"));
+            assertThrows(IOException.class, store::flush);
+            assertEquals(1, store.getPendingSegmentCount());
+            assertNotNull(store.get("A"));
+
+            Files.delete(blocker.resolve("blocker"));
+            Files.delete(blocker);
+            store.flush();
+            assertEquals(0, store.getPendingSegmentCount());
+        }
+
+        try (SegmentStore store = new SegmentStore(segments, 100)) {
+            assertEquals(1, store.open());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.DatabaseShard;
+import com.plagiarism.checker.core.SimilarityCalculator;
+import com.plagiarism.checker.model.CodeFragment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет, что ускоренный расчет по предвычисленным признакам и фильтрам
+ * дает те же совпадения, что и построчное применение правил isContentSimilar.
+ */
+class SimilarityEquivalenceTest {
+
+    /** Токены без алгоритмических конструкций: совпадения решают точное, вхождение и токенное правила */
+    private static final String[] TOKENS = {
+            "VAR", "VAR", "NUM", "STR", "(", ")", ";", "+", "*", "<", ">", "==", "++",
+            "new", "[", "]", ".", ",", "?", ":", "rare1", "rare2", "rare3", "rare4", "rare5"
+    };
+
+    @Test
+    void testMatchesCountEqualsPairwiseRules() {
+        SimilarityCalculator calculator = new SimilarityCalculator();
+        Random random = new Random(2024);
+
+        for (int round = 0; round < 40; round++) {
+            List<CodeFragment> checkFragments = randomFragments(random, 30);
+            Map<String, List<CodeFragment>> database = new HashMap<>();
+            for (int f = 0; f < 5; f++) {
+                List<CodeFragment> fragments = randomFragments(random, 25);
+                // Часть фрагментов копируется из проверяемой работы
+                for (int k = 0; k < 3; k++) {
+                    fragments.add(checkFragments.get(random.nextInt(checkFragments.size())));
+                }
+                database.put("File" + f + ".java", fragments);
+            }
+
+            List<Map<String, Object>> results = calculator.calculateSimilarities(checkFragments, database);
+            Map<String, Integer> actual = new HashMap<>();
+            for (Map<String, Object> result : results) {
+                actual.put((String) result.get("fileName"), (Integer) result.get("matchesCount"));
+            }
+
+            for (Map.Entry<String, List<CodeFragment>> entry : database.entrySet()) {
+                int expected = 0;
+                for (CodeFragment db : entry.getValue()) {
+                    for (CodeFragment check : checkFragments) {
+                        if (calculator.isContentSimilar(db.getNormalizedContent(),
+                                check.getNormalizedContent(), entry.getKey())) {
+                            expected++;
+                            break;
+                        }
+                    }
+                }
+                if (actual.containsKey(entry.getKey())) {
+                    assertEquals(expected, (int) actual.get(entry.getKey()), entry.getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testContainmentMatchesPairwiseRules() {
+        SimilarityCalculator calculator = new SimilarityCalculator();
+        Random random = new Random(77);
+
+        for (int round = 0; round < 40; round++) {
+            List<CodeFragment> checkFragments = new ArrayList<>();
+            List<CodeFragment> dbFragments = new ArrayList<>();
+            for (int k = 0; k < 12; k++) {
+                String base = randomText(random, 60 + random.nextInt(120));
+                // Подстрока со случайной позиции (в том числе посреди токена) и длиной около 70%
+                int length = Math.max(50, (int) (base.length() * (0.6 + random.nextDouble() * 0.4)));
+                length = Math.min(length, base.length());
+                int from = random.nextInt(base.length() - length + 1);
+                String part = base.substring(from, from + length);
+
+                if (random.nextBoolean()) {
+                    dbFragments.add(new CodeFragment(base, "db", k));
+                    checkFragments.add(new CodeFragment(part, "check", k));
+                } else {
+                    dbFragments.add(new CodeFragment(part, "db", k));
+                    checkFragments.add(new CodeFragment(base, "check", k));
+                }
+            }
+            java.util.Collections.shuffle(checkFragments, random);
+
+            Map<String, List<CodeFragment>> database = Map.of("File.java", dbFragments);
+            List<Map<String, Object>> results = calculator.calculateSimilarities(checkFragments, database);
+
+            int expected = 0;
+            for (CodeFragment db : dbFragments) {
+                for (CodeFragment check : checkFragments) {
+                    if (calculator.isContentSimilar(db.getNormalizedContent(),
+                            check.getNormalizedContent(), "File.java")) {
+                        expected++;
+                        break;
+                    }
+                }
+            }
+            int actual = results.isEmpty() ? 0 : (Integer) results.get(0).get("matchesCount");
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testTopResultsUnchangedByEarlyRejection() {
+        SimilarityCalculator calculator = new SimilarityCalculator();
+        Random random = new Random(5);
+
+        List<CodeFragment> checkFragments = randomFragments(random, 30);
+        DatabaseShard shard = new DatabaseShard(0);
+        for (int f = 0; f < 60; f++) {
+            List<CodeFragment> fragments = randomFragments(random, 20);
+            // Разная доля скопированных фрагментов дает разный процент схожести
+            for (int k = 0; k < f % 12; k++) {
+                fragments.add(checkFragments.get(random.nextInt(checkFragments.size())));
+            }
+            shard.put("File" + f + ".java", fragments);
+        }
+
+        List<Map<String, Object>> all = calculator.calculateSimilarities(checkFragments, List.of(shard), 0);
+        long rejectedBefore = calculator.getEarlyRejectedFiles();
+        List<Map<String, Object>> top = calculator.calculateSimilarities(checkFragments, List.of(shard), 5);
+
+        assertTrue(all.size() > 5);
+        assertEquals(5, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(all.get(i).get("fileName"), top.get(i).get("fileName"));
+            assertEquals(all.get(i).get("similarity"), top.get(i).get("similarity"));
+            assertEquals(all.get(i).get("matchesCount"), top.get(i).get("matchesCount"));
+        }
+        assertTrue(calculator.getEarlyRejectedFiles() > rejectedBefore);
+    }
+
+    @Test
+    void testVerdictCacheDoesNotChangeResults() {
+        SimilarityCalculator cached = new SimilarityCalculator();
+        SimilarityCalculator tiny = new SimilarityCalculator();
+        tiny.setVerdictCacheCapacity(1);
+        SimilarityCalculator uncached = new SimilarityCalculator();
+        uncached.setVerdictCacheCapacity(0);
+        Random random = new Random(48);
+
+        List<CodeFragment> checkFragments = randomFragments(random, 30);
+        DatabaseShard shard = new DatabaseShard(0);
+        // Общие фрагменты повторяются во всех файлах, поэтому пары сравниваются многократно
+        List<CodeFragment> boilerplate = randomFragments(random, 10);
+        for (int f = 0; f < 30; f++) {
+            List<CodeFragment> fragments = randomFragments(random, 15);
+            fragments.addAll(boilerplate);
+            fragments.add(checkFragments.get(random.nextInt(checkFragments.size())));
+            shard.put("File" + f + ".java", fragments);
+        }
+
+        List<Map<String, Object>> expected = uncached.calculateSimilarities(checkFragments, List.of(shard), 0);
+        for (SimilarityCalculator calculator : List.of(cached, tiny)) {
+            for (int run = 0; run < 2; run++) {
+                List<Map<String, Object>> actual = calculator.calculateSimilarities(checkFragments, List.of(shard), 0);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).get("fileName"), actual.get(i).get("fileName"));
+                    assertEquals(expected.get(i).get("matchesCount"), actual.get(i).get("matchesCount"));
+                }
+            }
+        }
+
+        assertEquals(0, uncached.getVerdictCacheHits());
+        assertTrue(cached.getVerdictCacheHits() > cached.getVerdictCacheMisses());
+        assertTrue(cached.getVerdictCacheHitRate() > 0.5);
+        assertThrows(IllegalArgumentException.class, () -> cached.setVerdictCacheCapacity(-1));
+    }
+
+    @Test
+    void testAdaptiveRuleOrderDoesNotChangeResults() {
+        SimilarityCalculator adaptive = new SimilarityCalculator();
+        SimilarityCalculator fixed = new SimilarityCalculator();
+        fixed.setAdaptiveRuleOrder(false);
+        Random random = new Random(49);
+
+        List<CodeFragment> checkFragments = randomFragments(random, 40);
+        DatabaseShard shard = new DatabaseShard(0);
+        for (int f = 0; f < 80; f++) {
+            List<CodeFragment> fragments = randomFragments(random, 40);
+            fragments.add(checkFragments.get(random.nextInt(checkFragments.size())));
+            shard.put("File" + f + ".java", fragments);
+        }
+
+        List<Map<String, Object>> expected = fixed.calculateSimilarities(checkFragments, List.of(shard), 0);
+        // Повторные запросы накапливают замеры, и порядок правил пересчитывается
+        for (int run = 0; run < 5; run++) {
+            List<Map<String, Object>> actual = adaptive.calculateSimilarities(checkFragments, List.of(shard), 0);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).get("fileName"), actual.get(i).get("fileName"));
+                assertEquals(expected.get(i).get("matchesCount"), actual.get(i).get("matchesCount"));
+            }
+        }
+
+        assertTrue(adaptive.getRuleReorderCount() > 0);
+        assertEquals(0, fixed.getRuleReorderCount());
+        assertEquals(List.of("exact", "containment", "algorithm", "token"), fixed.getRuleOrder());
+        assertEquals(4, adaptive.getRuleOrder().size());
+        assertTrue(adaptive.getRuleStatistics().stream().mapToLong(rule -> (long) rule.get("samples")).sum() > 0);
+    }
+
+    private String randomText(Random random, int minLength) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < minLength) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private List<CodeFragment> randomFragments(Random random, int count) {
+        List<CodeFragment> fragments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(random.nextInt(10) == 0 ? 40 : 8);
+            for (int t = 0; t < length; t++) {
+                if (t > 0) {
+                    sb.append(' ');
+                }
+                sb.append(TOKENS[random.nextInt(random.nextBoolean() ? 8 : TOKENS.length)]);
+            }
+            fragments.add(new CodeFragment(sb.toString(), "line", i + 1));
+        }
+        return fragments;
+    }
+}
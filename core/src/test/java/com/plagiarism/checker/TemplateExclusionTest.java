@@ -0,0 +1,120 @@
+package com.plagiarism.checker;
+
+import com.plagiarism.checker.core.FragmentExtractor;
+import com.plagiarism.checker.core.PlagiarismDetector;
+import com.plagiarism.checker.model.CodeFragment;
+import com.plagiarism.checker.model.PlagiarismResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateExclusionTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** Стартовый код задания, который есть в каждой работе */
+    private static final String SKELETON =
+            "import java.util.Scanner;\n"
+            + "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        Scanner scanner = new Scanner(System.in);\n"
+            + "        int count = scanner.nextInt();\n"
+            + "        int[] values = new int[count];\n"
+            + "        for (int i = 0; i < count; i++) {\n"
+            + "            values[i] = scanner.nextInt();\n"
+            + "        }\n"
+            + "        System.out.println(solve(values));\n"
+            + "    }\n";
+
+    private static String submission(String solve) {
+        return SKELETON + solve + "\n}\n";
+    }
+
+    private static final String FIRST = submission(
+            "    static int solve(int[] a) { int best = a[0]; for (int x : a) { if (x > best) { best = x; } } return best; }");
+
+    private static final String SECOND = submission(
+            "    static long solve(int[] a) { long sum = 1; int k = 0; while (k < a.length) { sum = sum * 3 + a[k]; k = k + 2; } return sum; }");
+
+    private PlagiarismDetector createDetector(boolean withTemplate) throws IOException {
+        Path dbDir = Files.createDirectories(tempDir.resolve("db-" + withTemplate));
+        Files.writeString(dbDir.resolve("First.java"), FIRST);
+        Path templateDir = Files.createDirectories(tempDir.resolve("template"));
+        Files.writeString(templateDir.resolve("Main.java"), SKELETON + "}\n");
+
+        PlagiarismDetector detector = new PlagiarismDetector();
+        if (withTemplate) {
+            assertTrue(detector.addTemplateDirectory(templateDir) > 0);
+        }
+        detector.loadDatabase(dbDir);
+        return detector;
+    }
+
+    private static int matchCount(List<PlagiarismResult> results) {
+        return results.stream().mapToInt(PlagiarismResult::getMatchCount).sum();
+    }
+
+    @Test
+    void testSharedSkeletonNoLongerMatches() throws IOException {
+        PlagiarismDetector plain = createDetector(false);
+        PlagiarismDetector templated = createDetector(true);
+
+        // Неизмененный стартовый код совпадает с любой работой, пока шаблон не зарегистрирован
+        assertFalse(plain.checkForPlagiarism(SKELETON + "}\n").isEmpty());
+        assertTrue(templated.checkForPlagiarism(SKELETON + "}\n").isEmpty());
+
+        assertTrue(matchCount(templated.checkForPlagiarism(SECOND)) < matchCount(plain.checkForPlagiarism(SECOND)));
+    }
+
+    @Test
+    void testTemplateStatementsAreSubtracted() {
+        FragmentExtractor extractor = new FragmentExtractor();
+        extractor.addTemplate(SKELETON + "}\n");
+
+        List<CodeFragment> fragments = extractor.extractFragments(FIRST);
+        assertFalse(fragments.isEmpty());
+        assertTrue(fragments.stream().noneMatch(fragment -> fragment.getNormalizedContent().contains("Scanner")));
+
+        // Работа без изменений каркаса не дает фрагментов вовсе
+        assertTrue(extractor.extractFragments(SKELETON + "}\n").isEmpty());
+
+        extractor.clearTemplates();
+        assertEquals(0, extractor.getTemplateBlockCount());
+    }
+
+    @Test
+    void testTrivialStatementsSharedWithTemplateAreKept() {
+        // Шаблон и работа оба содержат оператор return result, но в разном окружении
+        String template = SKELETON
+                + "    static int solve(int[] values) {\n"
+                + "        int result = 0;\n"
+                + "        return result;\n"
+                + "    }\n"
+                + "}\n";
+        String work = "public class Work {\n"
+                + "    static long solve(int[] a) {\n"
+                + "        long seed = a.length * 7L;\n"
+                + "        long result = mix(seed, a);\n"
+                + "        return result;\n"
+                + "    }\n"
+                + "}\n";
+
+        FragmentExtractor plain = new FragmentExtractor();
+        FragmentExtractor templated = new FragmentExtractor();
+        assertTrue(templated.addTemplate(template) > 0);
+
+        List<String> expected = plain.extractFragments(work).stream()
+                .map(CodeFragment::getNormalizedContent).toList();
+        List<String> actual = templated.extractFragments(work).stream()
+                .map(CodeFragment::getNormalizedContent).toList();
+        assertEquals(expected, actual);
+        assertTrue(actual.contains("return result"));
+    }
+}
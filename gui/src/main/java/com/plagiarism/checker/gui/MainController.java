@@ -3,6 +3,7 @@ package com.plagiarism.checker.gui;
 import com.plagiarism.checker.core.PlagiarismDetector;
 import com.plagiarism.checker.model.CodeFragment;
 import com.plagiarism.checker.model.PlagiarismResult;
+import com.plagiarism.checker.model.ProgressSnapshot;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -344,21 +345,16 @@ public class MainController {
             protected List<PlagiarismResult> call() throws Exception {
                 try {
                     updateMessage("Analyzing file...");
-                    updateProgress(0.1, 1);
-                    Thread.sleep(50); // Небольшая задержка для плавности
-
-                    updateProgress(0.3, 1);
-                    List<PlagiarismResult> results = detector.checkFileForPlagiarism(Path.of(filePath));
-
-                    updateProgress(0.9, 1);
-                    Thread.sleep(50);
+                    List<PlagiarismResult> results = detector.checkFileForPlagiarism(Path.of(filePath),
+                            progress -> {
+                                updateMessage(describeProgress("Analyzing file", progress));
+                                if (progress.getFraction() >= 0) {
+                                    updateProgress(progress.getFraction(), 1);
+                                }
+                            });
 
                     return results != null ? results : Collections.emptyList();
 
-                } catch (InterruptedException e) {
-                    logger.warn("File analysis task interrupted");
-                    Thread.currentThread().interrupt();
-                    throw e;
                 } catch (InvalidPathException e) {
                     logger.error("Invalid file path: {}", filePath, e);
                     throw new IOException("Invalid file path: " + filePath, e);
@@ -416,21 +412,15 @@ public class MainController {
             protected List<PlagiarismResult> call() throws Exception {
                 try {
                     updateMessage("Analyzing code...");
-                    updateProgress(0.1, 1);
-                    Thread.sleep(50);
-
-                    updateProgress(0.4, 1);
-                    List<PlagiarismResult> results = detector.checkForPlagiarism(code);
-
-                    updateProgress(0.9, 1);
-                    Thread.sleep(50);
+                    List<PlagiarismResult> results = detector.checkForPlagiarism(code, 0, progress -> {
+                        updateMessage(describeProgress("Analyzing code", progress));
+                        if (progress.getFraction() >= 0) {
+                            updateProgress(progress.getFraction(), 1);
+                        }
+                    });
 
                     return results != null ? results : Collections.emptyList();
 
-                } catch (InterruptedException e) {
-                    logger.warn("Code analysis task interrupted");
-                    Thread.currentThread().interrupt();
-                    throw e;
                 } catch (OutOfMemoryError e) {
                     logger.error("Insufficient memory for code analysis");
                     throw new IOException("Insufficient memory for code analysis", e);
@@ -500,22 +490,16 @@ public class MainController {
             protected Void call() throws Exception {
                 try {
                     updateMessage("Loading database...");
-                    updateProgress(0.1, 1);
-                    Thread.sleep(50);
-
-                    updateProgress(0.3, 1);
-                    detector.loadDatabase(Path.of(dbPath));
-
-                    updateProgress(0.8, 1);
-                    Thread.sleep(100);
+                    detector.loadDatabaseWithProgress(Path.of(dbPath), progress -> {
+                        updateMessage(describeProgress("Loading database", progress));
+                        if (progress.getFraction() >= 0) {
+                            updateProgress(progress.getFraction(), 1);
+                        }
+                    });
 
                     updateProgress(1.0, 1);
                     return null;
 
-                } catch (InterruptedException e) {
-                    logger.warn("Database load task interrupted");
-                    Thread.currentThread().interrupt();
-                    throw e;
                 } catch (InvalidPathException e) {
                     logger.error("Invalid database path: {}", dbPath, e);
                     throw new IOException("Invalid database path: " + dbPath, e);
@@ -596,6 +580,32 @@ public class MainController {
         new Thread(task).start();
     }
 
+    /**
+     * Формирует строку состояния по ходу операции: обработанные файлы,
+     * скорость в файлах в секунду и оценку оставшегося времени.
+     *
+     * @param action название операции для отображения
+     * @param progress снимок хода операции
+     * @return текст для строки состояния
+     */
+    private String describeProgress(String action, ProgressSnapshot progress) {
+        StringBuilder message = new StringBuilder(action).append(": ")
+                .append(progress.getFilesProcessed()).append('/').append(progress.getTotalFiles())
+                .append(" files, ")
+                .append(String.format("%.1f files/s", progress.getFilesPerSecond()));
+
+        long remainingMillis = progress.getEstimatedRemainingMillis();
+        if (remainingMillis >= 0 && !progress.isComplete()) {
+            long seconds = (remainingMillis + 999) / 1000;
+            message.append(", ETA ");
+            if (seconds >= 60) {
+                message.append(seconds / 60).append("m ");
+            }
+            message.append(seconds % 60).append('s');
+        }
+        return message.toString();
+    }
+
     /**
      * Настраивает обработчики событий для асинхронной задачи анализа.
      *